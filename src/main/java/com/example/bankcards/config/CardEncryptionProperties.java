@@ -0,0 +1,13 @@
+package com.example.bankcards.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.Map;
+
+/**
+ * Ключи шифрования номеров карт: версия ключа -> ключ AES-256 в Base64.
+ * Новые значения шифруются активным ключом, остальные нужны для чтения уже зашифрованных.
+ */
+@ConfigurationProperties(prefix = "card.encryption")
+public record CardEncryptionProperties(String activeKey, Map<String, String> keys) {
+}
@@ -1,16 +1,30 @@
 package com.example.bankcards.controller;
 
 
+import com.example.bankcards.dto.card.AdminJobDto;
+import com.example.bankcards.dto.card.BulkBlockRequest;
+import com.example.bankcards.dto.card.BulkBlockResponse;
 import com.example.bankcards.dto.card.CardDtoBlock;
 import com.example.bankcards.dto.card.CardDtoOut;
+import com.example.bankcards.dto.card.CardImportErrorDto;
+import com.example.bankcards.dto.card.CardImportJobDto;
+import com.example.bankcards.dto.card.CardReencryptionStatus;
 import com.example.bankcards.service.card.admin.AdminCardService;
+import com.example.bankcards.service.card.encryption.CardReencryptionService;
+import com.example.bankcards.service.card.importing.CardImportService;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
 import lombok.AccessLevel;
 import lombok.RequiredArgsConstructor;
 import lombok.experimental.FieldDefaults;
+import org.springframework.data.domain.Page;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
 
+import java.io.IOException;
 import java.util.List;
 
 @RestController
@@ -21,20 +35,69 @@ import java.util.List;
 public class AdminController {
 
     AdminCardService cardService;
+    CardReencryptionService reencryptionService;
+    CardImportService cardImportService;
 
     @GetMapping("/cards")
     List<CardDtoOut> getAllCards() {
         return cardService.getAllCards();
     }
 
+    @GetMapping(value = "/cards/export", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public void exportCards(HttpServletResponse response) throws IOException {
+        response.setContentType(MediaType.APPLICATION_NDJSON_VALUE);
+        cardService.exportCards(response.getOutputStream());
+    }
+
+    @PostMapping(value = "/cards/import", consumes = "text/csv")
+    @ResponseStatus(HttpStatus.ACCEPTED)
+    public CardImportJobDto importCards(HttpServletRequest request) throws IOException {
+        return cardImportService.importCards(request.getInputStream());
+    }
+
+    @GetMapping("/cards/import/{jobId}")
+    public CardImportJobDto getImportJob(@PathVariable Long jobId) {
+        return cardImportService.getImportJob(jobId);
+    }
+
+    @GetMapping("/cards/import/{jobId}/errors")
+    public Page<CardImportErrorDto> getImportErrors(@PathVariable Long jobId,
+                                                    @RequestParam(defaultValue = "0") int page,
+                                                    @RequestParam(defaultValue = "100") int size) {
+        return cardImportService.getImportErrors(jobId, page, size);
+    }
+
+    @PostMapping("/cards/reencryption")
+    @ResponseStatus(HttpStatus.ACCEPTED)
+    public CardReencryptionStatus startReencryption() {
+        return reencryptionService.startReencryption();
+    }
+
+    @GetMapping("/cards/reencryption")
+    public CardReencryptionStatus getReencryptionStatus() {
+        return reencryptionService.getReencryptionStatus();
+    }
+
     @PatchMapping("/create")
-    public void createCardForUser() {
-        cardService.createCardForUser();
+    @ResponseStatus(HttpStatus.ACCEPTED)
+    public AdminJobDto createCardForUser() {
+        return cardService.createCardForUser();
     }
 
     @PatchMapping("/block")
-    public void blockCardForUsers() {
-        cardService.blockCardForUsers();
+    @ResponseStatus(HttpStatus.ACCEPTED)
+    public AdminJobDto blockCardForUsers() {
+        return cardService.blockCardForUsers();
+    }
+
+    @GetMapping("/jobs/{jobId}")
+    public AdminJobDto getJob(@PathVariable Long jobId) {
+        return cardService.getJob(jobId);
+    }
+
+    @PostMapping("/cards/block")
+    public BulkBlockResponse blockCards(@Valid @RequestBody BulkBlockRequest bulkBlockRequest) {
+        return cardService.blockCards(bulkBlockRequest.getCards());
     }
 
     @PatchMapping("/remove")
@@ -2,6 +2,7 @@ package com.example.bankcards.controller;
 
 import com.example.bankcards.dto.jwt.JwtRequest;
 import com.example.bankcards.dto.jwt.JwtResponse;
+import com.example.bankcards.dto.jwt.RefreshTokenRequest;
 import com.example.bankcards.dto.user.UserDtoIn;
 import com.example.bankcards.dto.user.UserDtoOut;
 import com.example.bankcards.service.auth.AuthService;
@@ -10,10 +11,10 @@ import jakarta.validation.Valid;
 import lombok.AccessLevel;
 import lombok.RequiredArgsConstructor;
 import lombok.experimental.FieldDefaults;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.validation.annotation.Validated;
-import org.springframework.web.bind.annotation.PostMapping;
-import org.springframework.web.bind.annotation.RequestBody;
-import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.bind.annotation.*;
 
 @RestController
 @RequiredArgsConstructor
@@ -33,4 +34,15 @@ public class AuthController {
     public JwtResponse createAuthToken(@RequestBody @Valid JwtRequest jwtRequest) {
         return authService.createAuthToken(jwtRequest);
     }
+
+    @PostMapping("/auth/refresh")
+    public JwtResponse refreshAuthToken(@RequestBody @Valid RefreshTokenRequest refreshTokenRequest) {
+        return authService.refreshAuthToken(refreshTokenRequest);
+    }
+
+    @PostMapping("/auth/logout")
+    @ResponseStatus(HttpStatus.NO_CONTENT)
+    public void logout(@RequestHeader(HttpHeaders.AUTHORIZATION) String authorization) {
+        authService.logout(authorization.startsWith("Bearer ") ? authorization.substring(7) : authorization);
+    }
 }
\ No newline at end of file
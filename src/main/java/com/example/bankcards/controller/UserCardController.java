@@ -4,6 +4,7 @@ package com.example.bankcards.controller;
 import com.example.bankcards.dto.card.*;
 import com.example.bankcards.service.card.admin.AdminCardService;
 import com.example.bankcards.service.card.user.UserCardService;
+import com.example.bankcards.service.idempotency.IdempotencyService;
 import jakarta.validation.Valid;
 import lombok.AccessLevel;
 import lombok.RequiredArgsConstructor;
@@ -19,8 +20,11 @@ import org.springframework.web.bind.annotation.*;
 @Validated
 public class UserCardController {
 
+    private static final String IDEMPOTENCY_KEY = "Idempotency-Key";
+
     UserCardService cardService;
     AdminCardService adminCardService;
+    IdempotencyService idempotencyService;
 
     @GetMapping
     Page<CardDtoOutUser> getAllCardsForUser(@RequestHeader("X-USER-ID") Long userId,
@@ -29,6 +33,13 @@ public class UserCardController {
         return cardService.getAllCardsForUser(userId, page, size);
     }
 
+    @GetMapping("/keyset")
+    CardSliceResponse getCardsForUserAfterCursor(@RequestHeader("X-USER-ID") Long userId,
+                                                 @RequestParam(required = false) String cursor,
+                                                 @RequestParam(defaultValue = "10") int size) {
+        return cardService.getCardsForUserAfterCursor(userId, cursor, size);
+    }
+
     @PostMapping("/request/create")
     public void requestCreateCard(@RequestBody @Valid CardDtoIn cardDtoIn) {
         adminCardService.requestCreateCardForUser(cardDtoIn);
@@ -47,13 +58,26 @@ public class UserCardController {
     }
 
     @PatchMapping("/{cartId}")
-    public CardDtoOutUser updateBalanceCard(@RequestBody @Valid RequestUpdateBalance requestUpdateBalance) {
-        return cardService.updateBalanceCard(requestUpdateBalance);
+    public CardDtoOutUser updateBalanceCard(@RequestHeader(value = IDEMPOTENCY_KEY, required = false) String idempotencyKey,
+                                            @RequestBody @Valid RequestUpdateBalance requestUpdateBalance) {
+        return idempotencyService.execute(idempotencyKey, "updateBalance", requestUpdateBalance, CardDtoOutUser.class,
+                () -> cardService.updateBalanceCard(requestUpdateBalance));
     }
 
     @PatchMapping
-    public void transferFromOneCardToAnother(@RequestBody @Valid TransferRequest transferRequest) {
-        cardService.transferFromOneCardToAnother(transferRequest);
+    public void transferFromOneCardToAnother(@RequestHeader(value = IDEMPOTENCY_KEY, required = false) String idempotencyKey,
+                                             @RequestBody @Valid TransferRequest transferRequest) {
+        idempotencyService.execute(idempotencyKey, "transfer", transferRequest, Void.class, () -> {
+            cardService.transferFromOneCardToAnother(transferRequest);
+            return null;
+        });
+    }
+
+    @PatchMapping("/batch")
+    public BatchTransferResponse transferBatch(@RequestHeader(value = IDEMPOTENCY_KEY, required = false) String idempotencyKey,
+                                               @RequestBody @Valid BatchTransferRequest batchTransferRequest) {
+        return idempotencyService.execute(idempotencyKey, "batchTransfer", batchTransferRequest, BatchTransferResponse.class,
+                () -> cardService.transferBatch(batchTransferRequest));
     }
 
 
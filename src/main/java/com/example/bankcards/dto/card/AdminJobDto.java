@@ -0,0 +1,38 @@
+package com.example.bankcards.dto.card;
+
+import com.example.bankcards.dto.enums.AdminJobStatus;
+import com.example.bankcards.dto.enums.AdminJobType;
+import lombok.*;
+import lombok.experimental.FieldDefaults;
+
+import java.time.LocalDateTime;
+
+@Getter
+@Setter
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE)
+public class AdminJobDto {
+
+    Long jobId;
+
+    AdminJobType jobType;
+
+    AdminJobStatus status;
+
+    long processedItems;
+
+    long failedItems;
+
+    long chunks;
+
+    double itemsPerSecond;
+
+    String error;
+
+    LocalDateTime createdAt;
+
+    LocalDateTime completedAt;
+
+}
@@ -0,0 +1,23 @@
+package com.example.bankcards.dto.card;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
+import lombok.*;
+import lombok.experimental.FieldDefaults;
+
+import java.util.List;
+
+@Getter
+@Setter
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE)
+public class BulkBlockRequest {
+
+    @NotEmpty
+    @Size(max = 100000)
+    List<@Valid CardDtoBlock> cards;
+
+}
@@ -0,0 +1,23 @@
+package com.example.bankcards.dto.card;
+
+import lombok.*;
+import lombok.experimental.FieldDefaults;
+
+import java.util.List;
+
+@Getter
+@Setter
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE)
+public class BulkBlockResponse {
+
+    long requested;
+
+    long blocked;
+
+    // Позиции в запросе, для которых карта не найдена
+    List<Integer> notMatched;
+
+}
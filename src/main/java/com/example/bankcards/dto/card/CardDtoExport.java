@@ -0,0 +1,42 @@
+package com.example.bankcards.dto.card;
+
+import com.example.bankcards.dto.enums.CardStatus;
+import com.example.bankcards.util.Money;
+import lombok.*;
+import lombok.experimental.FieldDefaults;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+@Builder
+@FieldDefaults(level = AccessLevel.PRIVATE)
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Getter
+public class CardDtoExport {
+
+    Long cardId;
+
+    String cardHolder;
+
+    String cardNumberMasked;
+
+    LocalDate expiryDate;
+
+    CardStatus status;
+
+    BigDecimal balance;
+
+    Long userId;
+
+    String username;
+
+    String email;
+
+    public CardDtoExport(Long cardId, String cardHolder, String cardNumberMasked, LocalDate expiryDate, CardStatus status,
+                         Money balance, Long userId, String username, String email) {
+        this(cardId, cardHolder, cardNumberMasked, expiryDate, status, balance.toBigDecimal(), userId, username, email);
+    }
+
+}
@@ -1,13 +1,12 @@
 package com.example.bankcards.dto.card;
 
+import com.example.bankcards.util.Money;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotNull;
 import jakarta.validation.constraints.PositiveOrZero;
 import lombok.*;
 import lombok.experimental.FieldDefaults;
 
-import java.math.BigDecimal;
-
 @Getter
 @Setter
 @NoArgsConstructor
@@ -23,6 +22,6 @@ public class CardDtoIn {
     String cardHolder;
 
     @PositiveOrZero
-    BigDecimal initialBalance = BigDecimal.ZERO;
+    Money initialBalance = Money.ZERO;
 
 }
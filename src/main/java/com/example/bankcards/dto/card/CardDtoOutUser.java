@@ -1,11 +1,14 @@
 package com.example.bankcards.dto.card;
 
 import com.example.bankcards.dto.enums.CardStatus;
+import com.example.bankcards.util.Money;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import lombok.*;
 import lombok.experimental.FieldDefaults;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
+import java.time.LocalDateTime;
 
 @Builder
 @FieldDefaults(level = AccessLevel.PRIVATE)
@@ -25,4 +28,20 @@ public class CardDtoOutUser {
 
     String cardNumberMasked;
 
+    // Ключ сортировки для курсора постраничной выдачи, клиенту не отдаётся
+    @JsonIgnore
+    LocalDateTime createdAt;
+
+    @JsonIgnore
+    Long cardId;
+
+    public CardDtoOutUser(String cardHolder, LocalDate expiryDate, CardStatus status, Money balance, String cardNumberMasked) {
+        this(cardHolder, expiryDate, status, balance.toBigDecimal(), cardNumberMasked, null, null);
+    }
+
+    public CardDtoOutUser(String cardHolder, LocalDate expiryDate, CardStatus status, Money balance, String cardNumberMasked,
+                          LocalDateTime createdAt, Long cardId) {
+        this(cardHolder, expiryDate, status, balance.toBigDecimal(), cardNumberMasked, createdAt, cardId);
+    }
+
 }
@@ -0,0 +1,11 @@
+package com.example.bankcards.dto.card;
+
+public interface CardIdentity {
+
+    Long getCardId();
+
+    String getCardNumberHash();
+
+    String getCardHolder();
+
+}
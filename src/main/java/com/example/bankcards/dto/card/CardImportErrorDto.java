@@ -0,0 +1,18 @@
+package com.example.bankcards.dto.card;
+
+import lombok.*;
+import lombok.experimental.FieldDefaults;
+
+@Getter
+@Setter
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE)
+public class CardImportErrorDto {
+
+    long lineNumber;
+
+    String message;
+
+}
@@ -0,0 +1,33 @@
+package com.example.bankcards.dto.card;
+
+import com.example.bankcards.dto.enums.CardImportStatus;
+import lombok.*;
+import lombok.experimental.FieldDefaults;
+
+import java.time.LocalDateTime;
+
+@Getter
+@Setter
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE)
+public class CardImportJobDto {
+
+    Long jobId;
+
+    CardImportStatus status;
+
+    long processedRows;
+
+    long importedRows;
+
+    long failedRows;
+
+    String error;
+
+    LocalDateTime createdAt;
+
+    LocalDateTime completedAt;
+
+}
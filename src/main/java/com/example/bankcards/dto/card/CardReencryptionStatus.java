@@ -0,0 +1,35 @@
+package com.example.bankcards.dto.card;
+
+import com.example.bankcards.dto.enums.ReencryptionState;
+import lombok.*;
+import lombok.experimental.FieldDefaults;
+
+import java.time.LocalDateTime;
+
+@Getter
+@Setter
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE)
+public class CardReencryptionStatus {
+
+    String keyVersion;
+
+    ReencryptionState state;
+
+    long lastCardId;
+
+    long processedRows;
+
+    long totalCards;
+
+    LocalDateTime startedAt;
+
+    LocalDateTime updatedAt;
+
+    LocalDateTime completedAt;
+
+    String error;
+
+}
@@ -0,0 +1,22 @@
+package com.example.bankcards.dto.card;
+
+import lombok.*;
+import lombok.experimental.FieldDefaults;
+
+import java.util.List;
+
+@Getter
+@Setter
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE)
+public class CardSliceResponse {
+
+    List<CardDtoOutUser> content;
+
+    boolean hasNext;
+
+    String nextCursor;
+
+}
@@ -1,13 +1,12 @@
 package com.example.bankcards.dto.card;
 
 
+import com.example.bankcards.util.Money;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotNull;
 import jakarta.validation.constraints.PositiveOrZero;
 import lombok.*;
 
-import java.math.BigDecimal;
-
 
 @Getter
 @Setter
@@ -24,6 +23,6 @@ public class RequestUpdateBalance {
 
     @PositiveOrZero
     @NotNull
-    BigDecimal addedAmount;
+    Money addedAmount;
 
 }
\ No newline at end of file
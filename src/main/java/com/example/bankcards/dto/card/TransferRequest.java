@@ -1,13 +1,12 @@
 package com.example.bankcards.dto.card;
 
+import com.example.bankcards.util.Money;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotNull;
 import jakarta.validation.constraints.PositiveOrZero;
 import lombok.*;
 import lombok.experimental.FieldDefaults;
 
-import java.math.BigDecimal;
-
 @Getter
 @Setter
 @Builder
@@ -24,7 +23,7 @@ public class TransferRequest {
 
     @PositiveOrZero
     @NotNull
-    BigDecimal addedAmount;
+    Money addedAmount;
 
     @NotBlank
     String cardNumberTo;
@@ -0,0 +1,21 @@
+package com.example.bankcards.dto.card;
+
+import com.example.bankcards.dto.enums.TransferStatus;
+import lombok.*;
+import lombok.experimental.FieldDefaults;
+
+@Getter
+@Setter
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE)
+public class TransferResult {
+
+    int index;
+
+    TransferStatus status;
+
+    String message;
+
+}
@@ -0,0 +1,5 @@
+package com.example.bankcards.dto.enums;
+
+public enum AdminJobType {
+    CREATE_CARDS, BLOCK_CARDS
+}
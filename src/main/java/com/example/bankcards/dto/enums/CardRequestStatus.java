@@ -0,0 +1,5 @@
+package com.example.bankcards.dto.enums;
+
+public enum CardRequestStatus {
+    PENDING, COMPLETED, FAILED
+}
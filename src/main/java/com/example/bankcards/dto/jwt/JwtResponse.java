@@ -11,4 +11,5 @@ import lombok.experimental.FieldDefaults;
 @AllArgsConstructor
 public class JwtResponse {
     String token;
+    String refreshToken;
 }
@@ -0,0 +1,53 @@
+package com.example.bankcards.entity;
+
+import com.example.bankcards.dto.enums.AdminJobStatus;
+import com.example.bankcards.dto.enums.AdminJobType;
+import jakarta.persistence.*;
+import lombok.*;
+import lombok.experimental.FieldDefaults;
+import org.hibernate.annotations.CreationTimestamp;
+
+import java.time.LocalDateTime;
+
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@Getter
+@Setter
+@FieldDefaults(level = AccessLevel.PRIVATE)
+@Entity
+@Table(name = "admin_jobs")
+public class AdminJob {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "job_id")
+    Long jobId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "job_type", nullable = false)
+    AdminJobType jobType;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    AdminJobStatus status;
+
+    @Column(name = "processed_items", nullable = false)
+    long processedItems;
+
+    @Column(name = "failed_items", nullable = false)
+    long failedItems;
+
+    @Column(nullable = false)
+    long chunks;
+
+    String error;
+
+    @CreationTimestamp
+    @Column(name = "created_at", nullable = false)
+    LocalDateTime createdAt;
+
+    @Column(name = "completed_at")
+    LocalDateTime completedAt;
+
+}
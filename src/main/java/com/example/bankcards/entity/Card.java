@@ -1,12 +1,13 @@
 package com.example.bankcards.entity;
 
 import com.example.bankcards.dto.enums.CardStatus;
+import com.example.bankcards.util.CardNumberConverter;
+import com.example.bankcards.util.Money;
 import jakarta.persistence.*;
 import lombok.*;
 import lombok.experimental.FieldDefaults;
 import org.hibernate.annotations.CreationTimestamp;
 
-import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 
@@ -21,12 +22,17 @@ import java.time.LocalDateTime;
 public class Card {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "cards_card_id_seq")
+    @SequenceGenerator(name = "cards_card_id_seq", sequenceName = "cards_card_id_seq", allocationSize = 50)
     Long cardId;
 
+    @Convert(converter = CardNumberConverter.class)
     @Column(name = "card_number", nullable = false)
     String cardNumber;
 
+    @Column(name = "card_number_hash", length = 64, unique = true)
+    String cardNumberHash;
+
     @Column(name = "card_number_masked", nullable = false)
     String cardNumberMasked;
 
@@ -40,7 +46,7 @@ public class Card {
     CardStatus status;
 
     @Column(precision = 15, scale = 2)
-    BigDecimal balance = BigDecimal.ZERO;
+    Money balance = Money.ZERO;
 
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "user_id", nullable = false)
@@ -49,12 +55,7 @@ public class Card {
     @CreationTimestamp
     LocalDateTime createdAt;
 
-    @PreUpdate
-    @PrePersist
-    public void checkExpiry() {
-        if (expiryDate.isBefore(LocalDate.now())) {
-            this.status = CardStatus.EXPIRED;
-        }
-    }
+    @Version
+    Long version;
 
 }
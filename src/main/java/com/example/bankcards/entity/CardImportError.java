@@ -0,0 +1,32 @@
+package com.example.bankcards.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+import lombok.experimental.FieldDefaults;
+import org.hibernate.annotations.Immutable;
+
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@Getter
+@FieldDefaults(level = AccessLevel.PRIVATE)
+@Immutable
+@Entity
+@Table(name = "card_import_errors")
+public class CardImportError {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "card_import_errors_seq")
+    @SequenceGenerator(name = "card_import_errors_seq", sequenceName = "card_import_errors_seq", allocationSize = 50)
+    Long errorId;
+
+    @Column(name = "job_id", nullable = false)
+    Long jobId;
+
+    @Column(name = "line_number", nullable = false)
+    long lineNumber;
+
+    @Column(nullable = false)
+    String message;
+
+}
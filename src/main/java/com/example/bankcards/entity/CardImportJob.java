@@ -0,0 +1,48 @@
+package com.example.bankcards.entity;
+
+import com.example.bankcards.dto.enums.CardImportStatus;
+import jakarta.persistence.*;
+import lombok.*;
+import lombok.experimental.FieldDefaults;
+import org.hibernate.annotations.CreationTimestamp;
+
+import java.time.LocalDateTime;
+
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@Getter
+@Setter
+@FieldDefaults(level = AccessLevel.PRIVATE)
+@Entity
+@Table(name = "card_import_jobs")
+public class CardImportJob {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "job_id")
+    Long jobId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    CardImportStatus status;
+
+    @Column(name = "processed_rows", nullable = false)
+    long processedRows;
+
+    @Column(name = "imported_rows", nullable = false)
+    long importedRows;
+
+    @Column(name = "failed_rows", nullable = false)
+    long failedRows;
+
+    String error;
+
+    @CreationTimestamp
+    @Column(name = "created_at", nullable = false)
+    LocalDateTime createdAt;
+
+    @Column(name = "completed_at")
+    LocalDateTime completedAt;
+
+}
@@ -0,0 +1,53 @@
+package com.example.bankcards.entity;
+
+import com.example.bankcards.dto.enums.LedgerEntryType;
+import com.example.bankcards.dto.enums.LedgerOperationType;
+import com.example.bankcards.util.Money;
+import jakarta.persistence.*;
+import lombok.*;
+import lombok.experimental.FieldDefaults;
+import org.hibernate.annotations.CreationTimestamp;
+import org.hibernate.annotations.Immutable;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@Getter
+@FieldDefaults(level = AccessLevel.PRIVATE)
+@Immutable
+@Entity
+@Table(name = "card_ledger_entries")
+public class CardLedgerEntry {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "card_ledger_entries_seq")
+    @SequenceGenerator(name = "card_ledger_entries_seq", sequenceName = "card_ledger_entries_seq", allocationSize = 50)
+    Long entryId;
+
+    @Column(name = "operation_id", nullable = false)
+    UUID operationId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "operation_type", nullable = false)
+    LedgerOperationType operationType;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "entry_type", nullable = false)
+    LedgerEntryType entryType;
+
+    @Column(name = "card_id")
+    Long cardId;
+
+    @Column(nullable = false, precision = 15, scale = 2)
+    Money amount;
+
+    @Column(name = "balance_after", precision = 15, scale = 2)
+    Money balanceAfter;
+
+    @CreationTimestamp
+    LocalDateTime createdAt;
+
+}
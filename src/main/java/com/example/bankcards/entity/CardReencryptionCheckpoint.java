@@ -0,0 +1,41 @@
+package com.example.bankcards.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+import lombok.experimental.FieldDefaults;
+
+import java.time.LocalDateTime;
+
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@Getter
+@Setter
+@FieldDefaults(level = AccessLevel.PRIVATE)
+@Entity
+@Table(name = "card_reencryption_checkpoints")
+public class CardReencryptionCheckpoint {
+
+    @Id
+    @Column(name = "key_version", nullable = false)
+    String keyVersion;
+
+    @Column(name = "last_card_id", nullable = false)
+    Long lastCardId;
+
+    @Column(name = "processed_rows", nullable = false)
+    Long processedRows;
+
+    @Column(name = "total_cards", nullable = false)
+    Long totalCards;
+
+    @Column(name = "started_at", nullable = false)
+    LocalDateTime startedAt;
+
+    @Column(name = "updated_at", nullable = false)
+    LocalDateTime updatedAt;
+
+    @Column(name = "completed_at")
+    LocalDateTime completedAt;
+
+}
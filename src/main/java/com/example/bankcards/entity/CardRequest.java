@@ -0,0 +1,57 @@
+package com.example.bankcards.entity;
+
+import com.example.bankcards.dto.enums.CardRequestStatus;
+import com.example.bankcards.dto.enums.CardRequestType;
+import com.example.bankcards.util.Money;
+import jakarta.persistence.*;
+import lombok.*;
+import lombok.experimental.FieldDefaults;
+import org.hibernate.annotations.CreationTimestamp;
+
+import java.time.LocalDateTime;
+
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@Getter
+@Setter
+@FieldDefaults(level = AccessLevel.PRIVATE)
+@Entity
+@Table(name = "card_requests")
+public class CardRequest {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "request_id")
+    Long requestId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "request_type", nullable = false)
+    CardRequestType requestType;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    CardRequestStatus status;
+
+    @Column(name = "user_id", nullable = false)
+    Long userId;
+
+    @Column(name = "card_holder")
+    String cardHolder;
+
+    @Column(name = "initial_balance", precision = 15, scale = 2)
+    Money initialBalance;
+
+    @Column(name = "card_id")
+    Long cardId;
+
+    String error;
+
+    @CreationTimestamp
+    @Column(name = "created_at", nullable = false)
+    LocalDateTime createdAt;
+
+    @Column(name = "processed_at")
+    LocalDateTime processedAt;
+
+}
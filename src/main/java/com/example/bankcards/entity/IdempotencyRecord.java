@@ -0,0 +1,43 @@
+package com.example.bankcards.entity;
+
+import com.example.bankcards.dto.enums.IdempotencyStatus;
+import jakarta.persistence.*;
+import lombok.*;
+import lombok.experimental.FieldDefaults;
+
+import java.time.LocalDateTime;
+
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@Getter
+@Setter
+@FieldDefaults(level = AccessLevel.PRIVATE)
+@Entity
+@Table(name = "idempotency_keys")
+public class IdempotencyRecord {
+
+    @Id
+    @Column(name = "idempotency_key", nullable = false)
+    String idempotencyKey;
+
+    @Column(nullable = false)
+    String operation;
+
+    @Column(name = "request_hash", nullable = false)
+    String requestHash;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    IdempotencyStatus status;
+
+    @Column(name = "response_body", columnDefinition = "TEXT")
+    String responseBody;
+
+    @Column(name = "created_at", nullable = false)
+    LocalDateTime createdAt;
+
+    @Column(name = "expires_at", nullable = false)
+    LocalDateTime expiresAt;
+
+}
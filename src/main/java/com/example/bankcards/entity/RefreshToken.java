@@ -0,0 +1,47 @@
+package com.example.bankcards.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+import lombok.experimental.FieldDefaults;
+import org.hibernate.annotations.CreationTimestamp;
+
+import java.time.LocalDateTime;
+
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@Getter
+@Setter
+@FieldDefaults(level = AccessLevel.PRIVATE)
+@Entity
+@Table(name = "refresh_tokens")
+public class RefreshToken {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "token_id")
+    Long tokenId;
+
+    @Column(name = "token_hash", nullable = false, unique = true, length = 64)
+    String tokenHash;
+
+    @Column(name = "family_id", nullable = false, length = 36)
+    String familyId;
+
+    @Column(name = "user_id", nullable = false)
+    Long userId;
+
+    @CreationTimestamp
+    @Column(name = "created_at", nullable = false)
+    LocalDateTime createdAt;
+
+    @Column(name = "expires_at", nullable = false)
+    LocalDateTime expiresAt;
+
+    @Column(name = "used_at")
+    LocalDateTime usedAt;
+
+    @Column(name = "revoked_at")
+    LocalDateTime revokedAt;
+
+}
@@ -0,0 +1,9 @@
+package com.example.bankcards.exception;
+
+public class AdminJobNotFoundException extends RuntimeException {
+
+    public AdminJobNotFoundException(String message) {
+        super(message);
+    }
+
+}
@@ -0,0 +1,7 @@
+package com.example.bankcards.exception;
+
+public class AuthOverloadedException extends RuntimeException {
+    public AuthOverloadedException(String message) {
+        super(message);
+    }
+}
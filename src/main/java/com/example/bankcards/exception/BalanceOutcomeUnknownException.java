@@ -0,0 +1,7 @@
+package com.example.bankcards.exception;
+
+public class BalanceOutcomeUnknownException extends RuntimeException {
+    public BalanceOutcomeUnknownException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
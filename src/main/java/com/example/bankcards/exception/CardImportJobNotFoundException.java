@@ -0,0 +1,9 @@
+package com.example.bankcards.exception;
+
+public class CardImportJobNotFoundException extends RuntimeException {
+
+    public CardImportJobNotFoundException(String message) {
+        super(message);
+    }
+
+}
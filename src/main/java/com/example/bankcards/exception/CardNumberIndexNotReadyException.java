@@ -0,0 +1,7 @@
+package com.example.bankcards.exception;
+
+public class CardNumberIndexNotReadyException extends RuntimeException {
+    public CardNumberIndexNotReadyException(String message) {
+        super(message);
+    }
+}
@@ -1,5 +1,7 @@
 package com.example.bankcards.exception;
 
+import org.springframework.dao.CannotAcquireLockException;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.http.HttpStatus;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.ResponseStatus;
@@ -12,7 +14,9 @@ public class GlobalExceptionHandler {
 
 
     @ExceptionHandler({UserNotFoundException.class,
-            CardNotFoundException.class})
+            CardNotFoundException.class,
+            CardImportJobNotFoundException.class,
+            AdminJobNotFoundException.class})
     @ResponseStatus(HttpStatus.BAD_REQUEST)
     public ErrorResponse notFoundException(final RuntimeException e) {
         return ErrorResponse.builder()
@@ -27,7 +31,10 @@ public class GlobalExceptionHandler {
     }
 
     @ExceptionHandler({UsernameAlreadyExistsException.class,
-            NotEnoughMoneyException.class})
+            NotEnoughMoneyException.class,
+            OptimisticLockingFailureException.class,
+            CannotAcquireLockException.class,
+            IdempotencyKeyConflictException.class})
     @ResponseStatus(HttpStatus.CONFLICT)
     public ErrorResponse usernameAlreadyExistsException(final RuntimeException e) {
         return ErrorResponse.builder()
@@ -56,7 +63,26 @@ public class GlobalExceptionHandler {
                 .build();
     }
 
-    @ExceptionHandler(CardDoesNotWorkException.class)
+    @ExceptionHandler({AuthOverloadedException.class,
+            BalanceOutcomeUnknownException.class,
+            CardNumberIndexNotReadyException.class})
+    @ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE)
+    public ErrorResponse authOverloadedException(final RuntimeException e) {
+        return ErrorResponse.builder()
+                .cause(e.getCause())
+                .stackTrace(Arrays.asList(e.getStackTrace()))
+                .httpStatus(HttpStatus.SERVICE_UNAVAILABLE.name())
+                .userMessage(e.getMessage())
+                .message("Service Unavailable")
+                .suppressed(Arrays.asList(e.getSuppressed()))
+                .localizedMessage(e.getLocalizedMessage())
+                .build();
+    }
+
+    @ExceptionHandler({CardDoesNotWorkException.class,
+            InvalidCursorException.class,
+            InvalidPageSizeException.class,
+            InvalidIdempotencyKeyException.class})
     @ResponseStatus(HttpStatus.BAD_REQUEST)
     public ErrorResponse cardDoesNotWork(final RuntimeException e) {
         return ErrorResponse.builder()
@@ -0,0 +1,7 @@
+package com.example.bankcards.exception;
+
+public class InvalidPageSizeException extends RuntimeException {
+    public InvalidPageSizeException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,44 @@
+package com.example.bankcards.mapper;
+
+import com.example.bankcards.dto.card.AdminJobDto;
+import com.example.bankcards.dto.enums.AdminJobStatus;
+import com.example.bankcards.dto.enums.AdminJobType;
+import com.example.bankcards.entity.AdminJob;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+
+
+public class AdminJobMapper {
+
+    public static AdminJob toNewJob(AdminJobType jobType) {
+        return AdminJob.builder()
+                .jobType(jobType)
+                .status(AdminJobStatus.RUNNING)
+                .build();
+    }
+
+    public static AdminJobDto toAdminJobDto(AdminJob job) {
+        return AdminJobDto.builder()
+                .jobId(job.getJobId())
+                .jobType(job.getJobType())
+                .status(job.getStatus())
+                .processedItems(job.getProcessedItems())
+                .failedItems(job.getFailedItems())
+                .chunks(job.getChunks())
+                .itemsPerSecond(itemsPerSecond(job))
+                .error(job.getError())
+                .createdAt(job.getCreatedAt())
+                .completedAt(job.getCompletedAt())
+                .build();
+    }
+
+    private static double itemsPerSecond(AdminJob job) {
+        if (job.getCreatedAt() == null) {
+            return 0;
+        }
+        LocalDateTime until = job.getCompletedAt() != null ? job.getCompletedAt() : LocalDateTime.now();
+        long millis = Duration.between(job.getCreatedAt(), until).toMillis();
+        return millis > 0 ? job.getProcessedItems() * 1000.0 / millis : 0;
+    }
+}
@@ -0,0 +1,48 @@
+package com.example.bankcards.mapper;
+
+import com.example.bankcards.dto.card.CardImportErrorDto;
+import com.example.bankcards.dto.card.CardImportJobDto;
+import com.example.bankcards.dto.enums.CardImportStatus;
+import com.example.bankcards.entity.CardImportError;
+import com.example.bankcards.entity.CardImportJob;
+import org.apache.commons.lang3.StringUtils;
+
+
+public class CardImportMapper {
+
+    private static final int MAX_MESSAGE_LENGTH = 255;
+
+    public static CardImportJob toNewJob() {
+        return CardImportJob.builder()
+                .status(CardImportStatus.RUNNING)
+                .build();
+    }
+
+    public static CardImportError toError(Long jobId, long lineNumber, String message) {
+        return CardImportError.builder()
+                .jobId(jobId)
+                .lineNumber(lineNumber)
+                .message(StringUtils.abbreviate(message, MAX_MESSAGE_LENGTH))
+                .build();
+    }
+
+    public static CardImportJobDto toCardImportJobDto(CardImportJob job) {
+        return CardImportJobDto.builder()
+                .jobId(job.getJobId())
+                .status(job.getStatus())
+                .processedRows(job.getProcessedRows())
+                .importedRows(job.getImportedRows())
+                .failedRows(job.getFailedRows())
+                .error(job.getError())
+                .createdAt(job.getCreatedAt())
+                .completedAt(job.getCompletedAt())
+                .build();
+    }
+
+    public static CardImportErrorDto toCardImportErrorDto(CardImportError error) {
+        return CardImportErrorDto.builder()
+                .lineNumber(error.getLineNumber())
+                .message(error.getMessage())
+                .build();
+    }
+}
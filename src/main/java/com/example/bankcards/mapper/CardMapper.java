@@ -1,14 +1,14 @@
 package com.example.bankcards.mapper;
 
-import com.example.bankcards.dto.card.CardDtoIn;
-import com.example.bankcards.dto.card.CardDtoOut;
-import com.example.bankcards.dto.card.CardDtoOutUser;
+import com.example.bankcards.dto.card.*;
 import com.example.bankcards.dto.enums.CardStatus;
+import com.example.bankcards.dto.enums.TransferStatus;
 import com.example.bankcards.entity.Card;
 import com.example.bankcards.entity.User;
 import com.example.bankcards.util.CardEncryptionService;
+import com.example.bankcards.util.Money;
+import org.springframework.data.domain.Slice;
 
-import java.math.BigDecimal;
 import java.util.List;
 
 
@@ -23,13 +23,12 @@ public class CardMapper {
         return CardDtoOut.builder()
                 .cardStatus(card.getStatus())
                 .userDtoOut(UserMapper.toUserDtoOut(card.getUser()))
-                .balance(card.getBalance())
+                .balance(card.getBalance().toBigDecimal())
                 .expiryDate(card.getExpiryDate())
                 .build();
     }
 
-    public static Card toCard(User user, CardDtoIn cardDtoIn) {
-        String cardNumber = CardEncryptionService.generateCardNumber();
+    public static Card toCard(User user, CardDtoIn cardDtoIn, String cardNumber) {
         return Card.builder()
                 .cardHolder(cardDtoIn.getCardHolder())
                 .user(user)
@@ -38,7 +37,7 @@ public class CardMapper {
                 .status(CardStatus.ACTIVE)
                 .balance(cardDtoIn.getInitialBalance() != null
                         ? cardDtoIn.getInitialBalance()
-                        : BigDecimal.ZERO)
+                        : Money.ZERO)
                 .build();
     }
 
@@ -48,8 +47,48 @@ public class CardMapper {
                 .cardNumberMasked(card.getCardNumberMasked())
                 .cardHolder(card.getCardHolder())
                 .status(card.getStatus())
-                .balance(card.getBalance())
+                .balance(card.getBalance().toBigDecimal())
                 .expiryDate(card.getExpiryDate())
                 .build();
     }
+
+    public static CardSliceResponse toCardSliceResponse(Slice<CardDtoOutUser> cards) {
+        List<CardDtoOutUser> content = cards.getContent();
+        String nextCursor = null;
+        if (cards.hasNext() && !content.isEmpty()) {
+            CardDtoOutUser last = content.get(content.size() - 1);
+            nextCursor = new CardCursor(last.getCreatedAt(), last.getCardId()).encode();
+        }
+        return CardSliceResponse.builder()
+                .content(content)
+                .hasNext(cards.hasNext())
+                .nextCursor(nextCursor)
+                .build();
+    }
+
+    public static TransferResult toCompletedTransferResult(int index) {
+        return TransferResult.builder()
+                .index(index)
+                .status(TransferStatus.COMPLETED)
+                .build();
+    }
+
+    public static TransferResult toRejectedTransferResult(int index, String message) {
+        return TransferResult.builder()
+                .index(index)
+                .status(TransferStatus.REJECTED)
+                .message(message)
+                .build();
+    }
+
+    public static BatchTransferResponse toBatchTransferResponse(List<TransferResult> results) {
+        long completed = results.stream()
+                .filter(result -> result.getStatus() == TransferStatus.COMPLETED)
+                .count();
+        return BatchTransferResponse.builder()
+                .completed(completed)
+                .rejected(results.size() - completed)
+                .results(results)
+                .build();
+    }
 }
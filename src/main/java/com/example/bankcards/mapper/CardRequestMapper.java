@@ -0,0 +1,38 @@
+package com.example.bankcards.mapper;
+
+import com.example.bankcards.dto.card.CardDtoIn;
+import com.example.bankcards.dto.enums.CardRequestStatus;
+import com.example.bankcards.dto.enums.CardRequestType;
+import com.example.bankcards.entity.Card;
+import com.example.bankcards.entity.CardRequest;
+
+
+public class CardRequestMapper {
+
+    public static CardRequest toCreateRequest(CardDtoIn cardDtoIn) {
+        return CardRequest.builder()
+                .requestType(CardRequestType.CREATE)
+                .status(CardRequestStatus.PENDING)
+                .userId(cardDtoIn.getUserId())
+                .cardHolder(cardDtoIn.getCardHolder())
+                .initialBalance(cardDtoIn.getInitialBalance())
+                .build();
+    }
+
+    public static CardRequest toBlockRequest(Long userId, Card card) {
+        return CardRequest.builder()
+                .requestType(CardRequestType.BLOCK)
+                .status(CardRequestStatus.PENDING)
+                .userId(userId)
+                .cardId(card.getCardId())
+                .build();
+    }
+
+    public static CardDtoIn toCardDtoIn(CardRequest cardRequest) {
+        return CardDtoIn.builder()
+                .userId(cardRequest.getUserId())
+                .cardHolder(cardRequest.getCardHolder())
+                .initialBalance(cardRequest.getInitialBalance())
+                .build();
+    }
+}
@@ -4,9 +4,10 @@ import com.example.bankcards.dto.jwt.JwtResponse;
 
 public class JwtMapper {
 
-    public static JwtResponse toJwtResponse(String token) {
+    public static JwtResponse toJwtResponse(String token, String refreshToken) {
         return JwtResponse.builder()
                 .token(token)
+                .refreshToken(refreshToken)
                 .build();
     }
 
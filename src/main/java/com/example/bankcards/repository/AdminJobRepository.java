@@ -0,0 +1,30 @@
+package com.example.bankcards.repository;
+
+import com.example.bankcards.dto.enums.AdminJobStatus;
+import com.example.bankcards.entity.AdminJob;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+
+public interface AdminJobRepository extends JpaRepository<AdminJob, Long> {
+
+    // Порции одного задания завершаются параллельно, поэтому счётчики увеличиваются в самой базе
+    @Transactional
+    @Modifying
+    @Query("update AdminJob j set j.processedItems = j.processedItems + :processed, " +
+            "j.failedItems = j.failedItems + :failed, j.chunks = j.chunks + 1 where j.jobId = :jobId")
+    int addProgress(@Param("jobId") Long jobId, @Param("processed") long processed, @Param("failed") long failed);
+
+    @Transactional
+    @Modifying
+    @Query("update AdminJob j set j.status = :status, j.error = :error, j.completedAt = :completedAt where j.jobId = :jobId")
+    int finish(@Param("jobId") Long jobId,
+               @Param("status") AdminJobStatus status,
+               @Param("error") String error,
+               @Param("completedAt") LocalDateTime completedAt);
+
+}
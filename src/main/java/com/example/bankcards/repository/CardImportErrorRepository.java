@@ -0,0 +1,12 @@
+package com.example.bankcards.repository;
+
+import com.example.bankcards.entity.CardImportError;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+public interface CardImportErrorRepository extends JpaRepository<CardImportError, Long> {
+
+    Page<CardImportError> findByJobIdOrderByLineNumber(Long jobId, Pageable pageable);
+
+}
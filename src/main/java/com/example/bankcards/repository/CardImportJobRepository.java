@@ -0,0 +1,20 @@
+package com.example.bankcards.repository;
+
+import com.example.bankcards.entity.CardImportJob;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+public interface CardImportJobRepository extends JpaRepository<CardImportJob, Long> {
+
+    @Modifying
+    @Query("update CardImportJob j set j.processedRows = j.processedRows + :processed, " +
+            "j.importedRows = j.importedRows + :imported, j.failedRows = j.failedRows + :failed " +
+            "where j.jobId = :jobId")
+    void addProgress(@Param("jobId") Long jobId,
+                     @Param("processed") long processed,
+                     @Param("imported") long imported,
+                     @Param("failed") long failed);
+
+}
@@ -0,0 +1,16 @@
+package com.example.bankcards.repository;
+
+import com.example.bankcards.entity.CardLedgerEntry;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+public interface CardLedgerEntryRepository extends JpaRepository<CardLedgerEntry, Long> {
+
+    Optional<CardLedgerEntry> findFirstByCardIdOrderByEntryIdDesc(Long cardId);
+
+    List<CardLedgerEntry> findAllByOperationId(UUID operationId);
+
+}
@@ -0,0 +1,30 @@
+package com.example.bankcards.repository;
+
+import com.example.bankcards.entity.CardReencryptionCheckpoint;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+public interface CardReencryptionCheckpointRepository extends JpaRepository<CardReencryptionCheckpoint, String> {
+
+    @Transactional
+    @Modifying
+    @Query(value = """
+            insert into card_reencryption_checkpoints (key_version, last_card_id, processed_rows, total_cards, started_at, updated_at)
+            values (:keyVersion, 0, 0, (select count(*) from cards), :now, :now)
+            on conflict (key_version) do nothing
+            """, nativeQuery = true)
+    int createIfAbsent(@Param("keyVersion") String keyVersion, @Param("now") LocalDateTime now);
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select c from CardReencryptionCheckpoint c where c.keyVersion = :keyVersion")
+    Optional<CardReencryptionCheckpoint> findForUpdate(@Param("keyVersion") String keyVersion);
+
+}
@@ -1,19 +1,84 @@
 package com.example.bankcards.repository;
 
+import com.example.bankcards.dto.card.CardDtoExport;
+import com.example.bankcards.dto.card.CardDtoOutUser;
+import com.example.bankcards.dto.card.CardIdentity;
 import com.example.bankcards.entity.Card;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 public interface CardRepository extends JpaRepository<Card, Long> {
 
-    Optional<Card> findByUserIdAndCardNumber(Long userId, String cardNumber);
+    Optional<Card> findByUserIdAndCardNumberHash(Long userId, String cardNumberHash);
 
-    Page<Card> findAllByUserId(Long userId, Pageable pageable);
+    @Query("select new com.example.bankcards.dto.card.CardDtoOutUser(" +
+            "c.cardHolder, c.expiryDate, c.status, c.balance, c.cardNumberMasked, c.createdAt, c.cardId) " +
+            "from Card c where c.user.id = :userId " +
+            "order by c.createdAt desc, c.cardId asc")
+    Slice<CardDtoOutUser> findFirstCardDtosByUserId(@Param("userId") Long userId, Pageable pageable);
 
-    Optional<Card> findByUserIdAndCardId(Long userId, Long cardId);
+    @Query("select new com.example.bankcards.dto.card.CardDtoOutUser(" +
+            "c.cardHolder, c.expiryDate, c.status, c.balance, c.cardNumberMasked, c.createdAt, c.cardId) " +
+            "from Card c where c.user.id = :userId " +
+            "and (c.createdAt < :createdAt or (c.createdAt = :createdAt and c.cardId > :cardId)) " +
+            "order by c.createdAt desc, c.cardId asc")
+    Slice<CardDtoOutUser> findCardDtosByUserIdAfterCursor(@Param("userId") Long userId,
+                                                          @Param("createdAt") LocalDateTime createdAt,
+                                                          @Param("cardId") Long cardId,
+                                                          Pageable pageable);
 
-    Optional<Card> findByCardNumberAndCardHolder(String cardNumber, String cardHolder);
+    @Query(value = "select new com.example.bankcards.dto.card.CardDtoOutUser(" +
+            "c.cardHolder, c.expiryDate, c.status, c.balance, c.cardNumberMasked) " +
+            "from Card c where c.user.id = :userId",
+            countQuery = "select count(c) from Card c where c.user.id = :userId")
+    Page<CardDtoOutUser> findCardDtosByUserId(@Param("userId") Long userId, Pageable pageable);
+
+    @Query("select new com.example.bankcards.dto.card.CardDtoOutUser(" +
+            "c.cardHolder, c.expiryDate, c.status, c.balance, c.cardNumberMasked) " +
+            "from Card c where c.user.id = :userId and c.cardId = :cardId")
+    Optional<CardDtoOutUser> findCardDtoByUserIdAndCardId(@Param("userId") Long userId, @Param("cardId") Long cardId);
+
+    Optional<Card> findByCardNumberHashAndCardHolder(String cardNumberHash, String cardHolder);
+
+    @Query("select c.cardId from Card c where c.cardNumberHash = :cardNumberHash and c.cardHolder = :cardHolder")
+    Optional<Long> findCardIdByCardNumberHashAndCardHolder(@Param("cardNumberHash") String cardNumberHash,
+                                                           @Param("cardHolder") String cardHolder);
+
+    List<CardIdentity> findAllByCardNumberHashIn(Collection<String> cardNumberHashes);
+
+    List<Card> findByCardNumberHashIsNullOrderByCardId(Pageable pageable);
+
+    boolean existsByCardNumberHashIsNull();
+
+    @Query("select c.cardNumberHash from Card c where c.cardNumberHash is not null " +
+            "group by c.cardNumberHash having count(c) > 1")
+    List<String> findDuplicateCardNumberHashes();
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select c from Card c where c.cardId in :cardIds order by c.cardId")
+    List<Card> findAllByCardIdInForUpdate(@Param("cardIds") Collection<Long> cardIds);
+
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("select new com.example.bankcards.dto.card.CardDtoExport(" +
+            "c.cardId, c.cardHolder, c.cardNumberMasked, c.expiryDate, c.status, c.balance, u.id, u.username, u.email) " +
+            "from Card c join c.user u order by c.cardId")
+    Stream<CardDtoExport> streamAllForExport();
 }
@@ -0,0 +1,42 @@
+package com.example.bankcards.repository;
+
+import com.example.bankcards.entity.CardRequest;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+public interface CardRequestRepository extends JpaRepository<CardRequest, Long> {
+
+    // Заявки, уже захваченные другим узлом, пропускаются, а не ожидаются
+    @Query(value = """
+            select * from card_requests
+            where request_type = :requestType and status = 'PENDING'
+            order by request_id
+            limit :limit
+            for update skip locked
+            """, nativeQuery = true)
+    List<CardRequest> claimPending(@Param("requestType") String requestType, @Param("limit") int limit);
+
+    @Query(value = """
+            select * from card_requests
+            where request_id = :requestId and status = 'PENDING'
+            for update skip locked
+            """, nativeQuery = true)
+    Optional<CardRequest> claimById(@Param("requestId") Long requestId);
+
+    @Transactional
+    @Modifying
+    @Query("update CardRequest r set r.status = com.example.bankcards.dto.enums.CardRequestStatus.FAILED, " +
+            "r.error = :error, r.processedAt = :processedAt " +
+            "where r.requestId = :requestId and r.status = com.example.bankcards.dto.enums.CardRequestStatus.PENDING")
+    int markFailed(@Param("requestId") Long requestId,
+                   @Param("error") String error,
+                   @Param("processedAt") LocalDateTime processedAt);
+
+}
@@ -0,0 +1,53 @@
+package com.example.bankcards.repository;
+
+import com.example.bankcards.entity.IdempotencyRecord;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+
+public interface IdempotencyRecordRepository extends JpaRepository<IdempotencyRecord, String> {
+
+    @Transactional
+    @Modifying
+    @Query(value = """
+            insert into idempotency_keys (idempotency_key, operation, request_hash, status, created_at, expires_at)
+            values (:key, :operation, :requestHash, 'IN_PROGRESS', :now, :expiresAt)
+            on conflict (idempotency_key) do update
+                set operation = excluded.operation,
+                    request_hash = excluded.request_hash,
+                    status = 'IN_PROGRESS',
+                    response_body = null,
+                    created_at = excluded.created_at,
+                    expires_at = excluded.expires_at
+                where idempotency_keys.expires_at < excluded.created_at
+            """, nativeQuery = true)
+    int claim(@Param("key") String key,
+              @Param("operation") String operation,
+              @Param("requestHash") String requestHash,
+              @Param("now") LocalDateTime now,
+              @Param("expiresAt") LocalDateTime expiresAt);
+
+    @Transactional
+    @Modifying
+    @Query("update IdempotencyRecord r set r.status = com.example.bankcards.dto.enums.IdempotencyStatus.COMPLETED, " +
+            "r.responseBody = :responseBody, r.expiresAt = :expiresAt where r.idempotencyKey = :key and r.createdAt = :claimedAt")
+    int complete(@Param("key") String key,
+                 @Param("claimedAt") LocalDateTime claimedAt,
+                 @Param("responseBody") String responseBody,
+                 @Param("expiresAt") LocalDateTime expiresAt);
+
+    @Transactional
+    @Modifying
+    @Query("delete from IdempotencyRecord r where r.idempotencyKey = :key and r.createdAt = :claimedAt")
+    int release(@Param("key") String key, @Param("claimedAt") LocalDateTime claimedAt);
+
+    @Transactional
+    @Modifying
+    @Query("delete from IdempotencyRecord r where r.expiresAt < :now")
+    int deleteExpired(@Param("now") LocalDateTime now);
+
+}
@@ -2,72 +2,117 @@ package com.example.bankcards.security;
 
 
 import com.example.bankcards.entity.User;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.security.Keys;
 import lombok.AccessLevel;
 import lombok.experimental.FieldDefaults;
+import org.apache.commons.codec.digest.DigestUtils;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
 import javax.crypto.SecretKey;
 import java.time.Duration;
+import java.time.Instant;
 import java.util.*;
 
 @Component
-@FieldDefaults(level = AccessLevel.PRIVATE)
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
 public class JwtService {
 
-    @Value("${jwt.secret}")
-    String secret;
-
-    @Value("${jwt.time}")
     Duration lifeTime;
-
-    public SecretKey getSecretKey() {
-        return Keys.hmacShaKeyFor(secret.getBytes());
+    SecretKey secretKey;
+    JwtParser parser;
+    // Ключ — SHA-256 токена, чтобы сами токены не держать в памяти; запись живёт не дольше exp токена
+    Cache<String, VerifiedToken> verifiedTokens;
+
+    public JwtService(@Value("${jwt.secret}") String secret,
+                      @Value("${jwt.time}") Duration lifeTime,
+                      @Value("${jwt.cache.maximum-size:10000}") long maximumSize) {
+        this.lifeTime = lifeTime;
+        this.secretKey = Keys.hmacShaKeyFor(secret.getBytes());
+        this.parser = Jwts.parser()
+                .verifyWith(secretKey)
+                .build();
+        this.verifiedTokens = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfter(new UntilTokenExpires())
+                .build();
     }
 
-    public String createToken(User user) {
+    /**
+     * Access-токен запоминает цепочку refresh-токенов, из которой выпущен, чтобы выход из системы мог её отозвать.
+     */
+    public String createToken(User user, String refreshFamilyId) {
         Map<String, Object> claims = new HashMap<>();
 
         claims.put("userId", user.getId());
         claims.put("role", user.getRole().name());
+        claims.put("familyId", refreshFamilyId);
 
         Date issuedDate = new Date();
         Date expiredDate = new Date(issuedDate.getTime() + lifeTime.toMillis());
 
         return Jwts.builder()
                 .setClaims(claims)
+                .id(UUID.randomUUID().toString())
                 .setSubject(user.getUsername())
                 .setIssuedAt(issuedDate)
                 .setExpiration(expiredDate)
-                .signWith(getSecretKey(), Jwts.SIG.HS256)
+                .signWith(secretKey, Jwts.SIG.HS256)
                 .compact();
     }
 
+    /**
+     * Проверяет подпись и срок действия токена. Повторные запросы с тем же токеном
+     * обслуживаются из кэша без разбора и проверки HMAC.
+     */
+    public VerifiedToken verify(String token) {
+        String tokenHash = DigestUtils.sha256Hex(token);
+        VerifiedToken cached = verifiedTokens.getIfPresent(tokenHash);
+        if (cached != null && cached.expiresAt().isAfter(Instant.now())) {
+            return cached;
+        }
 
-    public String getUsername(String token) {
-        return getClaimsFromToken(token).getSubject();
+        // Просроченный или поддельный токен не попадает в кэш: парсер бросает исключение
+        VerifiedToken verified = toVerifiedToken(parser.parseSignedClaims(token).getPayload());
+        if (verified.expiresAt() != null) {
+            verifiedTokens.put(tokenHash, verified);
+        }
+        return verified;
     }
 
-    public List<String> getRoles(String token) {
-        Claims claims = getClaimsFromToken(token);
-
+    private static VerifiedToken toVerifiedToken(Claims claims) {
         String role = claims.get("role", String.class);
-        if (role != null) {
-            return Collections.singletonList(role);
-        }
-        return Collections.emptyList();
+        List<String> roles = role != null ? Collections.singletonList(role) : Collections.emptyList();
+        Date expiration = claims.getExpiration();
+        return new VerifiedToken(claims.getId(), claims.getSubject(), roles, expiration != null ? expiration.toInstant() : null,
+                claims.get("familyId", String.class));
     }
 
+    public record VerifiedToken(String tokenId, String username, List<String> roles, Instant expiresAt, String refreshFamilyId) {
+    }
 
-    private Claims getClaimsFromToken(String token) {
-        return Jwts.parser()
-                .verifyWith(getSecretKey())
-                .build()
-                .parseSignedClaims(token)
-                .getPayload();
+    private static class UntilTokenExpires implements Expiry<String, VerifiedToken> {
+
+        @Override
+        public long expireAfterCreate(String key, VerifiedToken value, long currentTime) {
+            return Math.max(0, Duration.between(Instant.now(), value.expiresAt()).toNanos());
+        }
+
+        @Override
+        public long expireAfterUpdate(String key, VerifiedToken value, long currentTime, long currentDuration) {
+            return expireAfterCreate(key, value, currentTime);
+        }
+
+        @Override
+        public long expireAfterRead(String key, VerifiedToken value, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
     }
 
 }
@@ -0,0 +1,92 @@
+package com.example.bankcards.security;
+
+import com.example.bankcards.exception.AuthOverloadedException;
+import jakarta.annotation.PreDestroy;
+import lombok.AccessLevel;
+import lombok.experimental.FieldDefaults;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Проверяет пароли на отдельном ограниченном пуле. Принятый запрос ждёт результата в своём потоке,
+ * поэтому проверками занято не больше threads + queue-capacity потоков Tomcat;
+ * когда очередь заполнена, запрос сразу отклоняется, а не ждёт.
+ */
+@Component
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+public class PasswordVerifier {
+
+    PasswordEncoder passwordEncoder;
+    ExecutorService executor;
+    // Хэш для неизвестных пользователей: ответ занимает столько же времени, сколько с настоящим паролем
+    String dummyHash;
+
+    @Autowired
+    public PasswordVerifier(PasswordEncoder passwordEncoder,
+                            @Value("${auth.password-check.threads:4}") int threads,
+                            @Value("${auth.password-check.queue-capacity:64}") int queueCapacity) {
+        this(passwordEncoder, boundedPool(threads, queueCapacity));
+    }
+
+    PasswordVerifier(PasswordEncoder passwordEncoder, ExecutorService executor) {
+        this.passwordEncoder = passwordEncoder;
+        this.executor = executor;
+        this.dummyHash = passwordEncoder.encode("dummy-password");
+    }
+
+    /**
+     * @param encodedPassword хэш из базы или null, если пользователь не найден
+     */
+    public boolean matches(String rawPassword, String encodedPassword) {
+        String hash = encodedPassword != null ? encodedPassword : dummyHash;
+        Future<Boolean> result;
+        try {
+            result = executor.submit(() -> passwordEncoder.matches(rawPassword, hash));
+        } catch (RejectedExecutionException e) {
+            throw new AuthOverloadedException("Сервис входа перегружен, повторите попытку позже");
+        }
+        try {
+            return result.get() && encodedPassword != null;
+        } catch (InterruptedException e) {
+            result.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new AuthOverloadedException("Проверка пароля прервана");
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof RuntimeException runtimeException
+                    ? runtimeException
+                    : new IllegalStateException(e.getCause());
+        }
+    }
+
+    @PreDestroy
+    public void stop() {
+        executor.shutdownNow();
+    }
+
+    private static ExecutorService boundedPool(int threads, int queueCapacity) {
+        if (threads <= 0 || queueCapacity <= 0) {
+            throw new IllegalArgumentException("Размер пула и очереди проверки паролей должны быть положительными");
+        }
+        AtomicInteger counter = new AtomicInteger();
+        return new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "password-check-" + counter.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+    }
+
+}
@@ -2,8 +2,13 @@ package com.example.bankcards.service.auth;
 
 import com.example.bankcards.dto.jwt.JwtRequest;
 import com.example.bankcards.dto.jwt.JwtResponse;
+import com.example.bankcards.dto.jwt.RefreshTokenRequest;
 import jakarta.validation.Valid;
 
 public interface AuthService {
     JwtResponse createAuthToken(@Valid JwtRequest jwtRequest);
+
+    JwtResponse refreshAuthToken(@Valid RefreshTokenRequest refreshTokenRequest);
+
+    void logout(String accessToken);
 }
@@ -1,40 +1,162 @@
 package com.example.bankcards.service.auth;
 
+import com.example.bankcards.dto.enums.Role;
 import com.example.bankcards.dto.jwt.JwtRequest;
 import com.example.bankcards.dto.jwt.JwtResponse;
+import com.example.bankcards.dto.jwt.RefreshTokenRequest;
+import com.example.bankcards.entity.RefreshToken;
 import com.example.bankcards.entity.User;
+import com.example.bankcards.exception.AuthOverloadedException;
 import com.example.bankcards.exception.AuthTokenNotValidException;
 import com.example.bankcards.mapper.JwtMapper;
-import com.example.bankcards.repository.UserRepository;
+import com.example.bankcards.repository.RefreshTokenRepository;
 import com.example.bankcards.security.JwtService;
+import com.example.bankcards.security.PasswordVerifier;
+import com.example.bankcards.service.user.UserCache;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import lombok.AccessLevel;
 import lombok.RequiredArgsConstructor;
 import lombok.experimental.FieldDefaults;
-import org.springframework.security.authentication.AuthenticationManager;
-import org.springframework.security.authentication.BadCredentialsException;
-import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import lombok.experimental.NonFinal;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.codec.digest.DigestUtils;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Base64;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+@Slf4j
 @Service
 @RequiredArgsConstructor
 @FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
 public class AuthServiceImpl implements AuthService {
 
+    // Один индексный UPDATE и помечает токен использованным, и достаёт данные владельца для нового access-токена
+    static String ROTATE_REFRESH_TOKEN_SQL = """
+            update refresh_tokens r set used_at = ?
+            from users u
+            where u.id = r.user_id
+              and r.token_hash = ?
+              and r.used_at is null and r.revoked_at is null and r.expires_at > ?
+            returning r.family_id, u.id, u.username, u.role
+            """;
+
+    static SecureRandom RANDOM = new SecureRandom();
 
-    AuthenticationManager authenticationManager;
-    UserRepository userRepository;
+    UserCache userCache;
+    RefreshTokenRepository refreshTokenRepository;
+    PasswordVerifier passwordVerifier;
     JwtService jwtService;
+    TokenRevocationService tokenRevocationService;
+    JdbcTemplate jdbcTemplate;
+    MeterRegistry meterRegistry;
+
+    @NonFinal
+    @Value("${jwt.refresh-time:30d}")
+    Duration refreshLifeTime;
 
     @Override
     public JwtResponse createAuthToken(JwtRequest jwtRequest) {
+        Timer.Sample sample = Timer.start(meterRegistry);
+        String outcome = "error";
         try {
-            authenticationManager.authenticate(new UsernamePasswordAuthenticationToken(jwtRequest.getUsername(), jwtRequest.getPassword()));
-        } catch (BadCredentialsException e) {
-            throw new AuthTokenNotValidException(String.format("Пользователя с именем %s не существует", jwtRequest.getUsername()));
+            // Пользователь загружается один раз и для проверки пароля, и для выпуска токена
+            Optional<User> user = userCache.findByUsername(jwtRequest.getUsername());
+            String encodedPassword = user.map(User::getPassword).orElse(null);
+            if (!passwordVerifier.matches(jwtRequest.getPassword(), encodedPassword)) {
+                outcome = "bad_credentials";
+                throw new AuthTokenNotValidException(String.format("Пользователя с именем %s не существует", jwtRequest.getUsername()));
+            }
+            String familyId = UUID.randomUUID().toString();
+            String refreshToken = issueRefreshToken(user.get().getId(), familyId);
+            JwtResponse response = JwtMapper.toJwtResponse(jwtService.createToken(user.get(), familyId), refreshToken);
+            outcome = "success";
+            return response;
+        } catch (AuthOverloadedException e) {
+            outcome = "rejected";
+            throw e;
+        } finally {
+            sample.stop(Timer.builder("auth.login")
+                    .tag("outcome", outcome)
+                    .publishPercentiles(0.5, 0.95, 0.99)
+                    .register(meterRegistry));
+        }
+    }
+
+    @Override
+    @Transactional(noRollbackFor = AuthTokenNotValidException.class)
+    public JwtResponse refreshAuthToken(RefreshTokenRequest refreshTokenRequest) {
+        String tokenHash = DigestUtils.sha256Hex(refreshTokenRequest.getRefreshToken());
+        LocalDateTime now = LocalDateTime.now();
+
+        List<RotatedToken> rotated = jdbcTemplate.query(ROTATE_REFRESH_TOKEN_SQL,
+                (rs, rowNum) -> new RotatedToken(rs.getString("family_id"), User.builder()
+                        .id(rs.getLong("id"))
+                        .username(rs.getString("username"))
+                        .role(Role.valueOf(rs.getString("role")))
+                        .build()),
+                now, tokenHash, now);
+        if (rotated.isEmpty()) {
+            throw rejectRefreshToken(tokenHash, now);
         }
-        User user = userRepository.findByUsername(jwtRequest.getUsername()).get();
 
-        String token = jwtService.createToken(user);
-        return JwtMapper.toJwtResponse(token);
+        RotatedToken token = rotated.get(0);
+        String refreshToken = issueRefreshToken(token.user().getId(), token.familyId());
+        return JwtMapper.toJwtResponse(jwtService.createToken(token.user(), token.familyId()), refreshToken);
+    }
+
+    @Override
+    public void logout(String accessToken) {
+        JwtService.VerifiedToken verified = jwtService.verify(accessToken);
+        if (verified.tokenId() != null && verified.expiresAt() != null) {
+            tokenRevocationService.revoke(verified.tokenId(), verified.expiresAt());
+        }
+        // Без отзыва цепочки клиент получил бы по refresh-токену новый access-токен сразу после выхода
+        if (verified.refreshFamilyId() != null) {
+            refreshTokenRepository.revokeFamily(verified.refreshFamilyId(), LocalDateTime.now());
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${jwt.refresh-cleanup-interval:PT1H}")
+    public void deleteExpiredRefreshTokens() {
+        refreshTokenRepository.deleteExpired(LocalDateTime.now());
+    }
+
+    private AuthTokenNotValidException rejectRefreshToken(String tokenHash, LocalDateTime now) {
+        Optional<RefreshToken> stored = refreshTokenRepository.findByTokenHash(tokenHash);
+        // Повторное предъявление уже использованного токена означает утечку: отзывается вся цепочка
+        if (stored.isPresent() && stored.get().getUsedAt() != null && stored.get().getRevokedAt() == null) {
+            refreshTokenRepository.revokeFamily(stored.get().getFamilyId(), now);
+            log.warn("Повторное использование refresh-токена пользователя {}, цепочка {} отозвана",
+                    stored.get().getUserId(), stored.get().getFamilyId());
+        }
+        return new AuthTokenNotValidException("Refresh-токен недействителен");
+    }
+
+    private String issueRefreshToken(Long userId, String familyId) {
+        byte[] bytes = new byte[32];
+        RANDOM.nextBytes(bytes);
+        String refreshToken = Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+
+        refreshTokenRepository.save(RefreshToken.builder()
+                .tokenHash(DigestUtils.sha256Hex(refreshToken))
+                .familyId(familyId)
+                .userId(userId)
+                .expiresAt(LocalDateTime.now().plus(refreshLifeTime))
+                .build());
+        return refreshToken;
+    }
+
+    private record RotatedToken(String familyId, User user) {
     }
 }
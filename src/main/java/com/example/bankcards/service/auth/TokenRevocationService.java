@@ -0,0 +1,11 @@
+package com.example.bankcards.service.auth;
+
+import java.time.Instant;
+
+public interface TokenRevocationService {
+
+    void revoke(String jti, Instant expiresAt);
+
+    boolean isRevoked(String jti);
+
+}
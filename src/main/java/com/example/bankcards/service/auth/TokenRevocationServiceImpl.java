@@ -0,0 +1,86 @@
+package com.example.bankcards.service.auth;
+
+import com.example.bankcards.entity.RevokedToken;
+import com.example.bankcards.repository.RevokedTokenRepository;
+import com.example.bankcards.util.BloomFilter;
+import lombok.AccessLevel;
+import lombok.experimental.FieldDefaults;
+import lombok.experimental.NonFinal;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.List;
+
+/**
+ * Отзыв access-токенов по jti. Таблица revoked_tokens зеркалируется в фильтр Блума,
+ * поэтому для неотозванного токена запрос проверяется без обращения к базе; в базу идут только совпадения фильтра.
+ * Фильтр периодически пересобирается из таблицы: истёкшие записи выпадают, отзывы с других реплик подтягиваются.
+ */
+@Slf4j
+@Service
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+public class TokenRevocationServiceImpl implements TokenRevocationService {
+
+    RevokedTokenRepository revokedTokenRepository;
+    long expectedTokens;
+    double falsePositiveRate;
+
+    @NonFinal
+    volatile BloomFilter filter;
+
+    public TokenRevocationServiceImpl(RevokedTokenRepository revokedTokenRepository,
+                                      @Value("${jwt.revocation.expected-tokens:100000}") long expectedTokens,
+                                      @Value("${jwt.revocation.false-positive-rate:0.001}") double falsePositiveRate) {
+        this.revokedTokenRepository = revokedTokenRepository;
+        this.expectedTokens = expectedTokens;
+        this.falsePositiveRate = falsePositiveRate;
+        this.filter = new BloomFilter(expectedTokens, falsePositiveRate);
+    }
+
+    @Override
+    public void revoke(String jti, Instant expiresAt) {
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime expiry = LocalDateTime.ofInstant(expiresAt, ZoneId.systemDefault());
+        if (!expiry.isAfter(now)) {
+            return;
+        }
+        revokedTokenRepository.save(RevokedToken.builder()
+                .jti(jti)
+                .expiresAt(expiry)
+                .revokedAt(now)
+                .build());
+        filter.add(jti);
+    }
+
+    @Override
+    public boolean isRevoked(String jti) {
+        if (jti == null || !filter.mightContain(jti)) {
+            return false;
+        }
+        return revokedTokenRepository.existsById(jti);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(fixedDelayString = "${jwt.revocation.rebuild-interval:PT5M}", initialDelayString = "${jwt.revocation.rebuild-interval:PT5M}")
+    public void rebuild() {
+        LocalDateTime started = LocalDateTime.now();
+        revokedTokenRepository.deleteExpired(started);
+
+        List<String> active = revokedTokenRepository.findActiveJtis(started);
+        BloomFilter rebuilt = new BloomFilter(Math.max(expectedTokens, active.size() * 2L), falsePositiveRate);
+        active.forEach(rebuilt::add);
+        filter = rebuilt;
+
+        // Отзывы, сделанные во время пересборки, могли попасть только в старый фильтр
+        revokedTokenRepository.findRevokedSince(started.minusMinutes(1), LocalDateTime.now()).forEach(rebuilt::add);
+        log.debug("Фильтр отозванных токенов пересобран: {} записей", active.size());
+    }
+
+}
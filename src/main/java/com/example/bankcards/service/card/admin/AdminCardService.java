@@ -1,19 +1,28 @@
 package com.example.bankcards.service.card.admin;
 
+import com.example.bankcards.dto.card.AdminJobDto;
+import com.example.bankcards.dto.card.BulkBlockResponse;
 import com.example.bankcards.dto.card.CardDtoBlock;
 import com.example.bankcards.dto.card.CardDtoIn;
 import com.example.bankcards.dto.card.CardDtoOut;
 import jakarta.validation.Valid;
 
+import java.io.OutputStream;
 import java.util.List;
 
 public interface AdminCardService {
 
     List<CardDtoOut> getAllCards();
 
-    void createCardForUser();
+    void exportCards(OutputStream outputStream);
 
-    void blockCardForUsers();
+    AdminJobDto createCardForUser();
+
+    AdminJobDto blockCardForUsers();
+
+    AdminJobDto getJob(Long jobId);
+
+    BulkBlockResponse blockCards(List<CardDtoBlock> cards);
 
     void requestBlockCardForUser(Long userId, String cardNumber);
 
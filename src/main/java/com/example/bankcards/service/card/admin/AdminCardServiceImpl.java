@@ -1,43 +1,97 @@
 package com.example.bankcards.service.card.admin;
 
+import com.example.bankcards.dto.card.AdminJobDto;
+import com.example.bankcards.dto.card.BulkBlockResponse;
 import com.example.bankcards.dto.card.CardDtoBlock;
+import com.example.bankcards.dto.card.CardDtoExport;
 import com.example.bankcards.dto.card.CardDtoIn;
 import com.example.bankcards.dto.card.CardDtoOut;
+import com.example.bankcards.dto.enums.AdminJobType;
+import com.example.bankcards.dto.enums.CardRequestStatus;
+import com.example.bankcards.dto.enums.CardRequestType;
 import com.example.bankcards.dto.enums.CardStatus;
 import com.example.bankcards.entity.Card;
+import com.example.bankcards.entity.CardRequest;
 import com.example.bankcards.entity.User;
 import com.example.bankcards.exception.CardNotFoundException;
 import com.example.bankcards.mapper.CardMapper;
+import com.example.bankcards.mapper.CardRequestMapper;
 import com.example.bankcards.repository.CardRepository;
+import com.example.bankcards.repository.CardRequestRepository;
+import com.example.bankcards.service.card.admin.AdminJobRunner.ChunkResult;
 import com.example.bankcards.service.user.UserServiceImpl;
+import com.example.bankcards.util.CardNumberBlindIndex;
+import com.example.bankcards.util.CardNumberGenerator;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
 import lombok.AccessLevel;
 import lombok.RequiredArgsConstructor;
 import lombok.experimental.FieldDefaults;
 import lombok.experimental.NonFinal;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
 import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.util.*;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 
+@Slf4j
 @Service
 @FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
 @RequiredArgsConstructor
 public class AdminCardServiceImpl implements AdminCardService {
 
-    CardRepository cardRepository;
-    UserServiceImpl userService;
+    // Статус меняется одним оператором на всю порцию; returning сообщает, какие карты нашлись
+    static String BLOCK_BY_NUMBER_SQL = """
+            update cards set status = 'BLOCKED', version = version + 1
+            where (user_id, card_number_hash) in (select * from unnest(?::bigint[], ?::varchar[]))
+            returning user_id, card_number_hash
+            """;
 
-    Map<Long, String> requestForBlockingCards = new HashMap<>();
+    static String BLOCK_BY_ID_SQL = """
+            update cards set status = 'BLOCKED', version = version + 1
+            where card_id = any(?::bigint[])
+            returning card_id
+            """;
 
-    Set<CardDtoIn> requestsForCreateCard = new HashSet<>();
+    CardRepository cardRepository;
+    CardRequestRepository cardRequestRepository;
+    UserServiceImpl userService;
+    ObjectMapper objectMapper;
+    CardNumberBlindIndex cardNumberBlindIndex;
+    CardNumberGenerator cardNumberGenerator;
+    TransactionTemplate transactionTemplate;
+    JdbcTemplate jdbcTemplate;
+    AdminJobRunner adminJobRunner;
 
     @NonFinal
     @Value("${expiry.years}")
     Integer expiryYears;
 
+    @NonFinal
+    @Value("${card.requests.batch-size:100}")
+    Integer requestBatchSize;
+
+    @NonFinal
+    @Value("${card.block.chunk-size:1000}")
+    Integer blockChunkSize;
+
     @Override
     @Transactional(readOnly = true)
     public List<CardDtoOut> getAllCards() {
@@ -46,36 +100,106 @@ public class AdminCardServiceImpl implements AdminCardService {
     }
 
     @Override
-    public void createCardForUser() {
-        for (CardDtoIn cardDtoIn : requestsForCreateCard) {
-            User userForWhomCard = userService.getEntityById(cardDtoIn.getUserId());
-            Card saveCard = CardMapper.toCard(userForWhomCard, cardDtoIn);
-            saveCard.setExpiryDate(LocalDate.now().plusYears(expiryYears));
-            cardRepository.save(saveCard);
+    @Transactional(readOnly = true)
+    public void exportCards(OutputStream outputStream) {
+        ObjectWriter writer = objectMapper.writerFor(CardDtoExport.class)
+                .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+
+        try (Stream<CardDtoExport> cards = cardRepository.streamAllForExport();
+             JsonGenerator generator = objectMapper.createGenerator(outputStream)) {
+            generator.setRootValueSeparator(null);
+            for (Iterator<CardDtoExport> iterator = cards.iterator(); iterator.hasNext(); ) {
+                writer.writeValue(generator, iterator.next());
+                generator.writeRaw('\n');
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
         }
-        requestsForCreateCard.clear();
+    }
+
+    @Override
+    public AdminJobDto createCardForUser() {
+        return adminJobRunner.submit(AdminJobType.CREATE_CARDS, () -> processChunk(CardRequestType.CREATE, requests -> {
+            Map<Long, User> users = userService.getEntitiesByIds(requests.stream()
+                    .map(CardRequest::getUserId)
+                    .collect(Collectors.toSet()));
+            Iterator<String> cardNumbers = cardNumberGenerator.next(requests.size()).iterator();
+            LocalDate expiryDate = LocalDate.now().plusYears(expiryYears);
+
+            List<Card> cards = new ArrayList<>(requests.size());
+            for (CardRequest request : requests) {
+                String cardNumber = cardNumbers.next();
+                completeRequest(request, () -> {
+                    // Пользователь проверен при постановке заявки, а внешний ключ не даёт его удалить
+                    Card saveCard = CardMapper.toCard(users.get(request.getUserId()), CardRequestMapper.toCardDtoIn(request), cardNumber);
+                    saveCard.setCardNumberHash(cardNumberBlindIndex.hash(saveCard.getCardNumber()));
+                    saveCard.setExpiryDate(expiryDate);
+                    cards.add(saveCard);
+                });
+            }
+            // Идентификаторы карт берутся из последовательности с шагом 50, поэтому Hibernate вставляет их пачками
+            cardRepository.saveAll(cards);
+        }));
     }
 
 
     @Override
     public void requestBlockCardForUser(Long userId, String cardNumber) {
-        findByUserIdAndCardNumber(userId, cardNumber);
-        requestForBlockingCards.put(userId, cardNumber);
+        Card card = findByUserIdAndCardNumber(userId, cardNumber);
+        cardRequestRepository.save(CardRequestMapper.toBlockRequest(userId, card));
     }
 
 
     @Override
-    public void blockCardForUsers() {
-        for (Map.Entry<Long, String> entry : requestForBlockingCards.entrySet()) {
-            Long userId = entry.getKey();
-            String cardNumber = entry.getValue();
+    public AdminJobDto blockCardForUsers() {
+        return adminJobRunner.submit(AdminJobType.BLOCK_CARDS, () -> processChunk(CardRequestType.BLOCK, requests -> {
+            Set<Long> blockedCardIds = new HashSet<>(jdbcTemplate.query(BLOCK_BY_ID_SQL,
+                    ps -> setArray(ps, 1, "bigint", requests.stream().map(CardRequest::getCardId).toArray()),
+                    (rs, rowNum) -> rs.getLong("card_id")));
+            for (CardRequest request : requests) {
+                completeRequest(request, () -> {
+                    if (!blockedCardIds.contains(request.getCardId())) {
+                        throw new CardNotFoundException(String.format("Карта для пользователя с %d не найдена", request.getUserId()));
+                    }
+                });
+            }
+        }));
+    }
+
+    @Override
+    public AdminJobDto getJob(Long jobId) {
+        return adminJobRunner.getJob(jobId);
+    }
 
-            Card card = findByUserIdAndCardNumber(userId, cardNumber);
+    @Override
+    public BulkBlockResponse blockCards(List<CardDtoBlock> cards) {
+        List<Integer> notMatched = new ArrayList<>();
+        for (int from = 0; from < cards.size(); from += blockChunkSize) {
+            List<CardDtoBlock> chunk = cards.subList(from, Math.min(from + blockChunkSize, cards.size()));
+            Long[] userIds = new Long[chunk.size()];
+            String[] cardNumberHashes = new String[chunk.size()];
+            for (int i = 0; i < chunk.size(); i++) {
+                userIds[i] = chunk.get(i).getUserId();
+                cardNumberHashes[i] = cardNumberBlindIndex.lookupHash(chunk.get(i).getCardNumber());
+            }
 
-            card.setStatus(CardStatus.BLOCKED);
-            cardRepository.save(card);
+            Set<String> blocked = new HashSet<>(jdbcTemplate.query(BLOCK_BY_NUMBER_SQL,
+                    ps -> {
+                        setArray(ps, 1, "bigint", userIds);
+                        setArray(ps, 2, "varchar", cardNumberHashes);
+                    },
+                    (rs, rowNum) -> blockKey(rs.getLong("user_id"), rs.getString("card_number_hash"))));
+            for (int i = 0; i < chunk.size(); i++) {
+                if (!blocked.contains(blockKey(userIds[i], cardNumberHashes[i]))) {
+                    notMatched.add(from + i);
+                }
+            }
         }
-        requestForBlockingCards.clear();
+        return BulkBlockResponse.builder()
+                .requested(cards.size())
+                .blocked(cards.size() - notMatched.size())
+                .notMatched(notMatched)
+                .build();
     }
 
     @Override
@@ -87,12 +211,90 @@ public class AdminCardServiceImpl implements AdminCardService {
 
     @Override
     public void requestCreateCardForUser(CardDtoIn cardDtoIn) {
-        requestsForCreateCard.add(cardDtoIn);
+        userService.checkUserExists(cardDtoIn.getUserId());
+        cardRequestRepository.save(CardRequestMapper.toCreateRequest(cardDtoIn));
+    }
+
+    private ChunkResult processChunk(CardRequestType requestType, Consumer<List<CardRequest>> processor) {
+        // Каждая порция обрабатывается в своей транзакции: захваченные строки заблокированы до коммита,
+        // и параллельные потоки задания и другие узлы через SKIP LOCKED берут следующие заявки
+        List<Long> claimedIds = new ArrayList<>();
+        try {
+            return transactionTemplate.execute(status -> {
+                List<CardRequest> requests = cardRequestRepository.claimPending(requestType.name(), requestBatchSize);
+                if (requests.isEmpty()) {
+                    return new ChunkResult(0, 0, false);
+                }
+                requests.forEach(request -> claimedIds.add(request.getRequestId()));
+                processor.accept(requests);
+                cardRequestRepository.saveAll(requests);
+                int failed = (int) requests.stream()
+                        .filter(request -> request.getStatus() == CardRequestStatus.FAILED)
+                        .count();
+                return new ChunkResult(requests.size(), failed, requests.size() == requestBatchSize);
+            });
+        } catch (RuntimeException e) {
+            if (claimedIds.isEmpty()) {
+                throw e;
+            }
+            // Порция откатилась целиком; заявки повторяются по одной, чтобы одна плохая строка
+            // не возвращала в очередь всю порцию и не роняла задание
+            log.warn("Порция заявок {} откатилась, заявки обрабатываются по одной", requestType, e);
+            int processed = 0;
+            int failed = 0;
+            for (Long requestId : claimedIds) {
+                CardRequestStatus status = processOne(requestId, processor);
+                if (status != null) {
+                    processed++;
+                    failed += status == CardRequestStatus.FAILED ? 1 : 0;
+                }
+            }
+            return new ChunkResult(processed, failed, claimedIds.size() == requestBatchSize);
+        }
+    }
+
+    // Возвращает итоговый статус заявки или null, если её уже забрал другой поток
+    private CardRequestStatus processOne(Long requestId, Consumer<List<CardRequest>> processor) {
+        try {
+            return transactionTemplate.execute(status -> cardRequestRepository.claimById(requestId)
+                    .map(request -> {
+                        processor.accept(List.of(request));
+                        cardRequestRepository.save(request);
+                        return request.getStatus();
+                    })
+                    .orElse(null));
+        } catch (RuntimeException e) {
+            log.warn("Заявка {} не обработана", requestId, e);
+            int marked = cardRequestRepository.markFailed(requestId,
+                    StringUtils.abbreviate(e.getMessage(), 255), LocalDateTime.now());
+            return marked > 0 ? CardRequestStatus.FAILED : null;
+        }
+    }
+
+    private void completeRequest(CardRequest request, Runnable action) {
+        try {
+            action.run();
+            request.setStatus(CardRequestStatus.COMPLETED);
+        } catch (CardNotFoundException e) {
+            request.setStatus(CardRequestStatus.FAILED);
+            request.setError(e.getMessage());
+        }
+        request.setProcessedAt(LocalDateTime.now());
     }
 
 
+    private static void setArray(PreparedStatement ps, int index, String type, Object[] values) throws SQLException {
+        ps.setArray(index, ps.getConnection().createArrayOf(type, values));
+    }
+
+    private static String blockKey(Long userId, String cardNumberHash) {
+        return userId + ":" + cardNumberHash;
+    }
+
     private Card findByUserIdAndCardNumber(Long userId, String cardNumber) {
-        return cardRepository.findByUserIdAndCardNumber(userId, cardNumber)
+        return Optional.ofNullable(cardNumber)
+                .map(cardNumberBlindIndex::lookupHash)
+                .flatMap(cardNumberHash -> cardRepository.findByUserIdAndCardNumberHash(userId, cardNumberHash))
                 .orElseThrow(() -> new CardNotFoundException(String.format("Карта для пользователя с %d не найдена", userId)));
     }
 
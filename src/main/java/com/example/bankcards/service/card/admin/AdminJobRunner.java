@@ -0,0 +1,117 @@
+package com.example.bankcards.service.card.admin;
+
+import com.example.bankcards.dto.card.AdminJobDto;
+import com.example.bankcards.dto.enums.AdminJobStatus;
+import com.example.bankcards.dto.enums.AdminJobType;
+import com.example.bankcards.entity.AdminJob;
+import com.example.bankcards.exception.AdminJobNotFoundException;
+import com.example.bankcards.mapper.AdminJobMapper;
+import com.example.bankcards.repository.AdminJobRepository;
+import jakarta.annotation.PreDestroy;
+import lombok.AccessLevel;
+import lombok.experimental.FieldDefaults;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Выполняет задания администратора порциями на ограниченном пуле потоков.
+ * Каждый поток повторяет порцию, пока она сообщает о наличии работы; порция сама открывает свою транзакцию.
+ */
+@Slf4j
+@Component
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+public class AdminJobRunner {
+
+    AdminJobRepository adminJobRepository;
+    Executor executor;
+    int workers;
+
+    @Autowired
+    public AdminJobRunner(AdminJobRepository adminJobRepository,
+                          @Value("${card.jobs.workers:4}") int workers) {
+        this(adminJobRepository, Executors.newFixedThreadPool(workers, workerFactory()), workers);
+    }
+
+    AdminJobRunner(AdminJobRepository adminJobRepository, Executor executor, int workers) {
+        if (workers <= 0) {
+            throw new IllegalArgumentException("Число потоков для заданий должно быть положительным");
+        }
+        this.adminJobRepository = adminJobRepository;
+        this.executor = executor;
+        this.workers = workers;
+    }
+
+    public AdminJobDto submit(AdminJobType jobType, Supplier<ChunkResult> chunk) {
+        AdminJob job = adminJobRepository.save(AdminJobMapper.toNewJob(jobType));
+        AdminJobDto submitted = AdminJobMapper.toAdminJobDto(job);
+
+        CompletableFuture<?>[] tasks = new CompletableFuture<?>[workers];
+        for (int i = 0; i < workers; i++) {
+            tasks[i] = CompletableFuture.runAsync(() -> drain(job.getJobId(), chunk), executor);
+        }
+        CompletableFuture.allOf(tasks).whenComplete((ignored, error) -> finish(job.getJobId(), error));
+        return submitted;
+    }
+
+    public AdminJobDto getJob(Long jobId) {
+        return adminJobRepository.findById(jobId)
+                .map(AdminJobMapper::toAdminJobDto)
+                .orElseThrow(() -> new AdminJobNotFoundException(String.format("Задания с id %d не существует", jobId)));
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (executor instanceof ExecutorService executorService) {
+            executorService.shutdownNow();
+        }
+    }
+
+    private void drain(Long jobId, Supplier<ChunkResult> chunk) {
+        ChunkResult result;
+        do {
+            result = chunk.get();
+            if (result.processed() > 0) {
+                adminJobRepository.addProgress(jobId, result.processed(), result.failed());
+            }
+        } while (result.hasMore() && !Thread.currentThread().isInterrupted());
+    }
+
+    private void finish(Long jobId, Throwable error) {
+        if (error == null) {
+            adminJobRepository.finish(jobId, AdminJobStatus.COMPLETED, null, LocalDateTime.now());
+            return;
+        }
+        Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+        log.error("Задание {} завершилось с ошибкой", jobId, cause);
+        adminJobRepository.finish(jobId, AdminJobStatus.FAILED, StringUtils.abbreviate(cause.getMessage(), 255), LocalDateTime.now());
+    }
+
+    private static ThreadFactory workerFactory() {
+        AtomicInteger counter = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, "admin-job-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    /**
+     * Итог одной порции: сколько элементов обработано, сколько из них с ошибкой и осталась ли работа.
+     */
+    public record ChunkResult(int processed, int failed, boolean hasMore) {
+    }
+
+}
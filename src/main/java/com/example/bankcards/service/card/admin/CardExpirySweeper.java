@@ -0,0 +1,110 @@
+package com.example.bankcards.service.card.admin;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.AccessLevel;
+import lombok.experimental.FieldDefaults;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Переводит в EXPIRED карты с истёкшим сроком действия, порциями по одному UPDATE.
+ */
+@Slf4j
+@Component
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+public class CardExpirySweeper {
+
+    // Ключ advisory-блокировки, общий для всех реплик
+    static long LOCK_KEY = 7_311_200_418L;
+
+    static String TRY_LOCK_SQL = "select pg_try_advisory_lock(?)";
+
+    static String UNLOCK_SQL = "select pg_advisory_unlock(?)";
+
+    static String EXPIRE_CHUNK_SQL = """
+            update cards set status = 'EXPIRED', version = version + 1
+            where card_id in (
+                select card_id from cards
+                where expiry_date < ? and status <> 'EXPIRED'
+                limit ?
+                for update skip locked)
+            """;
+
+    JdbcTemplate jdbcTemplate;
+    Timer sweepTimer;
+    Counter expiredCards;
+    int chunkSize;
+
+    public CardExpirySweeper(JdbcTemplate jdbcTemplate,
+                             MeterRegistry meterRegistry,
+                             @Value("${card.expiry.chunk-size:1000}") int chunkSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.sweepTimer = meterRegistry.timer("card.expiry.sweep");
+        this.expiredCards = meterRegistry.counter("card.expiry.expired");
+        this.chunkSize = chunkSize;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(cron = "${card.expiry.cron:0 1 0 * * *}")
+    public void sweep() {
+        // Сессионная блокировка держится на одном соединении весь обход, а каждая порция коммитится сразу
+        jdbcTemplate.execute((ConnectionCallback<Void>) connection -> {
+            if (!lock(connection, TRY_LOCK_SQL)) {
+                log.debug("Проверка сроков действия карт уже выполняется на другой реплике");
+                return null;
+            }
+            try {
+                long started = System.nanoTime();
+                int expired = expireAll(connection, LocalDate.now());
+                sweepTimer.record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+                if (expired > 0) {
+                    log.info("Срок действия истёк у {} карт", expired);
+                }
+            } finally {
+                lock(connection, UNLOCK_SQL);
+            }
+            return null;
+        });
+    }
+
+    private int expireAll(Connection connection, LocalDate today) throws SQLException {
+        int total = 0;
+        int updated;
+        try (PreparedStatement ps = connection.prepareStatement(EXPIRE_CHUNK_SQL)) {
+            do {
+                ps.setDate(1, Date.valueOf(today));
+                ps.setInt(2, chunkSize);
+                updated = ps.executeUpdate();
+                expiredCards.increment(updated);
+                total += updated;
+            } while (updated == chunkSize);
+        }
+        return total;
+    }
+
+    private static boolean lock(Connection connection, String sql) throws SQLException {
+        try (PreparedStatement ps = connection.prepareStatement(sql)) {
+            ps.setLong(1, LOCK_KEY);
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next() && rs.getBoolean(1);
+            }
+        }
+    }
+
+}
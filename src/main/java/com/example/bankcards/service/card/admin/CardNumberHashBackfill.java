@@ -0,0 +1,87 @@
+package com.example.bankcards.service.card.admin;
+
+import com.example.bankcards.dto.card.CardIdentity;
+import com.example.bankcards.entity.Card;
+import com.example.bankcards.repository.CardRepository;
+import com.example.bankcards.util.CardNumberBlindIndex;
+import jakarta.annotation.PostConstruct;
+import lombok.AccessLevel;
+import lombok.RequiredArgsConstructor;
+import lombok.experimental.FieldDefaults;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+
+/**
+ * Заполняет слепой индекс у карт, созданных до его появления. До конца заполнения поиск по индексу закрыт,
+ * а совпадающие номера старых карт выводятся в журнал: уникальный индекс по хэшу создаётся миграцией
+ * только после того, как дубликатов не останется.
+ */
+@Slf4j
+@Component
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+@RequiredArgsConstructor
+public class CardNumberHashBackfill implements ApplicationRunner {
+
+    static int CHUNK_SIZE = 500;
+
+    CardRepository cardRepository;
+    CardNumberBlindIndex cardNumberBlindIndex;
+    TransactionTemplate transactionTemplate;
+
+    @PostConstruct
+    public void holdLookups() {
+        // Веб-сервер принимает запросы раньше, чем запускаются ApplicationRunner, поэтому поиск закрывается заранее
+        if (cardRepository.existsByCardNumberHashIsNull()) {
+            cardNumberBlindIndex.markBackfillStarted();
+        }
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        int total = 0;
+        int updated;
+        do {
+            updated = transactionTemplate.execute(status -> backfillChunk());
+            total += updated;
+        } while (updated == CHUNK_SIZE);
+
+        if (total > 0) {
+            log.info("Слепой индекс заполнен для {} карт", total);
+        }
+        reportDuplicates();
+        cardNumberBlindIndex.markBackfillFinished();
+    }
+
+    private void reportDuplicates() {
+        List<String> duplicateHashes = cardRepository.findDuplicateCardNumberHashes();
+        if (duplicateHashes.isEmpty()) {
+            return;
+        }
+        Map<String, List<Long>> cardIds = cardRepository.findAllByCardNumberHashIn(duplicateHashes).stream()
+                .collect(Collectors.groupingBy(CardIdentity::getCardNumberHash, TreeMap::new,
+                        Collectors.mapping(CardIdentity::getCardId, Collectors.toList())));
+        cardIds.values().forEach(ids -> log.warn("У карт {} совпадает номер", ids));
+        log.warn("Номера совпадают у {} групп карт: уникальный индекс номеров не будет создан, пока дубликаты не устранены",
+                cardIds.size());
+    }
+
+    private int backfillChunk() {
+        // Обработанные карты выпадают из выборки, поэтому всегда читается первая страница
+        List<Card> cards = cardRepository.findByCardNumberHashIsNullOrderByCardId(PageRequest.of(0, CHUNK_SIZE));
+        for (Card card : cards) {
+            card.setCardNumberHash(cardNumberBlindIndex.hash(card.getCardNumber()));
+        }
+        cardRepository.saveAll(cards);
+        return cards.size();
+    }
+
+}
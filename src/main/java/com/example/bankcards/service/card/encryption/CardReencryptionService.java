@@ -0,0 +1,11 @@
+package com.example.bankcards.service.card.encryption;
+
+import com.example.bankcards.dto.card.CardReencryptionStatus;
+
+public interface CardReencryptionService {
+
+    CardReencryptionStatus startReencryption();
+
+    CardReencryptionStatus getReencryptionStatus();
+
+}
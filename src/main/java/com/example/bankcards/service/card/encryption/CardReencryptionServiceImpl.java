@@ -0,0 +1,201 @@
+package com.example.bankcards.service.card.encryption;
+
+import com.example.bankcards.dto.card.CardReencryptionStatus;
+import com.example.bankcards.dto.enums.ReencryptionState;
+import com.example.bankcards.entity.CardReencryptionCheckpoint;
+import com.example.bankcards.repository.CardReencryptionCheckpointRepository;
+import com.example.bankcards.util.CardEncryptionService;
+import jakarta.annotation.PreDestroy;
+import lombok.AccessLevel;
+import lombok.experimental.FieldDefaults;
+import lombok.experimental.NonFinal;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Фоновое перешифрование номеров карт активным ключом.
+ * Карты обходятся порциями по возрастанию card_id, после каждой порции в той же транзакции
+ * сохраняется контрольная точка, поэтому после перезапуска обход продолжается с места остановки.
+ * Число карт считается один раз при создании контрольной точки, а не при каждом запросе статуса.
+ */
+@Service
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+public class CardReencryptionServiceImpl implements CardReencryptionService {
+
+    static String SELECT_CHUNK = "select card_id, card_number from cards where card_id > ? order by card_id limit ?";
+
+    // Условие по старому значению не даёт затереть номер, который успели перезаписать параллельно
+    static String UPDATE_CARD_NUMBER = "update cards set card_number = ? where card_id = ? and card_number = ?";
+
+    CardEncryptionService cardEncryptionService;
+    CardReencryptionCheckpointRepository checkpointRepository;
+    JdbcTemplate jdbcTemplate;
+    TransactionTemplate transactionTemplate;
+    int chunkSize;
+    long chunkIntervalNanos;
+
+    ExecutorService executor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "card-reencryption");
+        thread.setDaemon(true);
+        return thread;
+    });
+    AtomicBoolean running = new AtomicBoolean();
+
+    @NonFinal
+    volatile String lastError;
+
+    public CardReencryptionServiceImpl(CardEncryptionService cardEncryptionService,
+                                       CardReencryptionCheckpointRepository checkpointRepository,
+                                       JdbcTemplate jdbcTemplate,
+                                       TransactionTemplate transactionTemplate,
+                                       @Value("${card.reencryption.chunk-size:500}") int chunkSize,
+                                       @Value("${card.reencryption.rows-per-second:2000}") int rowsPerSecond) {
+        if (chunkSize <= 0 || rowsPerSecond <= 0) {
+            throw new IllegalArgumentException("Размер порции и скорость перешифрования должны быть положительными");
+        }
+        this.cardEncryptionService = cardEncryptionService;
+        this.checkpointRepository = checkpointRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.chunkSize = chunkSize;
+        this.chunkIntervalNanos = TimeUnit.SECONDS.toNanos(chunkSize) / rowsPerSecond;
+    }
+
+    @Override
+    public CardReencryptionStatus startReencryption() {
+        String keyVersion = cardEncryptionService.getActiveKeyVersion();
+        checkpointRepository.createIfAbsent(keyVersion, LocalDateTime.now());
+        submit(keyVersion);
+        return getReencryptionStatus();
+    }
+
+    @Override
+    public CardReencryptionStatus getReencryptionStatus() {
+        String keyVersion = cardEncryptionService.getActiveKeyVersion();
+        Optional<CardReencryptionCheckpoint> checkpoint = checkpointRepository.findById(keyVersion);
+
+        CardReencryptionStatus.CardReencryptionStatusBuilder status = CardReencryptionStatus.builder()
+                .keyVersion(keyVersion)
+                .state(stateOf(checkpoint.orElse(null)))
+                .error(lastError);
+        checkpoint.ifPresent(value -> status
+                .lastCardId(value.getLastCardId())
+                .processedRows(value.getProcessedRows())
+                .totalCards(value.getTotalCards())
+                .startedAt(value.getStartedAt())
+                .updatedAt(value.getUpdatedAt())
+                .completedAt(value.getCompletedAt()));
+        return status.build();
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void resumeUnfinished() {
+        String keyVersion = cardEncryptionService.getActiveKeyVersion();
+        checkpointRepository.findById(keyVersion)
+                .filter(checkpoint -> checkpoint.getCompletedAt() == null)
+                .ifPresent(checkpoint -> submit(keyVersion));
+    }
+
+    @PreDestroy
+    public void stop() {
+        executor.shutdownNow();
+    }
+
+    void reencryptAll(String keyVersion) {
+        boolean completed = false;
+        while (!completed && !Thread.currentThread().isInterrupted()) {
+            long started = System.nanoTime();
+            completed = Boolean.TRUE.equals(transactionTemplate.execute(status -> reencryptChunk(keyVersion)));
+
+            // Пауза между порциями ограничивает скорость и не держит соединение из пула
+            long pause = chunkIntervalNanos - (System.nanoTime() - started);
+            if (!completed && pause > 0) {
+                try {
+                    TimeUnit.NANOSECONDS.sleep(pause);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+    }
+
+    boolean reencryptChunk(String keyVersion) {
+        CardReencryptionCheckpoint checkpoint = checkpointRepository.findForUpdate(keyVersion)
+                .orElseThrow(() -> new IllegalStateException(String.format("Нет контрольной точки перешифрования для ключа %s", keyVersion)));
+        if (checkpoint.getCompletedAt() != null) {
+            return true;
+        }
+
+        List<StoredCardNumber> chunk = jdbcTemplate.query(SELECT_CHUNK,
+                (rs, rowNum) -> new StoredCardNumber(rs.getLong("card_id"), rs.getString("card_number")),
+                checkpoint.getLastCardId(), chunkSize);
+
+        List<Object[]> updates = new ArrayList<>(chunk.size());
+        for (StoredCardNumber card : chunk) {
+            if (!cardEncryptionService.isEncryptedWithActiveKey(card.cardNumber())) {
+                String reencrypted = cardEncryptionService.encrypt(cardEncryptionService.decrypt(card.cardNumber()));
+                updates.add(new Object[]{reencrypted, card.cardId(), card.cardNumber()});
+            }
+        }
+        if (!updates.isEmpty()) {
+            jdbcTemplate.batchUpdate(UPDATE_CARD_NUMBER, updates);
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        if (!chunk.isEmpty()) {
+            checkpoint.setLastCardId(chunk.get(chunk.size() - 1).cardId());
+            checkpoint.setProcessedRows(checkpoint.getProcessedRows() + chunk.size());
+        }
+        checkpoint.setUpdatedAt(now);
+        if (chunk.size() < chunkSize) {
+            checkpoint.setCompletedAt(now);
+        }
+        return checkpoint.getCompletedAt() != null;
+    }
+
+    private void submit(String keyVersion) {
+        if (!running.compareAndSet(false, true)) {
+            return;
+        }
+        lastError = null;
+        executor.execute(() -> {
+            try {
+                reencryptAll(keyVersion);
+            } catch (RuntimeException e) {
+                lastError = e.getMessage();
+            } finally {
+                running.set(false);
+            }
+        });
+    }
+
+    private ReencryptionState stateOf(CardReencryptionCheckpoint checkpoint) {
+        if (running.get()) {
+            return ReencryptionState.RUNNING;
+        }
+        if (checkpoint == null) {
+            return ReencryptionState.NOT_STARTED;
+        }
+        if (checkpoint.getCompletedAt() != null) {
+            return ReencryptionState.COMPLETED;
+        }
+        return lastError != null ? ReencryptionState.FAILED : ReencryptionState.PAUSED;
+    }
+
+    private record StoredCardNumber(long cardId, String cardNumber) {
+    }
+
+}
@@ -0,0 +1,18 @@
+package com.example.bankcards.service.card.engine;
+
+import com.example.bankcards.dto.card.BatchTransferResponse;
+import com.example.bankcards.dto.card.CardDtoOutUser;
+import com.example.bankcards.dto.card.RequestUpdateBalance;
+import com.example.bankcards.dto.card.TransferRequest;
+
+import java.util.List;
+
+public interface BalanceEngine {
+
+    CardDtoOutUser topUp(RequestUpdateBalance requestUpdateBalance);
+
+    void transfer(TransferRequest transferRequest);
+
+    BatchTransferResponse transferBatch(List<TransferRequest> transferRequests);
+
+}
@@ -0,0 +1,591 @@
+package com.example.bankcards.service.card.engine;
+
+import com.example.bankcards.dto.card.BatchTransferResponse;
+import com.example.bankcards.dto.card.CardDtoOutUser;
+import com.example.bankcards.dto.card.RequestUpdateBalance;
+import com.example.bankcards.dto.card.TransferRequest;
+import com.example.bankcards.dto.card.TransferResult;
+import com.example.bankcards.dto.enums.CardStatus;
+import com.example.bankcards.dto.enums.LedgerEntryType;
+import com.example.bankcards.dto.enums.LedgerOperationType;
+import com.example.bankcards.entity.Card;
+import com.example.bankcards.exception.BalanceOutcomeUnknownException;
+import com.example.bankcards.exception.CardDoesNotWorkException;
+import com.example.bankcards.exception.CardNotFoundException;
+import com.example.bankcards.exception.NotEnoughMoneyException;
+import com.example.bankcards.mapper.CardMapper;
+import com.example.bankcards.repository.CardRepository;
+import com.example.bankcards.util.CardNumberBlindIndex;
+import com.example.bankcards.util.Money;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.AccessLevel;
+import lombok.experimental.FieldDefaults;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.function.Consumer;
+
+/**
+ * Балансы активных карт хранятся в памяти шарда-владельца; состояние карты читает и меняет только поток её шарда.
+ * Шард применяет пачку команд и сам фиксирует её одной транзакцией, прежде чем брать следующую, поэтому
+ * при ошибке фиксации в памяти не остаётся изменений, на которые опирались бы более поздние команды.
+ * В базу пишутся приращения баланса с проверкой версии: если карту изменили в обход движка (блокировка,
+ * истечение срока), фиксация падает, карты группы перечитываются, а её команды повторяются по одной.
+ * Перевод между шардами не останавливает ни одного писателя: он идёт командами через оба шарда,
+ * а придерживается только карта первой ноги до ответа второго шарда.
+ */
+@Component
+@ConditionalOnProperty(name = "card.engine.mode", havingValue = "in-memory")
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+public class InMemoryBalanceEngine implements BalanceEngine {
+
+    static String UPDATE_BALANCE = "update cards set balance = balance + ?, version = version + 1 where card_id = ? and version = ?";
+
+    static String INSERT_LEDGER_ENTRY = "insert into card_ledger_entries " +
+            "(entry_id, operation_id, operation_type, entry_type, card_id, amount, balance_after, created_at) " +
+            "values (nextval('card_ledger_entries_seq'), ?, ?, ?, ?, ?, ?, ?)";
+
+    CardRepository cardRepository;
+    CardNumberBlindIndex cardNumberBlindIndex;
+    JdbcTemplate jdbcTemplate;
+    TransactionTemplate transactionTemplate;
+    Duration acknowledgeTimeout;
+    Shard[] shards;
+    Cache<CardKey, Long> cardIds;
+
+    public InMemoryBalanceEngine(CardRepository cardRepository,
+                                 CardNumberBlindIndex cardNumberBlindIndex,
+                                 JdbcTemplate jdbcTemplate,
+                                 TransactionTemplate transactionTemplate,
+                                 @Value("${card.engine.shards:4}") int shardCount,
+                                 @Value("${card.engine.ring-size:8192}") int ringSize,
+                                 @Value("${card.engine.max-batch:512}") int maxBatch,
+                                 @Value("${card.engine.max-cards-per-shard:100000}") int maxCardsPerShard,
+                                 @Value("${card.engine.acknowledge-timeout:5s}") Duration acknowledgeTimeout) {
+        this.cardRepository = cardRepository;
+        this.cardNumberBlindIndex = cardNumberBlindIndex;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.acknowledgeTimeout = acknowledgeTimeout;
+        this.shards = new Shard[shardCount];
+        for (int i = 0; i < shardCount; i++) {
+            shards[i] = new Shard(i, ringSize, maxBatch, maxCardsPerShard);
+        }
+        this.cardIds = Caffeine.newBuilder()
+                .maximumSize((long) maxCardsPerShard * shardCount)
+                .build();
+    }
+
+    @PostConstruct
+    public void start() {
+        for (Shard shard : shards) {
+            shard.start();
+        }
+    }
+
+    @PreDestroy
+    public void stop() {
+        for (Shard shard : shards) {
+            shard.stop();
+        }
+    }
+
+    @Override
+    public CardDtoOutUser topUp(RequestUpdateBalance requestUpdateBalance) {
+        Long cardId = resolveCardId(requestUpdateBalance.getCardNumber(), requestUpdateBalance.getCardHolder());
+        Money amount = requestUpdateBalance.getAddedAmount();
+        UUID operationId = UUID.randomUUID();
+        Shard shard = shardOf(cardId);
+
+        CompletableFuture<CardDtoOutUser> result = new CompletableFuture<>();
+        shard.submit(result, List.of(cardId), group -> {
+            CardState card = shard.load(cardId);
+            checkCardWorks(card);
+
+            card.balance = card.balance.plus(amount);
+            group.record(operationId, LedgerOperationType.TOP_UP, null, amount.negate(), null);
+            group.record(operationId, LedgerOperationType.TOP_UP, card, amount, card.balance);
+
+            CardDtoOutUser response = card.toCardDtoOutUser();
+            group.onCommit(() -> result.complete(response));
+        });
+        return await(result);
+    }
+
+    @Override
+    public void transfer(TransferRequest transferRequest) {
+        await(submitTransfer(transferRequest));
+    }
+
+    @Override
+    public BatchTransferResponse transferBatch(List<TransferRequest> transferRequests) {
+        List<CompletableFuture<Void>> pending = new ArrayList<>(transferRequests.size());
+        for (TransferRequest transferRequest : transferRequests) {
+            try {
+                pending.add(submitTransfer(transferRequest));
+            } catch (CardNotFoundException e) {
+                pending.add(CompletableFuture.failedFuture(e));
+            }
+        }
+
+        List<TransferResult> results = new ArrayList<>(pending.size());
+        for (int index = 0; index < pending.size(); index++) {
+            try {
+                await(pending.get(index));
+                results.add(CardMapper.toCompletedTransferResult(index));
+            } catch (CardNotFoundException | CardDoesNotWorkException | NotEnoughMoneyException e) {
+                results.add(CardMapper.toRejectedTransferResult(index, e.getMessage()));
+            }
+        }
+        return CardMapper.toBatchTransferResponse(results);
+    }
+
+    private CompletableFuture<Void> submitTransfer(TransferRequest transferRequest) {
+        Long fromId = resolveCardId(transferRequest.getCardNumberFrom(), transferRequest.getCardHolderFrom());
+        Long toId = resolveCardId(transferRequest.getCardNumberTo(), transferRequest.getCardHolderTo());
+        Money amount = transferRequest.getAddedAmount();
+        UUID operationId = UUID.randomUUID();
+
+        Shard source = shardOf(fromId);
+        Shard destination = shardOf(toId);
+        CompletableFuture<Void> result = new CompletableFuture<>();
+
+        if (source == destination) {
+            source.submit(result, List.of(fromId, toId), group -> {
+                applyTransfer(group, source.load(fromId), source.load(toId), amount, operationId);
+                group.onCommit(() -> result.complete(null));
+            });
+            return result;
+        }
+
+        // Перевод между шардами проходит в две фазы через их писателей: шард с меньшим индексом проверяет
+        // свою ногу и придерживает карту, а шард с большим индексом проверяет вторую ногу и фиксирует обе
+        // одной транзакцией. Карта придерживается только на шаге к шарду с большим индексом,
+        // поэтому встречные переводы не ждут друг друга по кругу
+        boolean sourceFirst = source.index < destination.index;
+        Leg first = sourceFirst ? new Leg(fromId, amount.negate()) : new Leg(toId, amount);
+        Leg second = sourceFirst ? new Leg(toId, amount) : new Leg(fromId, amount.negate());
+        Shard firstShard = sourceFirst ? source : destination;
+        Shard secondShard = sourceFirst ? destination : source;
+
+        firstShard.submit(result, List.of(first.cardId()), group -> {
+            CardState card = firstShard.load(first.cardId());
+            checkLeg(card, first);
+            firstShard.hold(group, card);
+            // Вторая фаза уходит после фиксации группы, когда версия придержанной карты уже совпадает с базой
+            group.onCommit(() -> {
+                long heldVersion = card.version;
+                Money heldBalanceAfter = card.balance.plus(first.amount());
+                secondShard.send(new Command(List.of(second.cardId()), secondGroup -> applySecondLeg(secondGroup,
+                        firstShard, card.cardId, heldVersion, heldBalanceAfter, first, secondShard, second, operationId, result),
+                        result));
+            });
+        });
+        return result;
+    }
+
+    private void applySecondLeg(GroupCommit group, Shard firstShard, Long heldCardId, long heldVersion, Money heldBalanceAfter,
+                                Leg first, Shard secondShard, Leg second, UUID operationId, CompletableFuture<Void> result) {
+        CardState card;
+        try {
+            card = secondShard.load(second.cardId());
+            checkLeg(card, second);
+        } catch (RuntimeException e) {
+            firstShard.send(firstShard.release(heldCardId, false));
+            throw e;
+        }
+
+        card.balance = card.balance.plus(second.amount());
+        group.record(operationId, LedgerOperationType.TRANSFER, card, second.amount(), card.balance);
+        group.recordForeign(operationId, heldCardId, heldVersion, first.amount(), heldBalanceAfter);
+        group.onCommit(() -> {
+            firstShard.send(firstShard.settle(heldCardId, first.amount()));
+            result.complete(null);
+        });
+        // Если транзакция не прошла, придержанная карта перечитывается: её могли изменить в обход движка
+        group.onFailure(() -> firstShard.send(firstShard.release(heldCardId, true)));
+    }
+
+    private void checkLeg(CardState card, Leg leg) {
+        checkCardWorks(card);
+        if (leg.amount().signum() < 0 && leg.amount().abs().isGreaterThan(card.balance)) {
+            throw new NotEnoughMoneyException(String.format("В карте пользователя %s недостаточно средств для перевода", card.cardHolder));
+        }
+    }
+
+    private void applyTransfer(GroupCommit group, CardState from, CardState to, Money amount, UUID operationId) {
+        checkCardWorks(from);
+        if (amount.isGreaterThan(from.balance)) {
+            throw new NotEnoughMoneyException(String.format("В карте пользователя %s недостаточно средств для перевода", from.cardHolder));
+        }
+        checkCardWorks(to);
+
+        from.balance = from.balance.minus(amount);
+        to.balance = to.balance.plus(amount);
+        group.record(operationId, LedgerOperationType.TRANSFER, from, amount.negate(), from.balance);
+        group.record(operationId, LedgerOperationType.TRANSFER, to, amount, to.balance);
+    }
+
+    private void checkCardWorks(CardState card) {
+        if (card.status == CardStatus.BLOCKED || card.status == CardStatus.EXPIRED) {
+            throw new CardDoesNotWorkException(String.format("Карта пользователя %s не рабочая", card.cardHolder));
+        }
+    }
+
+    private Long resolveCardId(String cardNumber, String cardHolder) {
+        CardKey key = new CardKey(cardNumber, cardHolder);
+        Long cardId = cardIds.getIfPresent(key);
+        if (cardId != null) {
+            return cardId;
+        }
+        cardId = cardRepository.findCardIdByCardNumberHashAndCardHolder(cardNumberBlindIndex.lookupHash(cardNumber), cardHolder)
+                .orElseThrow(() -> new CardNotFoundException(String.format("Карты с пользователем %s не существует", cardHolder)));
+        cardIds.put(key, cardId);
+        return cardId;
+    }
+
+    private Shard shardOf(Long cardId) {
+        return shards[(int) Math.floorMod(cardId, (long) shards.length)];
+    }
+
+    private <T> T await(CompletableFuture<T> future) {
+        try {
+            return future.get(acknowledgeTimeout.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new IllegalStateException(e.getCause());
+        } catch (TimeoutException e) {
+            // Команда уже в очереди шарда и может быть зафиксирована позже: исход клиенту неизвестен
+            throw new BalanceOutcomeUnknownException("Операция с балансом не подтверждена вовремя, её результат неизвестен", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new BalanceOutcomeUnknownException("Ожидание подтверждения операции прервано, её результат неизвестен", e);
+        }
+    }
+
+    private record CardKey(String cardNumber, String cardHolder) {
+    }
+
+    private record Leg(Long cardId, Money amount) {
+    }
+
+    /**
+     * Команда шарда. Пока хотя бы одна из её карт придержана переводом между шардами, команда откладывается;
+     * служебные команды без {@code result} не входят в группу и не повторяются при её откате.
+     */
+    private record Command(List<Long> cardIds, Consumer<GroupCommit> action, CompletableFuture<?> result) {
+    }
+
+    private static final class CardState {
+
+        final Long cardId;
+        final String cardHolder;
+        final String cardNumberMasked;
+        final LocalDate expiryDate;
+        final CardStatus status;
+        Money balance;
+        long version;
+        // Карта ждёт, пока второй шард зафиксирует перевод; команды с ней копятся в parked
+        boolean held;
+        final List<Command> parked = new ArrayList<>();
+
+        CardState(Card card) {
+            this.cardId = card.getCardId();
+            this.cardHolder = card.getCardHolder();
+            this.cardNumberMasked = card.getCardNumberMasked();
+            this.expiryDate = card.getExpiryDate();
+            this.status = card.getStatus();
+            this.balance = card.getBalance();
+            this.version = card.getVersion();
+        }
+
+        CardDtoOutUser toCardDtoOutUser() {
+            return CardDtoOutUser.builder()
+                    .cardHolder(cardHolder)
+                    .cardNumberMasked(cardNumberMasked)
+                    .expiryDate(expiryDate)
+                    .status(status)
+                    .balance(balance.toBigDecimal())
+                    .build();
+        }
+    }
+
+    private static final class GroupCommit {
+
+        final Map<Long, CardState> cards = new LinkedHashMap<>();
+        final Map<Long, Money> deltas = new HashMap<>();
+        final List<Object[]> foreignUpdates = new ArrayList<>();
+        final List<Object[]> ledgerEntries = new ArrayList<>();
+        final List<CardState> holds = new ArrayList<>();
+        final List<Command> commands = new ArrayList<>();
+        final List<Runnable> acknowledgements = new ArrayList<>();
+        final List<Runnable> failures = new ArrayList<>();
+
+        void record(UUID operationId, LedgerOperationType operationType, CardState card, Money signedAmount, Money balanceAfter) {
+            if (card != null) {
+                cards.put(card.cardId, card);
+                deltas.merge(card.cardId, signedAmount, Money::plus);
+            }
+            addLedgerEntry(operationId, operationType, card == null ? null : card.cardId, signedAmount, balanceAfter);
+        }
+
+        /**
+         * Нога перевода по карте другого шарда: её состояние в памяти меняет только шард-владелец после фиксации.
+         */
+        void recordForeign(UUID operationId, Long cardId, long version, Money signedAmount, Money balanceAfter) {
+            foreignUpdates.add(new Object[]{signedAmount.toBigDecimal(), cardId, version});
+            addLedgerEntry(operationId, LedgerOperationType.TRANSFER, cardId, signedAmount, balanceAfter);
+        }
+
+        private void addLedgerEntry(UUID operationId, LedgerOperationType operationType, Long cardId, Money signedAmount, Money balanceAfter) {
+            ledgerEntries.add(new Object[]{
+                    operationId,
+                    operationType.name(),
+                    (signedAmount.signum() < 0 ? LedgerEntryType.DEBIT : LedgerEntryType.CREDIT).name(),
+                    cardId,
+                    signedAmount.abs().toBigDecimal(),
+                    balanceAfter == null ? null : balanceAfter.toBigDecimal(),
+                    LocalDateTime.now()
+            });
+        }
+
+        void onCommit(Runnable acknowledgement) {
+            acknowledgements.add(acknowledgement);
+        }
+
+        void onFailure(Runnable failure) {
+            failures.add(failure);
+        }
+
+        List<Object[]> balanceUpdates() {
+            List<Object[]> updates = new ArrayList<>(cards.size() + foreignUpdates.size());
+            cards.forEach((cardId, card) -> updates.add(new Object[]{deltas.get(cardId).toBigDecimal(), cardId, card.version}));
+            updates.addAll(foreignUpdates);
+            return updates;
+        }
+    }
+
+    private final class Shard implements Runnable {
+
+        final int index;
+        final BlockingQueue<Command> ring;
+        // Команды от других шардов не ограничены размером кольца, чтобы писатели не ждали друг друга
+        final Queue<Command> mailbox = new ConcurrentLinkedQueue<>();
+        final int maxBatch;
+        final int maxCards;
+        final Thread writer;
+        // Порядок доступа нужен для вытеснения давно не использованных карт
+        final Map<Long, CardState> cards = new LinkedHashMap<>(16, 0.75f, true);
+        // Очередь писателя: сюда же возвращаются отложенные команды, когда их карта освобождается
+        final Deque<Command> batch = new ArrayDeque<>();
+        volatile boolean running = true;
+
+        Shard(int index, int ringSize, int maxBatch, int maxCards) {
+            this.index = index;
+            this.ring = new ArrayBlockingQueue<>(ringSize);
+            this.maxBatch = maxBatch;
+            this.maxCards = maxCards;
+            this.writer = new Thread(this, "balance-shard-" + index);
+        }
+
+        void start() {
+            writer.start();
+        }
+
+        void stop() {
+            running = false;
+            try {
+                writer.join(acknowledgeTimeout.toMillis());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        void submit(CompletableFuture<?> result, List<Long> cardIds, Consumer<GroupCommit> action) {
+            try {
+                ring.put(new Command(cardIds, action, result));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Постановка операции в очередь прервана", e);
+            }
+        }
+
+        void send(Command command) {
+            mailbox.add(command);
+            // Будит писателя, если он ждёт на пустом кольце; занятое кольцо он и так скоро разберёт
+            ring.offer(new Command(List.of(), group -> {
+            }, null));
+        }
+
+        void hold(GroupCommit group, CardState card) {
+            card.held = true;
+            group.holds.add(card);
+        }
+
+        Command settle(Long cardId, Money amount) {
+            return new Command(List.of(), group -> {
+                CardState card = cards.get(cardId);
+                card.balance = card.balance.plus(amount);
+                card.version++;
+                unhold(card);
+            }, null);
+        }
+
+        Command release(Long cardId, boolean reload) {
+            return new Command(List.of(), group -> {
+                CardState card = cards.get(cardId);
+                unhold(card);
+                if (reload) {
+                    cards.remove(cardId);
+                }
+            }, null);
+        }
+
+        private void unhold(CardState card) {
+            card.held = false;
+            for (int i = card.parked.size() - 1; i >= 0; i--) {
+                batch.addFirst(card.parked.get(i));
+            }
+            card.parked.clear();
+        }
+
+        CardState load(Long cardId) {
+            CardState card = cards.get(cardId);
+            if (card == null) {
+                card = cardRepository.findById(cardId)
+                        .map(CardState::new)
+                        .orElseThrow(() -> new CardNotFoundException(String.format("Карты с id %d не существует", cardId)));
+                cards.put(cardId, card);
+            }
+            return card;
+        }
+
+        @Override
+        public void run() {
+            while (running || !ring.isEmpty() || !mailbox.isEmpty() || !batch.isEmpty()) {
+                if (batch.isEmpty() && mailbox.isEmpty()) {
+                    try {
+                        Command first = ring.poll(50, TimeUnit.MILLISECONDS);
+                        if (first == null) {
+                            continue;
+                        }
+                        batch.add(first);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        return;
+                    }
+                }
+                for (Command command = mailbox.poll(); command != null; command = mailbox.poll()) {
+                    batch.add(command);
+                }
+                ring.drainTo(batch, Math.max(0, maxBatch - batch.size()));
+
+                GroupCommit group = new GroupCommit();
+                for (int executed = 0; executed < maxBatch && !batch.isEmpty(); executed++) {
+                    execute(batch.poll(), group);
+                }
+                RuntimeException failure = commit(group);
+                if (failure instanceof OptimisticLockingFailureException) {
+                    retryOneByOne(group);
+                } else if (failure != null) {
+                    fail(group, failure);
+                }
+                evictLeastRecentlyUsed();
+            }
+        }
+
+        private void execute(Command command, GroupCommit group) {
+            for (Long cardId : command.cardIds()) {
+                CardState card = cards.get(cardId);
+                if (card != null && card.held) {
+                    card.parked.add(command);
+                    return;
+                }
+            }
+            try {
+                command.action().accept(group);
+                if (command.result() != null) {
+                    group.commands.add(command);
+                }
+            } catch (RuntimeException e) {
+                if (command.result() != null) {
+                    command.result().completeExceptionally(e);
+                }
+            }
+        }
+
+        private RuntimeException commit(GroupCommit group) {
+            if (!group.ledgerEntries.isEmpty()) {
+                try {
+                    transactionTemplate.executeWithoutResult(status -> {
+                        int[] updated = jdbcTemplate.batchUpdate(UPDATE_BALANCE, group.balanceUpdates());
+                        for (int rows : updated) {
+                            if (rows == 0) {
+                                throw new OptimisticLockingFailureException("Карта изменена в обход движка балансов, повторите запрос");
+                            }
+                        }
+                        jdbcTemplate.batchUpdate(INSERT_LEDGER_ENTRY, group.ledgerEntries);
+                    });
+                } catch (RuntimeException e) {
+                    return e;
+                }
+            }
+            group.cards.values().forEach(card -> card.version++);
+            group.acknowledgements.forEach(Runnable::run);
+            return null;
+        }
+
+        /**
+         * Конфликт версии одной карты не должен ронять всю пачку: карты группы перечитываются из базы,
+         * а команды повторяются по одной, так что отказ получают только команды с изменённой картой.
+         */
+        private void retryOneByOne(GroupCommit group) {
+            discard(group);
+            for (Command command : group.commands) {
+                GroupCommit single = new GroupCommit();
+                execute(command, single);
+                RuntimeException failure = commit(single);
+                if (failure != null) {
+                    fail(single, failure);
+                }
+            }
+        }
+
+        private void fail(GroupCommit group, RuntimeException failure) {
+            discard(group);
+            group.failures.forEach(Runnable::run);
+            group.commands.forEach(command -> command.result().completeExceptionally(failure));
+        }
+
+        private void discard(GroupCommit group) {
+            // Изменения группы не попали в базу: карты выбрасываются из памяти и перечитываются при следующем обращении
+            group.holds.forEach(this::unhold);
+            group.cards.keySet().forEach(cards::remove);
+        }
+
+        private void evictLeastRecentlyUsed() {
+            Iterator<CardState> iterator = cards.values().iterator();
+            while (cards.size() > maxCards && iterator.hasNext()) {
+                // Придержанную карту нельзя вытеснить: шард-владелец применит к ней итог перевода
+                if (!iterator.next().held) {
+                    iterator.remove();
+                }
+            }
+        }
+    }
+
+}
@@ -0,0 +1,210 @@
+package com.example.bankcards.service.card.engine;
+
+import com.example.bankcards.dto.card.BatchTransferResponse;
+import com.example.bankcards.dto.card.CardDtoOutUser;
+import com.example.bankcards.dto.card.CardIdentity;
+import com.example.bankcards.dto.card.RequestUpdateBalance;
+import com.example.bankcards.dto.card.TransferRequest;
+import com.example.bankcards.dto.card.TransferResult;
+import com.example.bankcards.dto.enums.CardStatus;
+import com.example.bankcards.entity.Card;
+import com.example.bankcards.exception.CardDoesNotWorkException;
+import com.example.bankcards.exception.CardNotFoundException;
+import com.example.bankcards.exception.NotEnoughMoneyException;
+import com.example.bankcards.mapper.CardMapper;
+import com.example.bankcards.repository.CardRepository;
+import com.example.bankcards.service.card.ledger.CardLedger;
+import com.example.bankcards.util.CardLockStripes;
+import com.example.bankcards.util.CardNumberBlindIndex;
+import com.example.bankcards.util.OptimisticRetryExecutor;
+import lombok.AccessLevel;
+import lombok.RequiredArgsConstructor;
+import lombok.experimental.FieldDefaults;
+import lombok.experimental.NonFinal;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+
+@Component
+@ConditionalOnProperty(name = "card.engine.mode", havingValue = "jpa", matchIfMissing = true)
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+@RequiredArgsConstructor
+public class JpaBalanceEngine implements BalanceEngine {
+
+    CardRepository cardRepository;
+    CardLockStripes cardLockStripes;
+    OptimisticRetryExecutor retryExecutor;
+    CardLedger cardLedger;
+    CardNumberBlindIndex cardNumberBlindIndex;
+
+    @NonFinal
+    @Value("${card.lock.max-batch-stripes:16}")
+    int maxBatchStripes;
+
+    @Override
+    public CardDtoOutUser topUp(RequestUpdateBalance requestUpdateBalance) {
+        return retryExecutor.execute("updateBalance", () -> {
+            Card updateCard = getCardByCardNumberAndCardHolder(requestUpdateBalance.getCardNumber(), requestUpdateBalance.getCardHolder());
+
+            if (updateCard.getStatus() == CardStatus.BLOCKED || updateCard.getStatus() == CardStatus.EXPIRED) {
+                throw new CardDoesNotWorkException(String.format("Карта пользователя %s не рабочая", requestUpdateBalance.getCardHolder()));
+            }
+
+            cardLedger.topUp(updateCard, requestUpdateBalance.getAddedAmount());
+            cardRepository.save(updateCard);
+            return CardMapper.toCardDtoOutUser(updateCard);
+        });
+    }
+
+    @Override
+    public void transfer(TransferRequest transferRequest) {
+        Long fromId = getCardIdByCardNumberAndCardHolder(transferRequest.getCardNumberFrom(), transferRequest.getCardHolderFrom());
+        Long toId = getCardIdByCardNumberAndCardHolder(transferRequest.getCardNumberTo(), transferRequest.getCardHolderTo());
+        List<Long> cardIds = Stream.of(fromId, toId).distinct().sorted().toList();
+
+        cardLockStripes.executeLocked(cardIds, () -> retryExecutor.execute("transfer", () -> {
+            Map<Long, Card> lockedCards = lockCards(cardIds);
+
+            Card from = getLockedCard(lockedCards, fromId, transferRequest.getCardHolderFrom());
+            Card to = getLockedCard(lockedCards, toId, transferRequest.getCardHolderTo());
+
+            applyTransfer(from, to, transferRequest);
+
+            cardRepository.saveAll(List.of(from, to));
+            return null;
+        }));
+    }
+
+    @Override
+    public BatchTransferResponse transferBatch(List<TransferRequest> transferRequests) {
+        Map<CardKey, Long> cardIds = resolveCardIds(transferRequests);
+        List<TransferResult> results = new ArrayList<>(transferRequests.size());
+
+        // Пакет делится на подпакеты по порядку переводов: каждый держит не больше maxBatchStripes страйпов,
+        // поэтому большой пакет не останавливает одиночные переводы по всем картам сразу
+        int from = 0;
+        while (from < transferRequests.size()) {
+            Set<Integer> stripes = new HashSet<>();
+            Set<Long> lockOrder = new TreeSet<>();
+            int to = from;
+            while (to < transferRequests.size()) {
+                List<Long> itemCardIds = itemCardIds(cardIds, transferRequests.get(to));
+                Set<Integer> itemStripes = new HashSet<>(stripes);
+                itemCardIds.forEach(cardId -> itemStripes.add(cardLockStripes.stripeIndex(cardId)));
+                if (to > from && itemStripes.size() > maxBatchStripes) {
+                    break;
+                }
+                stripes = itemStripes;
+                lockOrder.addAll(itemCardIds);
+                to++;
+            }
+            results.addAll(transferSubBatch(transferRequests, from, to, cardIds, List.copyOf(lockOrder)));
+            from = to;
+        }
+        return CardMapper.toBatchTransferResponse(results);
+    }
+
+    private List<TransferResult> transferSubBatch(List<TransferRequest> transferRequests, int from, int to,
+                                                  Map<CardKey, Long> cardIds, List<Long> lockOrder) {
+        return cardLockStripes.executeLocked(lockOrder, () -> retryExecutor.execute("batchTransfer", () -> {
+            Map<Long, Card> lockedCards = lockCards(lockOrder);
+            List<TransferResult> results = new ArrayList<>(to - from);
+
+            for (int index = from; index < to; index++) {
+                TransferRequest transferRequest = transferRequests.get(index);
+                try {
+                    Card fromCard = getLockedCard(lockedCards,
+                            cardIds.get(new CardKey(transferRequest.getCardNumberFrom(), transferRequest.getCardHolderFrom())),
+                            transferRequest.getCardHolderFrom());
+                    Card toCard = getLockedCard(lockedCards,
+                            cardIds.get(new CardKey(transferRequest.getCardNumberTo(), transferRequest.getCardHolderTo())),
+                            transferRequest.getCardHolderTo());
+
+                    applyTransfer(fromCard, toCard, transferRequest);
+                    results.add(CardMapper.toCompletedTransferResult(index));
+                } catch (CardNotFoundException | CardDoesNotWorkException | NotEnoughMoneyException e) {
+                    results.add(CardMapper.toRejectedTransferResult(index, e.getMessage()));
+                }
+            }
+
+            cardRepository.saveAll(lockedCards.values());
+            return results;
+        }));
+    }
+
+    private List<Long> itemCardIds(Map<CardKey, Long> cardIds, TransferRequest transferRequest) {
+        return Stream.of(
+                        cardIds.get(new CardKey(transferRequest.getCardNumberFrom(), transferRequest.getCardHolderFrom())),
+                        cardIds.get(new CardKey(transferRequest.getCardNumberTo(), transferRequest.getCardHolderTo())))
+                .filter(Objects::nonNull)
+                .toList();
+    }
+
+    private void applyTransfer(Card from, Card to, TransferRequest transferRequest) {
+        checkCardWorks(from);
+
+        if (transferRequest.getAddedAmount().isGreaterThan(from.getBalance())) {
+            throw new NotEnoughMoneyException(String.format("В карте пользователя %s недостаточно средств для перевода", from.getCardHolder()));
+        }
+
+        checkCardWorks(to);
+
+        cardLedger.transfer(from, to, transferRequest.getAddedAmount());
+    }
+
+    private void checkCardWorks(Card card) {
+        if (card.getStatus() == CardStatus.BLOCKED || card.getStatus() == CardStatus.EXPIRED) {
+            throw new CardDoesNotWorkException(String.format("Карта пользователя %s не рабочая", card.getCardHolder()));
+        }
+    }
+
+    private Map<Long, Card> lockCards(List<Long> cardIds) {
+        if (cardIds.isEmpty()) {
+            return Map.of();
+        }
+        return cardRepository.findAllByCardIdInForUpdate(cardIds).stream()
+                .collect(Collectors.toMap(Card::getCardId, Function.identity(), (first, second) -> first, LinkedHashMap::new));
+    }
+
+    private Card getLockedCard(Map<Long, Card> lockedCards, Long cardId, String cardHolder) {
+        Card card = cardId == null ? null : lockedCards.get(cardId);
+        if (card == null) {
+            throw new CardNotFoundException(String.format("Карты с пользователем %s не существует", cardHolder));
+        }
+        return card;
+    }
+
+    private Map<CardKey, Long> resolveCardIds(List<TransferRequest> transferRequests) {
+        Map<String, String> cardNumbersByHash = new HashMap<>();
+        for (TransferRequest transferRequest : transferRequests) {
+            cardNumbersByHash.computeIfAbsent(cardNumberBlindIndex.lookupHash(transferRequest.getCardNumberFrom()), hash -> transferRequest.getCardNumberFrom());
+            cardNumbersByHash.computeIfAbsent(cardNumberBlindIndex.lookupHash(transferRequest.getCardNumberTo()), hash -> transferRequest.getCardNumberTo());
+        }
+
+        Map<CardKey, Long> cardIds = new HashMap<>();
+        for (CardIdentity card : cardRepository.findAllByCardNumberHashIn(cardNumbersByHash.keySet())) {
+            cardIds.put(new CardKey(cardNumbersByHash.get(card.getCardNumberHash()), card.getCardHolder()), card.getCardId());
+        }
+        return cardIds;
+    }
+
+    private Card getCardByCardNumberAndCardHolder(String cardNumber, String cardHolder) {
+        return cardRepository.findByCardNumberHashAndCardHolder(cardNumberBlindIndex.lookupHash(cardNumber), cardHolder)
+                .orElseThrow(() -> new CardNotFoundException(String.format("Карты с пользователем %s не существует", cardHolder)));
+    }
+
+    private Long getCardIdByCardNumberAndCardHolder(String cardNumber, String cardHolder) {
+        return cardRepository.findCardIdByCardNumberHashAndCardHolder(cardNumberBlindIndex.lookupHash(cardNumber), cardHolder)
+                .orElseThrow(() -> new CardNotFoundException(String.format("Карты с пользователем %s не существует", cardHolder)));
+    }
+
+    private record CardKey(String cardNumber, String cardHolder) {
+    }
+
+}
@@ -0,0 +1,17 @@
+package com.example.bankcards.service.card.importing;
+
+import com.example.bankcards.dto.card.CardImportErrorDto;
+import com.example.bankcards.dto.card.CardImportJobDto;
+import org.springframework.data.domain.Page;
+
+import java.io.InputStream;
+
+public interface CardImportService {
+
+    CardImportJobDto importCards(InputStream csv);
+
+    CardImportJobDto getImportJob(Long jobId);
+
+    Page<CardImportErrorDto> getImportErrors(Long jobId, int page, int size);
+
+}
@@ -0,0 +1,376 @@
+package com.example.bankcards.service.card.importing;
+
+import com.example.bankcards.dto.card.CardDtoIn;
+import com.example.bankcards.dto.card.CardImportErrorDto;
+import com.example.bankcards.dto.card.CardImportJobDto;
+import com.example.bankcards.dto.enums.CardImportStatus;
+import com.example.bankcards.entity.Card;
+import com.example.bankcards.entity.CardImportError;
+import com.example.bankcards.entity.CardImportJob;
+import com.example.bankcards.entity.User;
+import com.example.bankcards.exception.CardImportJobNotFoundException;
+import com.example.bankcards.mapper.CardImportMapper;
+import com.example.bankcards.mapper.CardMapper;
+import com.example.bankcards.repository.CardImportErrorRepository;
+import com.example.bankcards.repository.CardImportJobRepository;
+import com.example.bankcards.repository.CardRepository;
+import com.example.bankcards.service.user.UserServiceImpl;
+import com.example.bankcards.util.CardNumberBlindIndex;
+import com.example.bankcards.util.CardNumberGenerator;
+import com.example.bankcards.util.Money;
+import jakarta.annotation.PreDestroy;
+import lombok.AccessLevel;
+import lombok.experimental.FieldDefaults;
+import lombok.experimental.NonFinal;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+/**
+ * Потоковый импорт карт из CSV со строками {@code userId,cardHolder,initialBalance}.
+ * Запрос только принимает файл, строки разбираются и вставляются в фоне; ход импорта виден по заданию.
+ */
+@Slf4j
+@Service
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+public class CardImportServiceImpl implements CardImportService {
+
+    static int CARD_HOLDER_MAX_LENGTH = 100;
+
+    CardImportJobRepository cardImportJobRepository;
+    CardImportErrorRepository cardImportErrorRepository;
+    CardRepository cardRepository;
+    UserServiceImpl userService;
+    CardNumberBlindIndex cardNumberBlindIndex;
+    CardNumberGenerator cardNumberGenerator;
+    TransactionTemplate transactionTemplate;
+    Executor executor;
+
+    @NonFinal
+    @Value("${expiry.years}")
+    Integer expiryYears;
+
+    @NonFinal
+    @Value("${card.import.chunk-size:1000}")
+    Integer chunkSize;
+
+    @Autowired
+    public CardImportServiceImpl(CardImportJobRepository cardImportJobRepository,
+                                 CardImportErrorRepository cardImportErrorRepository,
+                                 CardRepository cardRepository,
+                                 UserServiceImpl userService,
+                                 CardNumberBlindIndex cardNumberBlindIndex,
+                                 CardNumberGenerator cardNumberGenerator,
+                                 TransactionTemplate transactionTemplate,
+                                 @Value("${card.import.workers:2}") int workers) {
+        this(cardImportJobRepository, cardImportErrorRepository, cardRepository, userService, cardNumberBlindIndex,
+                cardNumberGenerator, transactionTemplate, Executors.newFixedThreadPool(workers, workerFactory()));
+    }
+
+    CardImportServiceImpl(CardImportJobRepository cardImportJobRepository,
+                          CardImportErrorRepository cardImportErrorRepository,
+                          CardRepository cardRepository,
+                          UserServiceImpl userService,
+                          CardNumberBlindIndex cardNumberBlindIndex,
+                          CardNumberGenerator cardNumberGenerator,
+                          TransactionTemplate transactionTemplate,
+                          Executor executor) {
+        this.cardImportJobRepository = cardImportJobRepository;
+        this.cardImportErrorRepository = cardImportErrorRepository;
+        this.cardRepository = cardRepository;
+        this.userService = userService;
+        this.cardNumberBlindIndex = cardNumberBlindIndex;
+        this.cardNumberGenerator = cardNumberGenerator;
+        this.transactionTemplate = transactionTemplate;
+        this.executor = executor;
+    }
+
+    @Override
+    public CardImportJobDto importCards(InputStream csv) {
+        CardImportJob job = cardImportJobRepository.save(CardImportMapper.toNewJob());
+
+        // Поток запроса только сохраняет тело во временный файл; разбор и вставка идут на пуле импорта
+        Path file = null;
+        try {
+            file = Files.createTempFile("card-import-" + job.getJobId() + "-", ".csv");
+            Files.copy(csv, file, StandardCopyOption.REPLACE_EXISTING);
+            CardImportJobDto accepted = CardImportMapper.toCardImportJobDto(job);
+            Path spooled = file;
+            executor.execute(() -> importFile(job, spooled));
+            return accepted;
+        } catch (IOException | RuntimeException e) {
+            deleteQuietly(file);
+            fail(job, e);
+            return CardImportMapper.toCardImportJobDto(job);
+        }
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public CardImportJobDto getImportJob(Long jobId) {
+        return cardImportJobRepository.findById(jobId)
+                .map(CardImportMapper::toCardImportJobDto)
+                .orElseThrow(() -> new CardImportJobNotFoundException(String.format("Импорта с id %d не существует", jobId)));
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public Page<CardImportErrorDto> getImportErrors(Long jobId, int page, int size) {
+        if (!cardImportJobRepository.existsById(jobId)) {
+            throw new CardImportJobNotFoundException(String.format("Импорта с id %d не существует", jobId));
+        }
+        return cardImportErrorRepository.findByJobIdOrderByLineNumber(jobId, PageRequest.of(page, size))
+                .map(CardImportMapper::toCardImportErrorDto);
+    }
+
+    void importFile(CardImportJob job, Path file) {
+        // В памяти держится только текущая порция строк; каждая порция сохраняется в своей транзакции
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(Files.newInputStream(file), StandardCharsets.UTF_8))) {
+            List<CsvRow> chunk = new ArrayList<>(chunkSize);
+            long lineNumber = 0;
+            for (String line; (line = reader.readLine()) != null; ) {
+                lineNumber++;
+                if (lineNumber == 1) {
+                    line = StringUtils.removeStart(line, "\uFEFF");
+                }
+                if (line.isBlank() || (lineNumber == 1 && isHeader(line))) {
+                    continue;
+                }
+                chunk.add(new CsvRow(lineNumber, line));
+                if (chunk.size() == chunkSize) {
+                    importChunk(job, chunk);
+                    chunk.clear();
+                }
+            }
+            if (!chunk.isEmpty()) {
+                importChunk(job, chunk);
+            }
+            job.setStatus(CardImportStatus.COMPLETED);
+            job.setCompletedAt(LocalDateTime.now());
+            cardImportJobRepository.save(job);
+        } catch (IOException | RuntimeException e) {
+            // Любая ошибка, а не только ввода-вывода и БД, закрывает задание, иначе оно навсегда осталось бы RUNNING
+            fail(job, e);
+        } finally {
+            deleteQuietly(file);
+        }
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (executor instanceof ExecutorService executorService) {
+            executorService.shutdownNow();
+        }
+    }
+
+    private void fail(CardImportJob job, Exception e) {
+        log.error("Импорт карт {} прерван", job.getJobId(), e);
+        job.setStatus(CardImportStatus.FAILED);
+        job.setError(StringUtils.abbreviate(e.getMessage(), 255));
+        job.setCompletedAt(LocalDateTime.now());
+        cardImportJobRepository.save(job);
+    }
+
+    private static void deleteQuietly(Path file) {
+        if (file == null) {
+            return;
+        }
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            log.warn("Не удалось удалить временный файл импорта {}", file, e);
+        }
+    }
+
+    private void importChunk(CardImportJob job, List<CsvRow> rows) {
+        List<CardImportError> parseErrors = new ArrayList<>();
+        Map<CsvRow, CardDtoIn> parsed = new LinkedHashMap<>();
+        for (CsvRow row : rows) {
+            try {
+                parsed.put(row, parse(row.line()));
+            } catch (IllegalArgumentException e) {
+                parseErrors.add(CardImportMapper.toError(job.getJobId(), row.lineNumber(), e.getMessage()));
+            }
+        }
+
+        int imported;
+        try {
+            imported = saveChunk(job, rows.size(), parsed, parseErrors);
+        } catch (RuntimeException e) {
+            // Порция откатилась целиком; строки повторяются по одной, чтобы одна плохая строка
+            // не теряла остальные строки порции и не роняла импорт
+            log.warn("Порция импорта {} откатилась, строки вставляются по одной", job.getJobId(), e);
+            imported = 0;
+            if (!parseErrors.isEmpty()) {
+                saveChunk(job, parseErrors.size(), Map.of(), parseErrors);
+            }
+            for (Map.Entry<CsvRow, CardDtoIn> entry : parsed.entrySet()) {
+                imported += importRow(job, entry.getKey(), entry.getValue());
+            }
+        }
+
+        job.setProcessedRows(job.getProcessedRows() + rows.size());
+        job.setImportedRows(job.getImportedRows() + imported);
+        job.setFailedRows(job.getFailedRows() + rows.size() - imported);
+    }
+
+    // Возвращает 1, если карта вставлена, и 0, если строка записана в ошибки
+    private int importRow(CardImportJob job, CsvRow row, CardDtoIn cardDtoIn) {
+        try {
+            return saveChunk(job, 1, Map.of(row, cardDtoIn), List.of());
+        } catch (RuntimeException e) {
+            log.warn("Строка {} импорта {} не вставлена", row.lineNumber(), job.getJobId(), e);
+            return saveChunk(job, 1, Map.of(),
+                    List.of(CardImportMapper.toError(job.getJobId(), row.lineNumber(), e.getMessage())));
+        }
+    }
+
+    /**
+     * Вставляет карты разобранных строк и ошибки одной транзакцией вместе с приростом счётчиков задания.
+     * Возвращает число вставленных карт.
+     */
+    private int saveChunk(CardImportJob job, int rowCount, Map<CsvRow, CardDtoIn> parsed, List<CardImportError> parseErrors) {
+        return transactionTemplate.execute(status -> {
+            List<CardImportError> errors = new ArrayList<>(parseErrors);
+            List<Card> cards = new ArrayList<>(parsed.size());
+            if (!parsed.isEmpty()) {
+                Map<Long, User> users = userService.getEntitiesByIds(parsed.values().stream()
+                        .map(CardDtoIn::getUserId)
+                        .collect(Collectors.toSet()));
+                Iterator<String> cardNumbers = cardNumberGenerator.next(parsed.size()).iterator();
+                LocalDate expiryDate = LocalDate.now().plusYears(expiryYears);
+
+                parsed.forEach((row, cardDtoIn) -> {
+                    String cardNumber = cardNumbers.next();
+                    User user = users.get(cardDtoIn.getUserId());
+                    if (user == null) {
+                        errors.add(CardImportMapper.toError(job.getJobId(), row.lineNumber(),
+                                String.format("Пользователя с Id %d не существует", cardDtoIn.getUserId())));
+                        return;
+                    }
+                    Card card = CardMapper.toCard(user, cardDtoIn, cardNumber);
+                    card.setCardNumberHash(cardNumberBlindIndex.hash(cardNumber));
+                    card.setExpiryDate(expiryDate);
+                    cards.add(card);
+                });
+                cardRepository.saveAll(cards);
+            }
+            cardImportErrorRepository.saveAll(errors);
+            cardImportJobRepository.addProgress(job.getJobId(), rowCount, cards.size(), errors.size());
+            return cards.size();
+        });
+    }
+
+    static CardDtoIn parse(String line) {
+        List<String> fields = splitCsvLine(line);
+        if (fields.size() != 3) {
+            throw new IllegalArgumentException(String.format(
+                    "Ожидалось 3 поля (userId, cardHolder, initialBalance), получено %d", fields.size()));
+        }
+
+        Long userId;
+        try {
+            userId = Long.valueOf(fields.get(0).trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(String.format("Некорректный userId: %s", fields.get(0)));
+        }
+
+        String cardHolder = fields.get(1).trim();
+        if (cardHolder.isEmpty()) {
+            throw new IllegalArgumentException("Не указан владелец карты");
+        }
+        if (cardHolder.length() > CARD_HOLDER_MAX_LENGTH) {
+            throw new IllegalArgumentException(String.format("Имя владельца карты длиннее %d символов", CARD_HOLDER_MAX_LENGTH));
+        }
+
+        Money initialBalance;
+        String balance = fields.get(2).trim();
+        try {
+            initialBalance = balance.isEmpty() ? Money.ZERO : Money.of(balance);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(String.format("Некорректный начальный баланс: %s", balance));
+        }
+        if (initialBalance.signum() < 0) {
+            throw new IllegalArgumentException("Начальный баланс не может быть отрицательным");
+        }
+
+        return CardDtoIn.builder()
+                .userId(userId)
+                .cardHolder(cardHolder)
+                .initialBalance(initialBalance)
+                .build();
+    }
+
+    // Поля через запятую; поле в двойных кавычках может содержать запятые, кавычка внутри удваивается
+    static List<String> splitCsvLine(String line) {
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    field.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    field.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        if (quoted) {
+            throw new IllegalArgumentException("Незакрытая кавычка");
+        }
+        fields.add(field.toString());
+        return fields;
+    }
+
+    private static ThreadFactory workerFactory() {
+        AtomicInteger counter = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, "card-import-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    private static boolean isHeader(String line) {
+        return StringUtils.startsWithIgnoreCase(line.strip(), "userId");
+    }
+
+    private record CsvRow(long lineNumber, String line) {
+    }
+
+}
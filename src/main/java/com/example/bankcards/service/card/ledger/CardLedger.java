@@ -0,0 +1,69 @@
+package com.example.bankcards.service.card.ledger;
+
+import com.example.bankcards.dto.enums.LedgerEntryType;
+import com.example.bankcards.dto.enums.LedgerOperationType;
+import com.example.bankcards.entity.Card;
+import com.example.bankcards.entity.CardLedgerEntry;
+import com.example.bankcards.repository.CardLedgerEntryRepository;
+import com.example.bankcards.util.Money;
+import lombok.AccessLevel;
+import lombok.RequiredArgsConstructor;
+import lombok.experimental.FieldDefaults;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+@Component
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+@RequiredArgsConstructor
+public class CardLedger {
+
+    CardLedgerEntryRepository ledgerEntryRepository;
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void topUp(Card card, Money amount) {
+        UUID operationId = UUID.randomUUID();
+
+        // Пополнение приходит извне, поэтому вторая проводка не привязана к карте
+        CardLedgerEntry external = entry(operationId, LedgerOperationType.TOP_UP, null, amount.negate(), null);
+        card.setBalance(card.getBalance().plus(amount));
+        CardLedgerEntry credit = entry(operationId, LedgerOperationType.TOP_UP, card.getCardId(), amount, card.getBalance());
+
+        ledgerEntryRepository.saveAll(List.of(external, credit));
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void transfer(Card from, Card to, Money amount) {
+        UUID operationId = UUID.randomUUID();
+
+        from.setBalance(from.getBalance().minus(amount));
+        CardLedgerEntry debit = entry(operationId, LedgerOperationType.TRANSFER, from.getCardId(), amount.negate(), from.getBalance());
+        to.setBalance(to.getBalance().plus(amount));
+        CardLedgerEntry credit = entry(operationId, LedgerOperationType.TRANSFER, to.getCardId(), amount, to.getBalance());
+
+        ledgerEntryRepository.saveAll(List.of(debit, credit));
+    }
+
+    @Transactional(readOnly = true)
+    public Optional<Money> getLedgerBalance(Long cardId) {
+        return ledgerEntryRepository.findFirstByCardIdOrderByEntryIdDesc(cardId)
+                .map(CardLedgerEntry::getBalanceAfter);
+    }
+
+    private CardLedgerEntry entry(UUID operationId, LedgerOperationType operationType, Long cardId,
+                                  Money signedAmount, Money balanceAfter) {
+        return CardLedgerEntry.builder()
+                .operationId(operationId)
+                .operationType(operationType)
+                .entryType(signedAmount.signum() < 0 ? LedgerEntryType.DEBIT : LedgerEntryType.CREDIT)
+                .cardId(cardId)
+                .amount(signedAmount.abs())
+                .balanceAfter(balanceAfter)
+                .build();
+    }
+
+}
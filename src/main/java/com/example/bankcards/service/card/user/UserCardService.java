@@ -1,6 +1,9 @@
 package com.example.bankcards.service.card.user;
 
+import com.example.bankcards.dto.card.BatchTransferRequest;
+import com.example.bankcards.dto.card.BatchTransferResponse;
 import com.example.bankcards.dto.card.CardDtoOutUser;
+import com.example.bankcards.dto.card.CardSliceResponse;
 import com.example.bankcards.dto.card.RequestUpdateBalance;
 import com.example.bankcards.dto.card.TransferRequest;
 import org.springframework.data.domain.Page;
@@ -9,9 +12,13 @@ public interface UserCardService {
 
     Page<CardDtoOutUser> getAllCardsForUser(Long userId, int page, int size);
 
+    CardSliceResponse getCardsForUserAfterCursor(Long userId, String cursor, int size);
+
     CardDtoOutUser getCardThroughCardId(Long userId, Long cardId);
 
     CardDtoOutUser updateBalanceCard(RequestUpdateBalance requestUpdateBalance);
 
     void transferFromOneCardToAnother(TransferRequest transferRequest);
+
+    BatchTransferResponse transferBatch(BatchTransferRequest batchTransferRequest);
 }
@@ -1,27 +1,28 @@
 package com.example.bankcards.service.card.user;
 
+import com.example.bankcards.dto.card.BatchTransferRequest;
+import com.example.bankcards.dto.card.BatchTransferResponse;
+import com.example.bankcards.dto.card.CardCursor;
 import com.example.bankcards.dto.card.CardDtoOutUser;
+import com.example.bankcards.dto.card.CardSliceResponse;
 import com.example.bankcards.dto.card.RequestUpdateBalance;
 import com.example.bankcards.dto.card.TransferRequest;
-import com.example.bankcards.dto.enums.CardStatus;
-import com.example.bankcards.entity.Card;
-import com.example.bankcards.exception.CardDoesNotWorkException;
 import com.example.bankcards.exception.CardNotFoundException;
-import com.example.bankcards.exception.NotEnoughMoneyException;
+import com.example.bankcards.exception.InvalidPageSizeException;
 import com.example.bankcards.mapper.CardMapper;
 import com.example.bankcards.repository.CardRepository;
+import com.example.bankcards.service.card.engine.BalanceEngine;
 import lombok.AccessLevel;
 import lombok.RequiredArgsConstructor;
 import lombok.experimental.FieldDefaults;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
-import java.util.List;
-
 
 @Service
 @FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
@@ -29,74 +30,60 @@ import java.util.List;
 public class UserCardServiceImpl implements UserCardService {
 
     CardRepository cardRepository;
+    BalanceEngine balanceEngine;
 
     @Override
     @Transactional(readOnly = true)
     public Page<CardDtoOutUser> getAllCardsForUser(Long userId, int page, int size) {
+        checkPageSize(size);
         Pageable pageable = PageRequest.of(page, size, Sort.by("createdAt").descending());
 
-        Page<Card> cards;
+        return cardRepository.findCardDtosByUserId(userId, pageable);
+    }
 
+    @Override
+    @Transactional(readOnly = true)
+    public CardSliceResponse getCardsForUserAfterCursor(Long userId, String cursor, int size) {
+        checkPageSize(size);
+        Pageable pageable = PageRequest.of(0, size);
+
+        Slice<CardDtoOutUser> cards;
+        if (cursor == null || cursor.isBlank()) {
+            cards = cardRepository.findFirstCardDtosByUserId(userId, pageable);
+        } else {
+            CardCursor after = CardCursor.decode(cursor);
+            cards = cardRepository.findCardDtosByUserIdAfterCursor(userId, after.createdAt(), after.cardId(), pageable);
+        }
 
-        cards = cardRepository.findAllByUserId(
-                userId,
-                pageable
-        );
+        return CardMapper.toCardSliceResponse(cards);
+    }
 
-        return cards.map(CardMapper::toCardDtoOutUser);
+    private void checkPageSize(int size) {
+        if (size <= 0) {
+            throw new InvalidPageSizeException(String.format("Размер страницы должен быть больше нуля, передано %d", size));
+        }
     }
 
     @Override
     @Transactional(readOnly = true)
     public CardDtoOutUser getCardThroughCardId(Long userId, Long cardId) {
-        return CardMapper.toCardDtoOutUser(cardRepository.findByUserIdAndCardId(userId, cardId)
-                .orElseThrow(() -> new CardNotFoundException(String.format("Карты с id %d не существует", cardId))));
+        return cardRepository.findCardDtoByUserIdAndCardId(userId, cardId)
+                .orElseThrow(() -> new CardNotFoundException(String.format("Карты с id %d не существует", cardId)));
     }
 
     @Override
-    @Transactional
     public CardDtoOutUser updateBalanceCard(RequestUpdateBalance requestUpdateBalance) {
-        Card updateCard = getCardByCardNumberAndCardHolder(requestUpdateBalance.getCardNumber(), requestUpdateBalance.getCardHolder());
-
-        if (updateCard.getStatus() == CardStatus.BLOCKED || updateCard.getStatus() == CardStatus.EXPIRED) {
-            throw new CardDoesNotWorkException(String.format("Карта пользователя %s не рабочая", requestUpdateBalance.getCardHolder()));
-        }
-
-        updateCard.setBalance(updateCard.getBalance().add(requestUpdateBalance.getAddedAmount()));
-        cardRepository.save(updateCard);
-        return CardMapper.toCardDtoOutUser(updateCard);
+        return balanceEngine.topUp(requestUpdateBalance);
     }
 
     @Override
-    @Transactional
     public void transferFromOneCardToAnother(TransferRequest transferRequest) {
-        Card from = getCardByCardNumberAndCardHolder(transferRequest.getCardNumberFrom(), transferRequest.getCardHolderFrom());
-
-        if (from.getStatus() == CardStatus.BLOCKED || from.getStatus() == CardStatus.EXPIRED) {
-            throw new CardDoesNotWorkException(String.format("Карта пользователя %s не рабочая", from.getCardHolder()));
-        }
-
-        if (transferRequest.getAddedAmount().compareTo(from.getBalance()) > 0) {
-            throw new NotEnoughMoneyException(String.format("В карте пользователя %s недостаточно средств для перевода", from.getCardHolder()));
-        }
-
-        from.setBalance(from.getBalance().subtract(transferRequest.getAddedAmount()));
-
-        Card to = getCardByCardNumberAndCardHolder(transferRequest.getCardNumberTo(), transferRequest.getCardHolderTo());
-
-        if (to.getStatus() == CardStatus.BLOCKED || to.getStatus() == CardStatus.EXPIRED) {
-            throw new CardDoesNotWorkException(String.format("Карта пользователя %s не рабочая", to.getCardHolder()));
-        }
-
-        to.setBalance(to.getBalance().add(transferRequest.getAddedAmount()));
-
-        cardRepository.saveAll(List.of(from, to));
+        balanceEngine.transfer(transferRequest);
     }
 
-    private Card getCardByCardNumberAndCardHolder(String cardNumber, String cardHolder) {
-        return cardRepository.findByCardNumberAndCardHolder(cardNumber, cardHolder)
-                .orElseThrow(() -> new CardNotFoundException(String.format("Карты с пользователем %s не существует", cardHolder)));
+    @Override
+    public BatchTransferResponse transferBatch(BatchTransferRequest batchTransferRequest) {
+        return balanceEngine.transferBatch(batchTransferRequest.getTransfers());
     }
 
-
 }
@@ -0,0 +1,9 @@
+package com.example.bankcards.service.idempotency;
+
+import java.util.function.Supplier;
+
+public interface IdempotencyService {
+
+    <T> T execute(String idempotencyKey, String operation, Object request, Class<T> responseType, Supplier<T> action);
+
+}
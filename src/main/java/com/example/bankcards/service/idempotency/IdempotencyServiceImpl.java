@@ -0,0 +1,155 @@
+package com.example.bankcards.service.idempotency;
+
+import com.example.bankcards.dto.enums.IdempotencyStatus;
+import com.example.bankcards.entity.IdempotencyRecord;
+import com.example.bankcards.exception.BalanceOutcomeUnknownException;
+import com.example.bankcards.exception.IdempotencyKeyConflictException;
+import com.example.bankcards.exception.InvalidIdempotencyKeyException;
+import com.example.bankcards.repository.IdempotencyRecordRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import lombok.AccessLevel;
+import lombok.experimental.FieldDefaults;
+import org.apache.commons.codec.digest.DigestUtils;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.function.Supplier;
+
+/**
+ * Ключи идемпотентности действуют в пределах аутентифицированного пользователя: в таблице хранится
+ * SHA-256 от имени пользователя и ключа, поэтому одинаковые ключи разных клиентов не пересекаются.
+ * Незавершённый ключ не занимается повторно до истечения ttl: списание выполняется в своей транзакции,
+ * и если узел упал между её коммитом и сохранением ответа, повтор выполнил бы списание второй раз.
+ * Такой повтор получает 409, а клиент сверяет баланс и отправляет запрос с новым ключом.
+ */
+@Service
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+public class IdempotencyServiceImpl implements IdempotencyService {
+
+    static int MAX_KEY_LENGTH = 100;
+
+    IdempotencyRecordRepository idempotencyRecordRepository;
+    ObjectMapper objectMapper;
+    Duration ttl;
+    Cache<String, StoredResponse> completedResponses;
+
+    public IdempotencyServiceImpl(IdempotencyRecordRepository idempotencyRecordRepository,
+                                  ObjectMapper objectMapper,
+                                  @Value("${idempotency.ttl:24h}") Duration ttl,
+                                  @Value("${idempotency.cache.maximum-size:10000}") long maximumSize,
+                                  @Value("${idempotency.cache.expire-after-write:10m}") Duration expireAfterWrite) {
+        this.idempotencyRecordRepository = idempotencyRecordRepository;
+        this.objectMapper = objectMapper;
+        this.ttl = ttl;
+        this.completedResponses = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(expireAfterWrite.compareTo(ttl) < 0 ? expireAfterWrite : ttl)
+                .build();
+    }
+
+    @Override
+    public <T> T execute(String idempotencyKey, String operation, Object request, Class<T> responseType, Supplier<T> action) {
+        if (idempotencyKey == null || idempotencyKey.isBlank()) {
+            return action.get();
+        }
+        if (idempotencyKey.length() > MAX_KEY_LENGTH) {
+            throw new InvalidIdempotencyKeyException(
+                    String.format("Ключ идемпотентности не должен быть длиннее %d символов", MAX_KEY_LENGTH));
+        }
+
+        String storedKey = DigestUtils.sha256Hex(currentPrincipal() + ':' + idempotencyKey);
+        String requestHash = DigestUtils.sha256Hex(operation + ':' + write(request));
+
+        StoredResponse cached = completedResponses.getIfPresent(storedKey);
+        if (cached != null) {
+            return replay(idempotencyKey, cached, requestHash, responseType);
+        }
+
+        // Точность до микросекунд совпадает с timestamp в Postgres: по этому значению ключ завершается и освобождается
+        LocalDateTime claimedAt = LocalDateTime.now().truncatedTo(ChronoUnit.MICROS);
+        if (idempotencyRecordRepository.claim(storedKey, operation, requestHash, claimedAt, claimedAt.plus(ttl)) == 0) {
+            return replayStored(idempotencyKey, storedKey, requestHash, responseType);
+        }
+
+        T response;
+        try {
+            response = action.get();
+        } catch (BalanceOutcomeUnknownException e) {
+            // Операция могла выполниться: ключ не освобождается, повтор получит 409, а не второе списание
+            throw e;
+        } catch (RuntimeException e) {
+            idempotencyRecordRepository.release(storedKey, claimedAt);
+            throw e;
+        }
+
+        String responseBody = write(response);
+        if (idempotencyRecordRepository.complete(storedKey, claimedAt, responseBody, LocalDateTime.now().plus(ttl)) == 0) {
+            // Списание уже выполнено, но ключ больше не наш: ответ не сохранён, повтор не должен пройти молча
+            throw new IllegalStateException(
+                    String.format("Ключ идемпотентности %s потерян до сохранения ответа", idempotencyKey));
+        }
+        completedResponses.put(storedKey, new StoredResponse(requestHash, responseBody));
+        return response;
+    }
+
+    @Scheduled(fixedDelayString = "${idempotency.cleanup-interval:PT1H}")
+    public void deleteExpiredKeys() {
+        idempotencyRecordRepository.deleteExpired(LocalDateTime.now());
+    }
+
+    private <T> T replayStored(String idempotencyKey, String storedKey, String requestHash, Class<T> responseType) {
+        IdempotencyRecord record = idempotencyRecordRepository.findById(storedKey)
+                .orElseThrow(() -> inProgress(idempotencyKey));
+
+        if (record.getStatus() != IdempotencyStatus.COMPLETED) {
+            throw inProgress(idempotencyKey);
+        }
+
+        StoredResponse stored = new StoredResponse(record.getRequestHash(), record.getResponseBody());
+        completedResponses.put(storedKey, stored);
+        return replay(idempotencyKey, stored, requestHash, responseType);
+    }
+
+    private <T> T replay(String idempotencyKey, StoredResponse stored, String requestHash, Class<T> responseType) {
+        if (!stored.requestHash().equals(requestHash)) {
+            throw new IdempotencyKeyConflictException(
+                    String.format("Ключ %s уже использован для другого запроса", idempotencyKey));
+        }
+        try {
+            return objectMapper.readValue(stored.responseBody(), responseType);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Не удалось прочитать сохранённый ответ", e);
+        }
+    }
+
+    private static IdempotencyKeyConflictException inProgress(String idempotencyKey) {
+        return new IdempotencyKeyConflictException(
+                String.format("Запрос с ключом %s ещё выполняется или его результат неизвестен", idempotencyKey));
+    }
+
+    private static String currentPrincipal() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        return authentication != null ? authentication.getName() : "";
+    }
+
+    private String write(Object value) {
+        try {
+            return objectMapper.writeValueAsString(value);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Не удалось сериализовать данные идемпотентного запроса", e);
+        }
+    }
+
+    private record StoredResponse(String requestHash, String responseBody) {
+    }
+
+}
@@ -0,0 +1,107 @@
+package com.example.bankcards.service.user;
+
+import com.example.bankcards.dto.enums.Role;
+import com.example.bankcards.entity.User;
+import com.example.bankcards.repository.UserRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.AccessLevel;
+import lombok.experimental.FieldDefaults;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.Optional;
+
+/**
+ * Кэш пользователей по имени и по id перед UserRepository.
+ * Хранятся не сущности, а снимки их полей: каждый вызов возвращает новый, не связанный с сессией User,
+ * поэтому правка результата не портит кэш. Карты в снимок не входят — cards у результата всегда пуст,
+ * за картами нужно идти в CardRepository. После изменения пользователя нужно вызвать invalidate.
+ * Отсутствие пользователя не кэшируется, поэтому только что зарегистрированный пользователь виден сразу.
+ */
+@Component
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+public class UserCache {
+
+    UserRepository userRepository;
+    Cache<String, Snapshot> byUsername;
+    Cache<Long, Snapshot> byId;
+
+    public UserCache(UserRepository userRepository,
+                     MeterRegistry meterRegistry,
+                     @Value("${user.cache.maximum-size:10000}") long maximumSize,
+                     @Value("${user.cache.expire-after-write:5m}") Duration expireAfterWrite) {
+        this.userRepository = userRepository;
+        this.byUsername = CaffeineCacheMetrics.monitor(meterRegistry, newCache(maximumSize, expireAfterWrite), "users.by-username");
+        this.byId = CaffeineCacheMetrics.monitor(meterRegistry, newCache(maximumSize, expireAfterWrite), "users.by-id");
+    }
+
+    public Optional<User> findByUsername(String username) {
+        if (username == null) {
+            return userRepository.findByUsername(null).map(Snapshot::of).map(Snapshot::toUser);
+        }
+        Snapshot cached = byUsername.getIfPresent(username);
+        if (cached != null) {
+            return Optional.of(cached.toUser());
+        }
+        return userRepository.findByUsername(username).map(this::remember);
+    }
+
+    public Optional<User> findById(Long userId) {
+        if (userId == null) {
+            return userRepository.findById(null).map(Snapshot::of).map(Snapshot::toUser);
+        }
+        Snapshot cached = byId.getIfPresent(userId);
+        if (cached != null) {
+            return Optional.of(cached.toUser());
+        }
+        return userRepository.findById(userId).map(this::remember);
+    }
+
+    public void invalidate(User user) {
+        if (user.getUsername() != null) {
+            byUsername.invalidate(user.getUsername());
+        }
+        if (user.getId() != null) {
+            byId.invalidate(user.getId());
+        }
+    }
+
+    private User remember(User user) {
+        Snapshot snapshot = Snapshot.of(user);
+        byUsername.put(snapshot.username(), snapshot);
+        byId.put(snapshot.id(), snapshot);
+        return snapshot.toUser();
+    }
+
+    private static <K> Cache<K, Snapshot> newCache(long maximumSize, Duration expireAfterWrite) {
+        return Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(expireAfterWrite)
+                .recordStats()
+                .build();
+    }
+
+    private record Snapshot(Long id, String username, String email, String password, Role role) {
+
+        static Snapshot of(User user) {
+            return new Snapshot(user.getId(), user.getUsername(), user.getEmail(), user.getPassword(), user.getRole());
+        }
+
+        User toUser() {
+            return User.builder()
+                    .id(id)
+                    .username(username)
+                    .email(email)
+                    .password(password)
+                    .role(role)
+                    .cards(Collections.emptyList())
+                    .build();
+        }
+    }
+
+}
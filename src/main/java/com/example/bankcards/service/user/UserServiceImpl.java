@@ -13,6 +13,13 @@ import lombok.experimental.FieldDefaults;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
@@ -20,6 +27,7 @@ import org.springframework.transaction.annotation.Transactional;
 public class UserServiceImpl implements UserService {
 
     UserRepository userRepository;
+    UserCache userCache;
     PasswordEncoder passwordEncoder;
 
     @Override
@@ -32,13 +40,39 @@ public class UserServiceImpl implements UserService {
         User saveUser = UserMapper.toUser(userDtoIn);
         saveUser.setPassword(passwordEncoder.encode(userDtoIn.getPassword()));
         userRepository.save(saveUser);
+        invalidateAfterCommit(saveUser);
         return UserMapper.toUserDtoOut(saveUser);
     }
 
-    @Transactional(readOnly = true)
     public User getEntityById(Long userId) {
-        return userRepository.findById(userId)
+        return userCache.findById(userId)
                 .orElseThrow(() -> new UserNotFoundException(String.format("Пользователя с Id %d не существует", userId)));
     }
 
+    public void checkUserExists(Long userId) {
+        if (!userRepository.existsById(userId)) {
+            throw new UserNotFoundException(String.format("Пользователя с Id %d не существует", userId));
+        }
+    }
+
+    @Transactional(readOnly = true)
+    public Map<Long, User> getEntitiesByIds(Collection<Long> userIds) {
+        return userRepository.findAllById(userIds).stream()
+                .collect(Collectors.toMap(User::getId, Function.identity()));
+    }
+
+    private void invalidateAfterCommit(User user) {
+        // До коммита параллельный запрос ещё читает старую строку и снова положил бы её в кэш
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            userCache.invalidate(user);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                userCache.invalidate(user);
+            }
+        });
+    }
+
 }
@@ -0,0 +1,64 @@
+package com.example.bankcards.util;
+
+import lombok.AccessLevel;
+import lombok.experimental.FieldDefaults;
+import org.apache.commons.codec.digest.MurmurHash3;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Фильтр Блума по строковым ключам. Ложноотрицательных ответов не бывает, ложноположительные —
+ * с заданной вероятностью. Добавление и проверка потокобезопасны и не берут блокировок.
+ */
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+public class BloomFilter {
+
+    AtomicLongArray bits;
+    long bitCount;
+    int hashCount;
+
+    public BloomFilter(long expectedInsertions, double falsePositiveRate) {
+        if (expectedInsertions <= 0 || falsePositiveRate <= 0 || falsePositiveRate >= 1) {
+            throw new IllegalArgumentException("Размер фильтра и вероятность ложного срабатывания заданы некорректно");
+        }
+        long optimalBits = (long) Math.ceil(-expectedInsertions * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)));
+        this.bits = new AtomicLongArray((int) Math.max(1, (optimalBits + 63) / 64));
+        this.bitCount = (long) bits.length() * 64;
+        this.hashCount = (int) Math.max(1, Math.round((double) bitCount / expectedInsertions * Math.log(2)));
+    }
+
+    public void add(String key) {
+        long[] hash = hash(key);
+        for (int i = 0; i < hashCount; i++) {
+            long index = index(hash, i);
+            int word = (int) (index >>> 6);
+            long mask = 1L << index;
+            long current;
+            do {
+                current = bits.get(word);
+            } while ((current & mask) == 0 && !bits.compareAndSet(word, current, current | mask));
+        }
+    }
+
+    public boolean mightContain(String key) {
+        long[] hash = hash(key);
+        for (int i = 0; i < hashCount; i++) {
+            long index = index(hash, i);
+            if ((bits.get((int) (index >>> 6)) & (1L << index)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static long[] hash(String key) {
+        return MurmurHash3.hash128x64(key.getBytes(StandardCharsets.UTF_8));
+    }
+
+    // Двойное хэширование: i-я функция получается из двух половин 128-битного хэша
+    private long index(long[] hash, int i) {
+        return Math.floorMod(hash[0] + i * hash[1], bitCount);
+    }
+
+}
@@ -1,23 +1,50 @@
 package com.example.bankcards.util;
 
 
+import com.example.bankcards.config.CardEncryptionProperties;
 import org.springframework.stereotype.Component;
 
-import java.util.Random;
+import javax.crypto.Cipher;
+import javax.crypto.SecretKey;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.Map;
 
 @Component
 public class CardEncryptionService {
 
-    static Random random = new Random();
+    static final String TRANSFORMATION = "AES/GCM/NoPadding";
+    static final int IV_LENGTH = 12;
+    static final int TAG_LENGTH_BITS = 128;
+    static final char VERSION_SEPARATOR = ':';
 
-    public static String generateCardNumber() {
-        StringBuilder sb = new StringBuilder();
+    private final String activeKeyVersion;
+    private final Map<String, SecretKey> keys = new HashMap<>();
+    private final SecureRandom secureRandom = new SecureRandom();
 
-        for (int i = 0; i < 16; i++) {
-            sb.append(random.nextInt(16));
-        }
+    // Cipher.getInstance дорогой и Cipher не потокобезопасен, поэтому экземпляр создаётся один раз на поток
+    private final ThreadLocal<Cipher> ciphers = ThreadLocal.withInitial(CardEncryptionService::newCipher);
 
-        return sb.toString();
+    public CardEncryptionService(CardEncryptionProperties properties) {
+        if (properties.keys() == null || !properties.keys().containsKey(properties.activeKey())) {
+            throw new IllegalArgumentException(String.format("Не задан ключ шифрования карт %s", properties.activeKey()));
+        }
+        for (Map.Entry<String, String> entry : properties.keys().entrySet()) {
+            if (entry.getKey().indexOf(VERSION_SEPARATOR) >= 0) {
+                throw new IllegalArgumentException(String.format("Недопустимая версия ключа шифрования карт %s", entry.getKey()));
+            }
+            byte[] key = Base64.getDecoder().decode(entry.getValue());
+            if (key.length != 32) {
+                throw new IllegalArgumentException(String.format("Ключ шифрования карт %s должен быть длиной 256 бит", entry.getKey()));
+            }
+            keys.put(entry.getKey(), new SecretKeySpec(key, "AES"));
+        }
+        this.activeKeyVersion = properties.activeKey();
     }
 
     public static String maskCardNumber(String cardNumber) {
@@ -25,4 +52,66 @@ public class CardEncryptionService {
                 cardNumber.substring(12, 16));
     }
 
-}
\ No newline at end of file
+    public String getActiveKeyVersion() {
+        return activeKeyVersion;
+    }
+
+    public boolean isEncryptedWithActiveKey(String storedCardNumber) {
+        return storedCardNumber.startsWith(activeKeyVersion + VERSION_SEPARATOR);
+    }
+
+    /**
+     * Шифрует номер карты активным ключом. Результат: {@code <версия ключа>:<Base64(IV + шифртекст + тег)>}.
+     */
+    public String encrypt(String cardNumber) {
+        byte[] iv = new byte[IV_LENGTH];
+        secureRandom.nextBytes(iv);
+        byte[] plain = cardNumber.getBytes(StandardCharsets.UTF_8);
+
+        try {
+            Cipher cipher = ciphers.get();
+            cipher.init(Cipher.ENCRYPT_MODE, keys.get(activeKeyVersion), new GCMParameterSpec(TAG_LENGTH_BITS, iv));
+            byte[] encrypted = new byte[IV_LENGTH + cipher.getOutputSize(plain.length)];
+            System.arraycopy(iv, 0, encrypted, 0, IV_LENGTH);
+            cipher.doFinal(plain, 0, plain.length, encrypted, IV_LENGTH);
+            return activeKeyVersion + VERSION_SEPARATOR + Base64.getEncoder().encodeToString(encrypted);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Не удалось зашифровать номер карты", e);
+        }
+    }
+
+    /**
+     * Расшифровывает номер карты ключом той версии, которой он был зашифрован.
+     * Значения без известной версии ключа считаются записанными до включения шифрования и возвращаются как есть.
+     */
+    public String decrypt(String storedCardNumber) {
+        SecretKey key = keyOf(storedCardNumber);
+        if (key == null) {
+            return storedCardNumber;
+        }
+
+        byte[] encrypted = Base64.getDecoder().decode(storedCardNumber.substring(storedCardNumber.indexOf(VERSION_SEPARATOR) + 1));
+        try {
+            Cipher cipher = ciphers.get();
+            cipher.init(Cipher.DECRYPT_MODE, key, new GCMParameterSpec(TAG_LENGTH_BITS, encrypted, 0, IV_LENGTH));
+            byte[] plain = cipher.doFinal(encrypted, IV_LENGTH, encrypted.length - IV_LENGTH);
+            return new String(plain, StandardCharsets.UTF_8);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Не удалось расшифровать номер карты", e);
+        }
+    }
+
+    private SecretKey keyOf(String storedCardNumber) {
+        int separator = storedCardNumber.indexOf(VERSION_SEPARATOR);
+        return separator > 0 ? keys.get(storedCardNumber.substring(0, separator)) : null;
+    }
+
+    private static Cipher newCipher() {
+        try {
+            return Cipher.getInstance(TRANSFORMATION);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("AES/GCM недоступен", e);
+        }
+    }
+
+}
@@ -0,0 +1,54 @@
+package com.example.bankcards.util;
+
+import lombok.AccessLevel;
+import lombok.experimental.FieldDefaults;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+@Component
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+public class CardLockStripes {
+
+    ReentrantLock[] stripes;
+
+    public CardLockStripes(@Value("${card.lock.stripes:256}") int stripeCount) {
+        if (stripeCount <= 0) {
+            throw new IllegalArgumentException("Количество страйпов должно быть положительным");
+        }
+        stripes = new ReentrantLock[stripeCount];
+        for (int i = 0; i < stripeCount; i++) {
+            stripes[i] = new ReentrantLock();
+        }
+    }
+
+    public <T> T executeLocked(Collection<Long> cardIds, Supplier<T> action) {
+        // Страйпы берутся строго по возрастанию индекса, поэтому встречные переводы не дают взаимной блокировки
+        int[] indexes = cardIds.stream()
+                .mapToInt(this::stripeIndex)
+                .distinct()
+                .sorted()
+                .toArray();
+
+        int acquired = 0;
+        try {
+            for (int index : indexes) {
+                stripes[index].lock();
+                acquired++;
+            }
+            return action.get();
+        } finally {
+            for (int i = acquired - 1; i >= 0; i--) {
+                stripes[indexes[i]].unlock();
+            }
+        }
+    }
+
+    public int stripeIndex(Long cardId) {
+        return (int) Math.floorMod(cardId, (long) stripes.length);
+    }
+
+}
@@ -0,0 +1,61 @@
+package com.example.bankcards.util;
+
+import com.example.bankcards.exception.CardNumberIndexNotReadyException;
+import lombok.AccessLevel;
+import lombok.experimental.FieldDefaults;
+import lombok.experimental.NonFinal;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.HexFormat;
+
+/**
+ * Слепой индекс номера карты: HMAC-SHA256 по секретному ключу.
+ * По нему карта ищется через индекс, и номер карты не попадает в условие запроса.
+ * Пока у старых карт индекс не заполнен, поиск по нему отклоняется: иначе такие карты выглядели бы несуществующими.
+ */
+@Component
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+public class CardNumberBlindIndex {
+
+    static String ALGORITHM = "HmacSHA256";
+
+    ThreadLocalMac mac;
+
+    @NonFinal
+    volatile boolean backfilled = true;
+
+    public CardNumberBlindIndex(@Value("${card.blind-index.key}") String key) {
+        byte[] keyBytes = Base64.getDecoder().decode(key);
+        if (keyBytes.length < 32) {
+            throw new IllegalArgumentException("Ключ слепого индекса должен быть не короче 256 бит");
+        }
+        this.mac = new ThreadLocalMac(ALGORITHM, keyBytes);
+    }
+
+    /**
+     * Хэш для поиска карты по номеру; до окончания {@code CardNumberHashBackfill} поиск недоступен.
+     */
+    public String lookupHash(String cardNumber) {
+        if (!backfilled) {
+            throw new CardNumberIndexNotReadyException("Индекс номеров карт ещё заполняется, повторите запрос позже");
+        }
+        return hash(cardNumber);
+    }
+
+    public void markBackfillStarted() {
+        backfilled = false;
+    }
+
+    public void markBackfillFinished() {
+        backfilled = true;
+    }
+
+    public String hash(String cardNumber) {
+        byte[] digest = mac.doFinal(cardNumber.getBytes(StandardCharsets.UTF_8));
+        return HexFormat.of().formatHex(digest);
+    }
+
+}
@@ -0,0 +1,28 @@
+package com.example.bankcards.util;
+
+import jakarta.persistence.AttributeConverter;
+import jakarta.persistence.Converter;
+import lombok.AccessLevel;
+import lombok.RequiredArgsConstructor;
+import lombok.experimental.FieldDefaults;
+import org.springframework.stereotype.Component;
+
+@Component
+@Converter
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+@RequiredArgsConstructor
+public class CardNumberConverter implements AttributeConverter<String, String> {
+
+    CardEncryptionService cardEncryptionService;
+
+    @Override
+    public String convertToDatabaseColumn(String cardNumber) {
+        return cardNumber == null ? null : cardEncryptionService.encrypt(cardNumber);
+    }
+
+    @Override
+    public String convertToEntityAttribute(String storedCardNumber) {
+        return storedCardNumber == null ? null : cardEncryptionService.decrypt(storedCardNumber);
+    }
+
+}
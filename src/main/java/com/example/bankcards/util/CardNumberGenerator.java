@@ -0,0 +1,135 @@
+package com.example.bankcards.util;
+
+import lombok.AccessLevel;
+import lombok.experimental.FieldDefaults;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import javax.crypto.Mac;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+
+/**
+ * Генератор 16-значных номеров карт: BIN + номер счёта + контрольная цифра Луна.
+ * Номер счёта получается ключевой перестановкой (сеть Фейстеля с cycle walking) значения
+ * последовательности card_number_seq, поэтому номера уникальны без проверок и повторов,
+ * а по соседним номерам нельзя восстановить порядок выпуска.
+ */
+@Component
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+public class CardNumberGenerator {
+
+    static String ALGORITHM = "HmacSHA256";
+    static int CARD_NUMBER_LENGTH = 16;
+    static int ROUNDS = 8;
+
+    static String NEXT_VALUES = "select nextval('card_number_seq') from generate_series(1, ?)";
+
+    JdbcTemplate jdbcTemplate;
+    String bin;
+    long domain;
+    int halfBits;
+    long halfMask;
+    String accountFormat;
+    ThreadLocalMac mac;
+
+    public CardNumberGenerator(JdbcTemplate jdbcTemplate,
+                               @Value("${card.number.bin}") String bin,
+                               @Value("${card.number.key}") String key) {
+        if (!bin.matches("\\d{6,8}")) {
+            throw new IllegalArgumentException(String.format("BIN %s должен состоять из 6-8 цифр", bin));
+        }
+        byte[] keyBytes = Base64.getDecoder().decode(key);
+        if (keyBytes.length < 32) {
+            throw new IllegalArgumentException("Ключ генератора номеров карт должен быть не короче 256 бит");
+        }
+
+        int accountDigits = CARD_NUMBER_LENGTH - 1 - bin.length();
+        long domain = 1;
+        for (int i = 0; i < accountDigits; i++) {
+            domain *= 10;
+        }
+        int bits = 64 - Long.numberOfLeadingZeros(domain - 1);
+
+        this.jdbcTemplate = jdbcTemplate;
+        this.bin = bin;
+        this.domain = domain;
+        this.halfBits = (bits + 1) / 2;
+        this.halfMask = (1L << halfBits) - 1;
+        this.accountFormat = "%0" + accountDigits + "d";
+        this.mac = new ThreadLocalMac(ALGORITHM, keyBytes);
+    }
+
+    public String next() {
+        return next(1).get(0);
+    }
+
+    /**
+     * Выдаёт {@code count} новых номеров за одно обращение к последовательности.
+     */
+    public List<String> next(int count) {
+        List<Long> sequenceValues = jdbcTemplate.queryForList(NEXT_VALUES, Long.class, count);
+        List<String> cardNumbers = new ArrayList<>(sequenceValues.size());
+        for (Long sequenceValue : sequenceValues) {
+            cardNumbers.add(toCardNumber(sequenceValue));
+        }
+        return cardNumbers;
+    }
+
+    String toCardNumber(long sequenceValue) {
+        if (sequenceValue < 0 || sequenceValue >= domain) {
+            throw new IllegalStateException(String.format("Номера карт для BIN %s исчерпаны", bin));
+        }
+        String withoutCheckDigit = bin + String.format(accountFormat, permute(sequenceValue));
+        return withoutCheckDigit + luhnCheckDigit(withoutCheckDigit);
+    }
+
+    long permute(long value) {
+        // Сеть Фейстеля переставляет 2 * halfBits бит; значения за пределами домена прогоняются повторно,
+        // пока не попадут в него, что сохраняет биекцию на [0, domain)
+        long result = value;
+        do {
+            result = feistel(result);
+        } while (result >= domain);
+        return result;
+    }
+
+    static int luhnCheckDigit(String digits) {
+        int sum = 0;
+        boolean doubled = true;
+        for (int i = digits.length() - 1; i >= 0; i--) {
+            int digit = digits.charAt(i) - '0';
+            if (doubled) {
+                digit *= 2;
+                if (digit > 9) {
+                    digit -= 9;
+                }
+            }
+            sum += digit;
+            doubled = !doubled;
+        }
+        return (10 - sum % 10) % 10;
+    }
+
+    private long feistel(long value) {
+        long left = value >>> halfBits;
+        long right = value & halfMask;
+        for (int round = 0; round < ROUNDS; round++) {
+            long next = left ^ (roundFunction(round, right) & halfMask);
+            left = right;
+            right = next;
+        }
+        return (left << halfBits) | right;
+    }
+
+    private long roundFunction(int round, long half) {
+        Mac roundMac = mac.get();
+        roundMac.update((byte) round);
+        roundMac.update(ByteBuffer.allocate(Long.BYTES).putLong(half).array());
+        return ByteBuffer.wrap(roundMac.doFinal()).getLong();
+    }
+
+}
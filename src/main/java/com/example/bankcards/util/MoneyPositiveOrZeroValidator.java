@@ -0,0 +1,18 @@
+package com.example.bankcards.util;
+
+import jakarta.validation.ConstraintValidator;
+import jakarta.validation.ConstraintValidatorContext;
+import jakarta.validation.constraints.PositiveOrZero;
+
+/**
+ * Позволяет вешать стандартный {@link PositiveOrZero} на поля {@link Money}.
+ * Регистрируется через META-INF/services/jakarta.validation.ConstraintValidator.
+ */
+public class MoneyPositiveOrZeroValidator implements ConstraintValidator<PositiveOrZero, Money> {
+
+    @Override
+    public boolean isValid(Money value, ConstraintValidatorContext context) {
+        return value == null || value.signum() >= 0;
+    }
+
+}
@@ -0,0 +1,48 @@
+package com.example.bankcards.util;
+
+import lombok.AccessLevel;
+import lombok.experimental.FieldDefaults;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.security.GeneralSecurityException;
+
+/**
+ * HMAC с одним алгоритмом и ключом для многопоточного кода.
+ * Mac не потокобезопасен, поэтому у каждого потока свой экземпляр.
+ */
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+public class ThreadLocalMac {
+
+    SecretKeySpec key;
+
+    ThreadLocal<Mac> macs = ThreadLocal.withInitial(this::newMac);
+
+    public ThreadLocalMac(String algorithm, byte[] key) {
+        this.key = new SecretKeySpec(key, algorithm);
+        // Неверный алгоритм или ключ обнаруживается при создании, а не при первом запросе
+        macs.get();
+    }
+
+    /**
+     * Экземпляр текущего потока; вызывающий код завершает вычисление через {@link Mac#doFinal()}.
+     */
+    public Mac get() {
+        return macs.get();
+    }
+
+    public byte[] doFinal(byte[] input) {
+        return macs.get().doFinal(input);
+    }
+
+    private Mac newMac() {
+        try {
+            Mac mac = Mac.getInstance(key.getAlgorithm());
+            mac.init(key);
+            return mac;
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(String.format("Не удалось инициализировать %s", key.getAlgorithm()), e);
+        }
+    }
+
+}
@@ -0,0 +1,91 @@
+package com.example.bankcards.benchmark;
+
+import com.example.bankcards.dto.card.AdminJobDto;
+import com.example.bankcards.dto.enums.AdminJobStatus;
+import com.example.bankcards.dto.enums.Role;
+import com.example.bankcards.entity.User;
+import com.example.bankcards.repository.UserRepository;
+import com.example.bankcards.service.card.admin.AdminCardService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Пропускная способность обработки очереди заявок на выпуск карт.
+ */
+@Tag("benchmark")
+@SpringBootTest
+@Testcontainers(disabledWithoutDocker = true)
+class CardCreationBenchmarkTest {
+
+    private static final int USERS = 1_000;
+    private static final int REQUESTS = 100_000;
+
+    @Container
+    static PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:16-alpine")
+            .withUrlParam("reWriteBatchedInserts", "true");
+
+    @DynamicPropertySource
+    static void datasource(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", postgres::getJdbcUrl);
+        registry.add("spring.datasource.username", postgres::getUsername);
+        registry.add("spring.datasource.password", postgres::getPassword);
+    }
+
+    @Autowired
+    private AdminCardService adminCardService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate.execute("truncate table admin_jobs, card_requests, cards, users restart identity cascade");
+
+        for (int i = 0; i < USERS; i++) {
+            userRepository.save(User.builder()
+                    .username("benchmark" + i)
+                    .email("benchmark" + i + "@example.com")
+                    .password("benchmark")
+                    .role(Role.USER)
+                    .build());
+        }
+        jdbcTemplate.update("""
+                insert into card_requests (request_type, status, user_id, card_holder, initial_balance, created_at)
+                select 'CREATE', 'PENDING', u.id, 'Holder ' || g, 100.00, now()
+                from generate_series(1, ?) g
+                join users u on u.id = (g % ?) + 1
+                """, REQUESTS, USERS);
+    }
+
+    @Test
+    void createQueuedCards() throws InterruptedException {
+        long started = System.nanoTime();
+        AdminJobDto job = adminCardService.createCardForUser();
+        while (job.getStatus() == AdminJobStatus.RUNNING) {
+            Thread.sleep(50);
+            job = adminCardService.getJob(job.getJobId());
+        }
+        long elapsed = System.nanoTime() - started;
+
+        assertEquals(AdminJobStatus.COMPLETED, job.getStatus());
+        Integer cards = jdbcTemplate.queryForObject("select count(*) from cards", Integer.class);
+        assertEquals(REQUESTS, cards);
+        System.out.printf("create cards: %d cards in %d ms, %.0f cards/s%n",
+                REQUESTS, elapsed / 1_000_000, REQUESTS * 1e9 / elapsed);
+    }
+
+}
@@ -0,0 +1,19 @@
+package com.example.bankcards.benchmark;
+
+import com.example.bankcards.entity.Card;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.repository.Repository;
+
+import java.util.Optional;
+
+/**
+ * Чтение карт сущностями — только как точка отсчёта для сравнения с проекциями в DTO.
+ */
+public interface CardEntityReadRepository extends Repository<Card, Long> {
+
+    Page<Card> findAllByUserId(Long userId, Pageable pageable);
+
+    Optional<Card> findByUserIdAndCardId(Long userId, Long cardId);
+
+}
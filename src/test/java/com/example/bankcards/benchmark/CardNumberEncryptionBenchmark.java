@@ -0,0 +1,56 @@
+package com.example.bankcards.benchmark;
+
+import com.example.bankcards.config.CardEncryptionProperties;
+import com.example.bankcards.util.CardEncryptionService;
+import org.openjdk.jmh.annotations.*;
+
+import javax.crypto.Cipher;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Стоимость шифрования и расшифровки номера одной карты: переиспользуемый Cipher
+ * против создания Cipher и ключа на каждую строку.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class CardNumberEncryptionBenchmark {
+
+    static final String KEY = "7kQ2mX9pL4vN8cR1tY6wZ3bH5jF0sD2gK8nM4qP7rT0=";
+
+    CardEncryptionService encryptionService;
+    String cardNumber;
+    String encrypted;
+
+    @Setup
+    public void setUp() {
+        encryptionService = new CardEncryptionService(new CardEncryptionProperties("v1", Map.of("v1", KEY)));
+        cardNumber = "4000123412341234";
+        encrypted = encryptionService.encrypt(cardNumber);
+    }
+
+    @Benchmark
+    public String encryptPooled() {
+        return encryptionService.encrypt(cardNumber);
+    }
+
+    @Benchmark
+    public String decryptPooled() {
+        return encryptionService.decrypt(encrypted);
+    }
+
+    @Benchmark
+    public String decryptPerRow() throws Exception {
+        byte[] data = Base64.getDecoder().decode(encrypted.substring(3));
+        Cipher cipher = Cipher.getInstance("AES/GCM/NoPadding");
+        cipher.init(Cipher.DECRYPT_MODE, new SecretKeySpec(Base64.getDecoder().decode(KEY), "AES"),
+                new GCMParameterSpec(128, data, 0, 12));
+        return new String(cipher.doFinal(data, 12, data.length - 12), StandardCharsets.UTF_8);
+    }
+
+}
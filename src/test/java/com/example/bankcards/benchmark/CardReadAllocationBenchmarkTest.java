@@ -0,0 +1,141 @@
+package com.example.bankcards.benchmark;
+
+import com.example.bankcards.dto.enums.CardStatus;
+import com.example.bankcards.dto.enums.Role;
+import com.example.bankcards.entity.Card;
+import com.example.bankcards.entity.User;
+import com.example.bankcards.mapper.CardMapper;
+import com.example.bankcards.repository.CardRepository;
+import com.example.bankcards.repository.UserRepository;
+import com.example.bankcards.util.CardNumberBlindIndex;
+import com.example.bankcards.util.Money;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.lang.management.ManagementFactory;
+import java.time.LocalDate;
+import java.util.function.Supplier;
+
+/**
+ * Сравнивает объём памяти, выделяемой на один запрос чтения, при загрузке сущностей и при проекции в DTO.
+ */
+@Tag("benchmark")
+@SpringBootTest
+@Testcontainers(disabledWithoutDocker = true)
+class CardReadAllocationBenchmarkTest {
+
+    private static final int CARDS = 200;
+    private static final int WARMUP = 500;
+    private static final int REQUESTS = 2_000;
+
+    @Container
+    static PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:16-alpine");
+
+    @DynamicPropertySource
+    static void datasource(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", postgres::getJdbcUrl);
+        registry.add("spring.datasource.username", postgres::getUsername);
+        registry.add("spring.datasource.password", postgres::getPassword);
+    }
+
+    @Autowired
+    private CardRepository cardRepository;
+
+    @Autowired
+    private CardEntityReadRepository cardEntityReadRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private CardNumberBlindIndex cardNumberBlindIndex;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private TransactionTemplate readOnly;
+    private Long userId;
+    private Long cardId;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate.execute("truncate table cards, users restart identity cascade");
+        readOnly = new TransactionTemplate(transactionManager);
+        readOnly.setReadOnly(true);
+
+        User user = userRepository.save(User.builder()
+                .username("benchmark")
+                .email("benchmark@example.com")
+                .password("benchmark")
+                .role(Role.USER)
+                .build());
+        userId = user.getId();
+
+        for (int i = 0; i < CARDS; i++) {
+            String cardNumber = String.format("4000%012d", i);
+            cardId = cardRepository.save(Card.builder()
+                    .cardNumber(cardNumber)
+                    .cardNumberHash(cardNumberBlindIndex.hash(cardNumber))
+                    .cardNumberMasked("**** **** **** " + cardNumber.substring(12))
+                    .cardHolder("Holder " + i)
+                    .expiryDate(LocalDate.now().plusYears(3))
+                    .status(CardStatus.ACTIVE)
+                    .balance(Money.of("100.00"))
+                    .user(user)
+                    .build()).getCardId();
+        }
+    }
+
+    @Test
+    void pageOfCards() {
+        Pageable pageable = PageRequest.of(0, 50, Sort.by("createdAt").descending());
+
+        bytesPerRequest("page, entities", () ->
+                cardEntityReadRepository.findAllByUserId(userId, pageable).map(CardMapper::toCardDtoOutUser));
+        bytesPerRequest("page, projection", () ->
+                cardRepository.findCardDtosByUserId(userId, pageable));
+    }
+
+    @Test
+    void singleCard() {
+        bytesPerRequest("card, entity", () ->
+                cardEntityReadRepository.findByUserIdAndCardId(userId, cardId).map(CardMapper::toCardDtoOutUser));
+        bytesPerRequest("card, projection", () ->
+                cardRepository.findCardDtoByUserIdAndCardId(userId, cardId));
+    }
+
+    private void bytesPerRequest(String name, Supplier<?> request) {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        for (int i = 0; i < WARMUP; i++) {
+            readOnly.execute(status -> request.get());
+        }
+
+        long before = threads.getCurrentThreadAllocatedBytes();
+        long started = System.nanoTime();
+        for (int i = 0; i < REQUESTS; i++) {
+            readOnly.execute(status -> request.get());
+        }
+        long elapsed = System.nanoTime() - started;
+        long bytes = (threads.getCurrentThreadAllocatedBytes() - before) / REQUESTS;
+
+        System.out.printf("%s: %d B/request, %.1f us/request%n", name, bytes, elapsed / 1_000.0 / REQUESTS);
+    }
+
+}
@@ -0,0 +1,37 @@
+package com.example.bankcards.benchmark;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jmh.runner.options.TimeValue;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+/**
+ * Запускает JMH-бенчмарки пакета: {@code mvn test -Pbenchmark -Djmh.include=MoneyArithmetic}.
+ */
+@Tag("benchmark")
+class JmhBenchmarksTest {
+
+    @Test
+    void runBenchmarks() throws Exception {
+        Options options = new OptionsBuilder()
+                .include(getClass().getPackageName() + "." + System.getProperty("jmh.include", ".*Benchmark") + ".*")
+                .forks(1)
+                .addProfiler(GCProfiler.class)
+                .warmupIterations(3)
+                .warmupTime(TimeValue.seconds(1))
+                .measurementIterations(5)
+                .measurementTime(TimeValue.seconds(1))
+                .resultFormat(ResultFormatType.JSON)
+                .result("target/jmh-result.json")
+                .build();
+
+        assertFalse(new Runner(options).run().isEmpty());
+    }
+
+}
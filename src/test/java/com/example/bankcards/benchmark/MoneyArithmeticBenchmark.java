@@ -0,0 +1,56 @@
+package com.example.bankcards.benchmark;
+
+import com.example.bankcards.util.Money;
+import org.openjdk.jmh.annotations.*;
+
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Списание и зачисление одного перевода: проверка остатка, вычитание и сложение.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class MoneyArithmeticBenchmark {
+
+    BigDecimal decimalFrom;
+    BigDecimal decimalTo;
+    BigDecimal decimalAmount;
+
+    Money moneyFrom;
+    Money moneyTo;
+    Money moneyAmount;
+
+    @Setup(Level.Iteration)
+    public void setUp() {
+        decimalFrom = new BigDecimal("1000000.00");
+        decimalTo = new BigDecimal("500.00");
+        decimalAmount = new BigDecimal("3.17");
+
+        moneyFrom = Money.of(decimalFrom);
+        moneyTo = Money.of(decimalTo);
+        moneyAmount = Money.of(decimalAmount);
+    }
+
+    @Benchmark
+    public BigDecimal bigDecimalTransfer() {
+        if (decimalAmount.compareTo(decimalFrom) > 0) {
+            decimalFrom = decimalFrom.add(decimalTo);
+        }
+        decimalFrom = decimalFrom.subtract(decimalAmount);
+        decimalTo = decimalTo.add(decimalAmount);
+        return decimalTo;
+    }
+
+    @Benchmark
+    public Money moneyTransfer() {
+        if (moneyAmount.isGreaterThan(moneyFrom)) {
+            moneyFrom = moneyFrom.plus(moneyTo);
+        }
+        moneyFrom = moneyFrom.minus(moneyAmount);
+        moneyTo = moneyTo.plus(moneyAmount);
+        return moneyTo;
+    }
+
+}
@@ -0,0 +1,141 @@
+package com.example.bankcards.benchmark;
+
+import com.example.bankcards.dto.card.TransferRequest;
+import com.example.bankcards.dto.enums.CardStatus;
+import com.example.bankcards.dto.enums.Role;
+import com.example.bankcards.entity.Card;
+import com.example.bankcards.entity.User;
+import com.example.bankcards.exception.NotEnoughMoneyException;
+import com.example.bankcards.repository.CardRepository;
+import com.example.bankcards.repository.UserRepository;
+import com.example.bankcards.service.card.engine.JpaBalanceEngine;
+import com.example.bankcards.util.CardNumberBlindIndex;
+import com.example.bankcards.util.Money;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Пропускная способность переводов между небольшим набором горячих карт.
+ */
+@Tag("benchmark")
+@SpringBootTest
+@Testcontainers(disabledWithoutDocker = true)
+class TransferThroughputBenchmarkTest {
+
+    private static final int CARDS = 8;
+    private static final int THREADS = 16;
+    private static final int TRANSFERS = 10_000;
+
+    @Container
+    static PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:16-alpine");
+
+    @DynamicPropertySource
+    static void datasource(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", postgres::getJdbcUrl);
+        registry.add("spring.datasource.username", postgres::getUsername);
+        registry.add("spring.datasource.password", postgres::getPassword);
+        registry.add("spring.datasource.hikari.maximum-pool-size", () -> THREADS);
+    }
+
+    @Autowired
+    private CardRepository cardRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private JpaBalanceEngine balanceEngine;
+
+    @Autowired
+    private CardNumberBlindIndex cardNumberBlindIndex;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private final List<Card> cards = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate.execute("truncate table cards, users restart identity cascade");
+        cards.clear();
+
+        User user = userRepository.save(User.builder()
+                .username("benchmark")
+                .email("benchmark@example.com")
+                .password("benchmark")
+                .role(Role.USER)
+                .build());
+
+        for (int i = 0; i < CARDS; i++) {
+            String cardNumber = String.format("4000%012d", i);
+            cards.add(cardRepository.save(Card.builder()
+                    .cardNumber(cardNumber)
+                    .cardNumberHash(cardNumberBlindIndex.hash(cardNumber))
+                    .cardNumberMasked("**** **** **** " + cardNumber.substring(12))
+                    .cardHolder("Holder " + i)
+                    .expiryDate(LocalDate.now().plusYears(3))
+                    .status(CardStatus.ACTIVE)
+                    .balance(Money.of("1000.00"))
+                    .user(user)
+                    .build()));
+        }
+    }
+
+    @Test
+    void randomTransfersBetweenHotCards() throws Exception {
+        BigDecimal totalBefore = totalBalance();
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        List<Callable<Void>> tasks = new ArrayList<>(TRANSFERS);
+        for (int i = 0; i < TRANSFERS; i++) {
+            tasks.add(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                Card from = cards.get(random.nextInt(CARDS));
+                Card to = cards.get(random.nextInt(CARDS));
+                try {
+                    balanceEngine.transfer(TransferRequest.builder()
+                            .cardNumberFrom(from.getCardNumber())
+                            .cardHolderFrom(from.getCardHolder())
+                            .cardNumberTo(to.getCardNumber())
+                            .cardHolderTo(to.getCardHolder())
+                            .addedAmount(Money.ofMinorUnits(random.nextInt(1, 30_000)))
+                            .build());
+                } catch (NotEnoughMoneyException ignored) {
+                }
+                return null;
+            });
+        }
+
+        long started = System.nanoTime();
+        for (Future<Void> future : executor.invokeAll(tasks)) {
+            future.get();
+        }
+        long elapsed = System.nanoTime() - started;
+        executor.shutdown();
+
+        System.out.printf("%d transfers between %d cards on %d threads in %d ms, %.0f transfers/s%n",
+                TRANSFERS, CARDS, THREADS, TimeUnit.NANOSECONDS.toMillis(elapsed), TRANSFERS / (elapsed / 1_000_000_000.0));
+        assertEquals(0, totalBefore.compareTo(totalBalance()));
+    }
+
+    private BigDecimal totalBalance() {
+        return jdbcTemplate.queryForObject("select sum(balance) from cards", BigDecimal.class);
+    }
+
+}
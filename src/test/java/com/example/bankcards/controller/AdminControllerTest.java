@@ -1,7 +1,18 @@
 package com.example.bankcards.controller;
 
+import com.example.bankcards.dto.card.AdminJobDto;
+import com.example.bankcards.dto.card.BulkBlockRequest;
+import com.example.bankcards.dto.card.BulkBlockResponse;
 import com.example.bankcards.dto.card.CardDtoBlock;
+import com.example.bankcards.dto.card.CardImportJobDto;
+import com.example.bankcards.dto.card.CardReencryptionStatus;
+import com.example.bankcards.dto.enums.AdminJobStatus;
+import com.example.bankcards.dto.enums.AdminJobType;
+import com.example.bankcards.dto.enums.CardImportStatus;
+import com.example.bankcards.dto.enums.ReencryptionState;
 import com.example.bankcards.service.card.admin.AdminCardService;
+import com.example.bankcards.service.card.encryption.CardReencryptionService;
+import com.example.bankcards.service.card.importing.CardImportService;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -9,14 +20,21 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Page;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.setup.MockMvcBuilders;
 
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
 import java.util.List;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.*;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
@@ -26,6 +44,12 @@ class AdminControllerTest {
     @Mock
     private AdminCardService cardService;
 
+    @Mock
+    private CardReencryptionService reencryptionService;
+
+    @Mock
+    private CardImportService cardImportService;
+
     @InjectMocks
     private AdminController adminController;
 
@@ -51,11 +75,97 @@ class AdminControllerTest {
         verify(cardService, times(1)).getAllCards();
     }
 
+    @Test
+    void importCards_ShouldPassCsvBodyToServiceAndReturnAccepted() throws Exception {
+        when(cardImportService.importCards(any(InputStream.class))).thenAnswer(invocation -> {
+            String csv = new String(invocation.<InputStream>getArgument(0).readAllBytes(), StandardCharsets.UTF_8);
+            assertEquals("1,John Doe,100.00\n", csv);
+            return CardImportJobDto.builder()
+                    .jobId(7L)
+                    .status(CardImportStatus.RUNNING)
+                    .build();
+        });
+
+        mockMvc.perform(post("/api/v1/admin/cards/import")
+                        .contentType("text/csv")
+                        .content("1,John Doe,100.00\n"))
+                .andExpect(status().isAccepted())
+                .andExpect(jsonPath("$.jobId").value(7))
+                .andExpect(jsonPath("$.status").value("RUNNING"));
+    }
+
+    @Test
+    void getImportErrors_ShouldUseDefaultPage() throws Exception {
+        when(cardImportService.getImportErrors(7L, 0, 100)).thenReturn(Page.empty());
+
+        mockMvc.perform(get("/api/v1/admin/cards/import/7/errors"))
+                .andExpect(status().isOk());
+
+        verify(cardImportService, times(1)).getImportErrors(7L, 0, 100);
+    }
+
+    @Test
+    void startReencryption_ShouldReturnAcceptedWithStatus() throws Exception {
+        when(reencryptionService.startReencryption()).thenReturn(CardReencryptionStatus.builder()
+                .keyVersion("v2")
+                .state(ReencryptionState.RUNNING)
+                .totalCards(100)
+                .build());
+
+        mockMvc.perform(post("/api/v1/admin/cards/reencryption"))
+                .andExpect(status().isAccepted())
+                .andExpect(jsonPath("$.keyVersion").value("v2"))
+                .andExpect(jsonPath("$.state").value("RUNNING"));
+
+        verify(reencryptionService, times(1)).startReencryption();
+    }
+
+    @Test
+    void getReencryptionStatus_ShouldReturnProgress() throws Exception {
+        when(reencryptionService.getReencryptionStatus()).thenReturn(CardReencryptionStatus.builder()
+                .keyVersion("v2")
+                .state(ReencryptionState.PAUSED)
+                .lastCardId(40)
+                .processedRows(40)
+                .totalCards(100)
+                .build());
+
+        mockMvc.perform(get("/api/v1/admin/cards/reencryption"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.state").value("PAUSED"))
+                .andExpect(jsonPath("$.processedRows").value(40))
+                .andExpect(jsonPath("$.totalCards").value(100));
+    }
+
+    @Test
+    void exportCards_ShouldStreamNdjsonFromService() throws Exception {
+        doAnswer(invocation -> {
+            OutputStream outputStream = invocation.getArgument(0);
+            outputStream.write("{\"cardId\":1}\n".getBytes(StandardCharsets.UTF_8));
+            return null;
+        }).when(cardService).exportCards(any(OutputStream.class));
+
+        mockMvc.perform(get("/api/v1/admin/cards/export"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_NDJSON))
+                .andExpect(content().string("{\"cardId\":1}\n"));
+
+        verify(cardService, times(1)).exportCards(any(OutputStream.class));
+    }
+
     @Test
     void createCardForUser_ShouldCallService() throws Exception {
+        when(cardService.createCardForUser()).thenReturn(AdminJobDto.builder()
+                .jobId(3L)
+                .jobType(AdminJobType.CREATE_CARDS)
+                .status(AdminJobStatus.RUNNING)
+                .build());
+
         mockMvc.perform(patch("/api/v1/admin/create")
                         .contentType(MediaType.APPLICATION_JSON))
-                .andExpect(status().isOk());
+                .andExpect(status().isAccepted())
+                .andExpect(jsonPath("$.jobId").value(3))
+                .andExpect(jsonPath("$.status").value("RUNNING"));
 
         verify(cardService, times(1)).createCardForUser();
     }
@@ -64,11 +174,61 @@ class AdminControllerTest {
     void blockCardForUsers_ShouldCallService() throws Exception {
         mockMvc.perform(patch("/api/v1/admin/block")
                         .contentType(MediaType.APPLICATION_JSON))
-                .andExpect(status().isOk());
+                .andExpect(status().isAccepted());
 
         verify(cardService, times(1)).blockCardForUsers();
     }
 
+    @Test
+    void getJob_ShouldReturnProgress() throws Exception {
+        when(cardService.getJob(3L)).thenReturn(AdminJobDto.builder()
+                .jobId(3L)
+                .jobType(AdminJobType.BLOCK_CARDS)
+                .status(AdminJobStatus.COMPLETED)
+                .processedItems(250)
+                .failedItems(2)
+                .chunks(3)
+                .itemsPerSecond(125.0)
+                .build());
+
+        mockMvc.perform(get("/api/v1/admin/jobs/3"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.processedItems").value(250))
+                .andExpect(jsonPath("$.failedItems").value(2))
+                .andExpect(jsonPath("$.itemsPerSecond").value(125.0));
+    }
+
+    @Test
+    void blockCards_ShouldReturnUnmatchedPositions() throws Exception {
+        List<CardDtoBlock> cards = List.of(
+                CardDtoBlock.builder().userId(1L).cardNumber("1234567812345678").build(),
+                CardDtoBlock.builder().userId(2L).cardNumber("8765432187654321").build());
+        when(cardService.blockCards(anyList())).thenReturn(BulkBlockResponse.builder()
+                .requested(2)
+                .blocked(1)
+                .notMatched(List.of(1))
+                .build());
+
+        mockMvc.perform(post("/api/v1/admin/cards/block")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(new BulkBlockRequest(cards))))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.blocked").value(1))
+                .andExpect(jsonPath("$.notMatched[0]").value(1));
+
+        verify(cardService, times(1)).blockCards(argThat(list -> list.size() == 2));
+    }
+
+    @Test
+    void blockCards_WithEmptyList_ShouldReturnBadRequest() throws Exception {
+        mockMvc.perform(post("/api/v1/admin/cards/block")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(new BulkBlockRequest(List.of()))))
+                .andExpect(status().isBadRequest());
+
+        verify(cardService, never()).blockCards(any());
+    }
+
     @Test
     void removeCardForUser_WithValidRequest_ShouldCallService() throws Exception {
         CardDtoBlock request = CardDtoBlock.builder()
@@ -2,8 +2,11 @@ package com.example.bankcards.controller;
 
 import com.example.bankcards.dto.card.*;
 import com.example.bankcards.dto.enums.CardStatus;
+import com.example.bankcards.dto.enums.TransferStatus;
 import com.example.bankcards.service.card.admin.AdminCardService;
 import com.example.bankcards.service.card.user.UserCardService;
+import com.example.bankcards.service.idempotency.IdempotencyService;
+import com.example.bankcards.util.Money;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -22,6 +25,7 @@ import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.util.Collections;
 import java.util.List;
+import java.util.function.Supplier;
 
 import static org.mockito.ArgumentMatchers.*;
 import static org.mockito.Mockito.*;
@@ -37,6 +41,9 @@ class UserCardControllerTest {
     @Mock
     private AdminCardService adminCardService;
 
+    @Mock
+    private IdempotencyService idempotencyService;
+
     @InjectMocks
     private UserCardController userCardController;
 
@@ -46,6 +53,8 @@ class UserCardControllerTest {
     @BeforeEach
     void setUp() {
         mockMvc = MockMvcBuilders.standaloneSetup(userCardController).build();
+        lenient().when(idempotencyService.execute(any(), anyString(), any(), any(), any()))
+                .thenAnswer(invocation -> invocation.<Supplier<?>>getArgument(4).get());
         objectMapper = new ObjectMapper();
         objectMapper.findAndRegisterModules();
     }
@@ -83,6 +92,44 @@ class UserCardControllerTest {
         verify(cardService, times(1)).getAllCardsForUser(userId, page, size);
     }
 
+    @Test
+    void getCardsForUserAfterCursor_ShouldReturnSliceWithNextCursor() throws Exception {
+        CardSliceResponse slice = CardSliceResponse.builder()
+                .content(List.of(CardDtoOutUser.builder()
+                        .cardHolder("John Doe")
+                        .cardNumberMasked("**** **** **** 1234")
+                        .build()))
+                .hasNext(true)
+                .nextCursor("next")
+                .build();
+
+        when(cardService.getCardsForUserAfterCursor(1L, "current", 5)).thenReturn(slice);
+
+        mockMvc.perform(get("/api/v1/user/cards/keyset")
+                        .header("X-USER-ID", 1L)
+                        .param("cursor", "current")
+                        .param("size", "5"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content[0].cardHolder").value("John Doe"))
+                .andExpect(jsonPath("$.hasNext").value(true))
+                .andExpect(jsonPath("$.nextCursor").value("next"));
+
+        verify(cardService, times(1)).getCardsForUserAfterCursor(1L, "current", 5);
+    }
+
+    @Test
+    void getCardsForUserAfterCursor_WithoutCursor_ShouldRequestFirstSlice() throws Exception {
+        when(cardService.getCardsForUserAfterCursor(1L, null, 10))
+                .thenReturn(CardSliceResponse.builder().content(List.of()).build());
+
+        mockMvc.perform(get("/api/v1/user/cards/keyset")
+                        .header("X-USER-ID", 1L))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.hasNext").value(false));
+
+        verify(cardService, times(1)).getCardsForUserAfterCursor(1L, null, 10);
+    }
+
     @Test
     void getAllCardsForUser_WithDefaultPagination_ShouldUseDefaults() throws Exception {
         Long userId = 1L;
@@ -111,7 +158,7 @@ class UserCardControllerTest {
         CardDtoIn request = CardDtoIn.builder()
                 .userId(1L)
                 .cardHolder("John Doe")
-                .initialBalance(new BigDecimal("500.00"))
+                .initialBalance(Money.of("500.00"))
                 .build();
 
         String requestBody = objectMapper.writeValueAsString(request);
@@ -129,7 +176,7 @@ class UserCardControllerTest {
         CardDtoIn request = CardDtoIn.builder()
                 .userId(1L)
                 .cardHolder("") // Нарушает валидацию @NotBlank
-                .initialBalance(new BigDecimal("500.00"))
+                .initialBalance(Money.of("500.00"))
                 .build();
 
         String requestBody = objectMapper.writeValueAsString(request);
@@ -208,7 +255,7 @@ class UserCardControllerTest {
         RequestUpdateBalance request = RequestUpdateBalance.builder()
                 .cardNumber("1234567812345678")
                 .cardHolder("John Doe")
-                .addedAmount(new BigDecimal("500.00"))
+                .addedAmount(Money.of("500.00"))
                 .build();
 
         CardDtoOutUser updatedCard = CardDtoOutUser.builder()
@@ -236,7 +283,7 @@ class UserCardControllerTest {
         RequestUpdateBalance request = RequestUpdateBalance.builder()
                 .cardNumber("1234567812345678")
                 .cardHolder("John Doe")
-                .addedAmount(new BigDecimal("-100.00")) // Нарушает @PositiveOrZero
+                .addedAmount(Money.of("-100.00")) // Нарушает @PositiveOrZero
                 .build();
 
         String requestBody = objectMapper.writeValueAsString(request);
@@ -254,7 +301,7 @@ class UserCardControllerTest {
         TransferRequest transferRequest = TransferRequest.builder()
                 .cardNumberFrom("1234567812345678")
                 .cardHolderFrom("John Doe")
-                .addedAmount(new BigDecimal("500.00"))
+                .addedAmount(Money.of("500.00"))
                 .cardNumberTo("8765432187654321")
                 .cardHolderTo("Jane Smith")
                 .build();
@@ -274,7 +321,7 @@ class UserCardControllerTest {
         TransferRequest transferRequest = TransferRequest.builder()
                 .cardNumberFrom("1234567812345678")
                 .cardHolderFrom("") // Нарушает @NotBlank
-                .addedAmount(new BigDecimal("500.00"))
+                .addedAmount(Money.of("500.00"))
                 .cardNumberTo("8765432187654321")
                 .cardHolderTo("Jane Smith")
                 .build();
@@ -294,7 +341,7 @@ class UserCardControllerTest {
         TransferRequest transferRequest = TransferRequest.builder()
                 .cardNumberFrom("1234567812345678")
                 .cardHolderFrom("John Doe")
-                .addedAmount(BigDecimal.ZERO)
+                .addedAmount(Money.ZERO)
                 .cardNumberTo("8765432187654321")
                 .cardHolderTo("Jane Smith")
                 .build();
@@ -328,12 +375,82 @@ class UserCardControllerTest {
         verify(cardService, never()).transferFromOneCardToAnother(any());
     }
 
+    @Test
+    void transferBatch_WithValidRequest_ShouldReturnPerItemResults() throws Exception {
+        TransferRequest transferRequest = TransferRequest.builder()
+                .cardNumberFrom("1234567812345678")
+                .cardHolderFrom("John Doe")
+                .addedAmount(Money.of("500.00"))
+                .cardNumberTo("8765432187654321")
+                .cardHolderTo("Jane Smith")
+                .build();
+        BatchTransferRequest batchRequest = BatchTransferRequest.builder()
+                .transfers(List.of(transferRequest, transferRequest))
+                .build();
+
+        BatchTransferResponse response = BatchTransferResponse.builder()
+                .completed(1)
+                .rejected(1)
+                .results(List.of(
+                        TransferResult.builder().index(0).status(TransferStatus.COMPLETED).build(),
+                        TransferResult.builder().index(1).status(TransferStatus.REJECTED).message("В карте пользователя John Doe недостаточно средств для перевода").build()))
+                .build();
+
+        when(cardService.transferBatch(any(BatchTransferRequest.class))).thenReturn(response);
+
+        mockMvc.perform(patch("/api/v1/user/cards/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(batchRequest)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.completed").value(1))
+                .andExpect(jsonPath("$.rejected").value(1))
+                .andExpect(jsonPath("$.results[1].status").value("REJECTED"));
+
+        verify(cardService, times(1)).transferBatch(any(BatchTransferRequest.class));
+        verify(cardService, never()).updateBalanceCard(any());
+    }
+
+    @Test
+    void transferBatch_WithEmptyList_ShouldReturnBadRequest() throws Exception {
+        BatchTransferRequest batchRequest = BatchTransferRequest.builder()
+                .transfers(List.of())
+                .build();
+
+        mockMvc.perform(patch("/api/v1/user/cards/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(batchRequest)))
+                .andExpect(status().isBadRequest());
+
+        verify(cardService, never()).transferBatch(any());
+    }
+
+    @Test
+    void transferFromOneCardToAnother_WithIdempotencyKey_ShouldPassKeyToIdempotencyService() throws Exception {
+        TransferRequest transferRequest = TransferRequest.builder()
+                .cardNumberFrom("1234567812345678")
+                .cardHolderFrom("John Doe")
+                .addedAmount(Money.of("500.00"))
+                .cardNumberTo("8765432187654321")
+                .cardHolderTo("Jane Smith")
+                .build();
+
+        mockMvc.perform(patch("/api/v1/user/cards")
+                        .header("Idempotency-Key", "transfer-42")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(transferRequest)))
+                .andExpect(status().isOk());
+
+        verify(idempotencyService, times(1))
+                .execute(eq("transfer-42"), eq("transfer"), any(TransferRequest.class), eq(Void.class), any());
+        verify(cardService, times(1)).transferFromOneCardToAnother(any(TransferRequest.class));
+    }
+
     @Test
     void updateBalanceCard_WithMissingCardHolder_ShouldReturnBadRequest() throws Exception {
         RequestUpdateBalance request = RequestUpdateBalance.builder()
                 .cardNumber("1234567812345678")
                 .cardHolder("") // Нарушает @NotBlank
-                .addedAmount(new BigDecimal("500.00"))
+                .addedAmount(Money.of("500.00"))
                 .build();
 
         String requestBody = objectMapper.writeValueAsString(request);
@@ -369,7 +486,7 @@ class UserCardControllerTest {
         TransferRequest expectedRequest = TransferRequest.builder()
                 .cardNumberFrom("1234567812345678")
                 .cardHolderFrom("John Doe")
-                .addedAmount(new BigDecimal("500.00"))
+                .addedAmount(Money.of("500.00"))
                 .cardNumberTo("8765432187654321")
                 .cardHolderTo("Jane Smith")
                 .build();
@@ -384,7 +501,7 @@ class UserCardControllerTest {
         verify(cardService, times(1)).transferFromOneCardToAnother(argThat(request ->
                 request.getCardNumberFrom().equals("1234567812345678") &&
                         request.getCardHolderFrom().equals("John Doe") &&
-                        request.getAddedAmount().equals(new BigDecimal("500.00")) &&
+                        request.getAddedAmount().equals(Money.of("500.00")) &&
                         request.getCardNumberTo().equals("8765432187654321") &&
                         request.getCardHolderTo().equals("Jane Smith")
         ));
@@ -395,7 +512,7 @@ class UserCardControllerTest {
         RequestUpdateBalance expectedRequest = RequestUpdateBalance.builder()
                 .cardNumber("1234567812345678")
                 .cardHolder("John Doe")
-                .addedAmount(new BigDecimal("300.00"))
+                .addedAmount(Money.of("300.00"))
                 .build();
 
         CardDtoOutUser response = CardDtoOutUser.builder()
@@ -414,7 +531,7 @@ class UserCardControllerTest {
         verify(cardService, times(1)).updateBalanceCard(argThat(request ->
                 request.getCardNumber().equals("1234567812345678") &&
                         request.getCardHolder().equals("John Doe") &&
-                        request.getAddedAmount().equals(new BigDecimal("300.00"))
+                        request.getAddedAmount().equals(Money.of("300.00"))
         ));
     }
 
@@ -423,7 +540,7 @@ class UserCardControllerTest {
         CardDtoIn request = CardDtoIn.builder()
                 .userId(null)
                 .cardHolder("John Doe")
-                .initialBalance(new BigDecimal("500.00"))
+                .initialBalance(Money.of("500.00"))
                 .build();
 
         String requestBody = objectMapper.writeValueAsString(request);
@@ -459,7 +576,7 @@ class UserCardControllerTest {
         CardDtoIn request = CardDtoIn.builder()
                 .userId(1L)
                 .cardHolder("John Doe")
-                .initialBalance(BigDecimal.ZERO)
+                .initialBalance(Money.ZERO)
                 .build();
 
         String requestBody = objectMapper.writeValueAsString(request);
@@ -0,0 +1,64 @@
+package com.example.bankcards.security;
+
+import com.example.bankcards.dto.enums.Role;
+import com.example.bankcards.entity.User;
+import io.jsonwebtoken.ExpiredJwtException;
+import io.jsonwebtoken.security.SignatureException;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class JwtServiceTest {
+
+    private static final String SECRET = "q5V0cY3mJ8pT2wN6rL9eH4sA1uK7zX0bD3fG6jM9nQ2=";
+
+    private final User user = User.builder()
+            .id(1L)
+            .username("john_doe")
+            .role(Role.ADMIN)
+            .build();
+
+    @Test
+    void verify_ShouldReturnSubjectAndRole() {
+        JwtService jwtService = new JwtService(SECRET, Duration.ofMinutes(30), 100);
+
+        JwtService.VerifiedToken verified = jwtService.verify(jwtService.createToken(user, "family-1"));
+
+        assertNotNull(verified.tokenId());
+        assertEquals("john_doe", verified.username());
+        assertEquals(List.of("ADMIN"), verified.roles());
+        assertEquals("family-1", verified.refreshFamilyId());
+        assertTrue(verified.expiresAt().isAfter(Instant.now()));
+    }
+
+    @Test
+    void verify_WithSameToken_ShouldReuseVerifiedClaims() {
+        JwtService jwtService = new JwtService(SECRET, Duration.ofMinutes(30), 100);
+        String token = jwtService.createToken(user, "family-1");
+
+        assertSame(jwtService.verify(token), jwtService.verify(token));
+        assertNotEquals(jwtService.verify(token).tokenId(), jwtService.verify(jwtService.createToken(user, "family-1")).tokenId());
+    }
+
+    @Test
+    void verify_WithExpiredToken_ShouldThrowExpiredJwtException() {
+        JwtService jwtService = new JwtService(SECRET, Duration.ofMinutes(-1), 100);
+        String token = jwtService.createToken(user, "family-1");
+
+        assertThrows(ExpiredJwtException.class, () -> jwtService.verify(token));
+        assertThrows(ExpiredJwtException.class, () -> jwtService.verify(token));
+    }
+
+    @Test
+    void verify_WithForeignSignature_ShouldThrowSignatureException() {
+        JwtService jwtService = new JwtService(SECRET, Duration.ofMinutes(30), 100);
+        JwtService otherService = new JwtService("dGhpcyBpcyBhbm90aGVyIHNlY3JldCBvZiAzMiBieXRlcyEh", Duration.ofMinutes(30), 100);
+
+        assertThrows(SignatureException.class, () -> jwtService.verify(otherService.createToken(user, "family-1")));
+    }
+
+}
@@ -0,0 +1,63 @@
+package com.example.bankcards.security;
+
+import com.example.bankcards.exception.AuthOverloadedException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PasswordVerifierTest {
+
+    private final BCryptPasswordEncoder passwordEncoder = new BCryptPasswordEncoder(4);
+
+    private final ThreadPoolExecutor executor = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(1), new ThreadPoolExecutor.AbortPolicy());
+
+    private final PasswordVerifier passwordVerifier = new PasswordVerifier(passwordEncoder, executor);
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void matches_ShouldCheckPasswordOnThePool() {
+        String encoded = passwordEncoder.encode("secret");
+
+        assertTrue(passwordVerifier.matches("secret", encoded));
+        assertFalse(passwordVerifier.matches("wrong", encoded));
+    }
+
+    @Test
+    void matches_WithUnknownUser_ShouldRejectEvenTheDummyPassword() {
+        assertFalse(passwordVerifier.matches("dummy-password", null));
+    }
+
+    @Test
+    void matches_WhenQueueIsFull_ShouldRejectImmediately() throws InterruptedException {
+        CountDownLatch release = new CountDownLatch(1);
+        executor.execute(() -> awaitQuietly(release));
+        executor.execute(() -> awaitQuietly(release));
+
+        AuthOverloadedException exception = assertThrows(AuthOverloadedException.class,
+                () -> passwordVerifier.matches("secret", passwordEncoder.encode("secret")));
+
+        assertEquals("Сервис входа перегружен, повторите попытку позже", exception.getMessage());
+        release.countDown();
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+}
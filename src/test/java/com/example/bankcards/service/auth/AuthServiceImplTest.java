@@ -0,0 +1,225 @@
+package com.example.bankcards.service.auth;
+
+import com.example.bankcards.dto.enums.Role;
+import com.example.bankcards.dto.jwt.JwtRequest;
+import com.example.bankcards.dto.jwt.JwtResponse;
+import com.example.bankcards.dto.jwt.RefreshTokenRequest;
+import com.example.bankcards.entity.RefreshToken;
+import com.example.bankcards.entity.User;
+import com.example.bankcards.exception.AuthOverloadedException;
+import com.example.bankcards.exception.AuthTokenNotValidException;
+import com.example.bankcards.repository.RefreshTokenRepository;
+import com.example.bankcards.security.JwtService;
+import com.example.bankcards.security.PasswordVerifier;
+import com.example.bankcards.service.user.UserCache;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.commons.codec.digest.DigestUtils;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.sql.ResultSet;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class AuthServiceImplTest {
+
+    @Mock
+    private UserCache userCache;
+
+    @Mock
+    private PasswordVerifier passwordVerifier;
+
+    @Mock
+    private JwtService jwtService;
+
+    @Mock
+    private RefreshTokenRepository refreshTokenRepository;
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @Mock
+    private TokenRevocationService tokenRevocationService;
+
+    @Spy
+    private MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @InjectMocks
+    private AuthServiceImpl authService;
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(authService, "refreshLifeTime", Duration.ofDays(30));
+    }
+
+    private final User user = User.builder()
+            .id(1L)
+            .username("john_doe")
+            .password("$2a$10$hash")
+            .role(Role.USER)
+            .build();
+
+    @Test
+    void createAuthToken_ShouldLoadUserOnce() {
+        when(userCache.findByUsername("john_doe")).thenReturn(Optional.of(user));
+        when(passwordVerifier.matches("secret", "$2a$10$hash")).thenReturn(true);
+        when(jwtService.createToken(eq(user), anyString())).thenReturn("token");
+
+        JwtResponse response = authService.createAuthToken(request("john_doe", "secret"));
+
+        assertEquals("token", response.getToken());
+        assertNotNull(response.getRefreshToken());
+        RefreshToken stored = savedRefreshToken();
+        assertEquals(DigestUtils.sha256Hex(response.getRefreshToken()), stored.getTokenHash());
+        assertEquals(1L, stored.getUserId());
+        assertNotNull(stored.getFamilyId());
+        verify(jwtService).createToken(user, stored.getFamilyId());
+        verify(userCache, times(1)).findByUsername("john_doe");
+        assertEquals(1, meterRegistry.timer("auth.login", "outcome", "success").count());
+    }
+
+    @Test
+    void createAuthToken_WithWrongPassword_ShouldThrowAuthTokenNotValidException() {
+        when(userCache.findByUsername("john_doe")).thenReturn(Optional.of(user));
+        when(passwordVerifier.matches("wrong", "$2a$10$hash")).thenReturn(false);
+
+        assertThrows(AuthTokenNotValidException.class, () -> authService.createAuthToken(request("john_doe", "wrong")));
+
+        verify(jwtService, never()).createToken(any(), any());
+        assertEquals(1, meterRegistry.timer("auth.login", "outcome", "bad_credentials").count());
+    }
+
+    @Test
+    void createAuthToken_WithUnknownUser_ShouldStillVerifyPassword() {
+        when(userCache.findByUsername("ghost")).thenReturn(Optional.empty());
+        when(passwordVerifier.matches("secret", null)).thenReturn(false);
+
+        AuthTokenNotValidException exception = assertThrows(AuthTokenNotValidException.class,
+                () -> authService.createAuthToken(request("ghost", "secret")));
+
+        assertEquals("Пользователя с именем ghost не существует", exception.getMessage());
+    }
+
+    @Test
+    void createAuthToken_WhenVerifierIsOverloaded_ShouldPropagateRejection() {
+        when(userCache.findByUsername("john_doe")).thenReturn(Optional.of(user));
+        when(passwordVerifier.matches("secret", "$2a$10$hash")).thenThrow(new AuthOverloadedException("Сервис входа перегружен, повторите попытку позже"));
+
+        assertThrows(AuthOverloadedException.class, () -> authService.createAuthToken(request("john_doe", "secret")));
+
+        assertEquals(1, meterRegistry.timer("auth.login", "outcome", "rejected").count());
+    }
+
+    @Test
+    void refreshAuthToken_ShouldRotateWithinTheSameFamily() {
+        stubRotation(List.of(row("family-1", 1L, "john_doe", "USER")));
+        when(jwtService.createToken(any(User.class), eq("family-1"))).thenReturn("token");
+
+        JwtResponse response = authService.refreshAuthToken(refreshRequest("old-refresh"));
+
+        assertEquals("token", response.getToken());
+        assertNotEquals("old-refresh", response.getRefreshToken());
+        RefreshToken stored = savedRefreshToken();
+        assertEquals("family-1", stored.getFamilyId());
+        assertEquals(DigestUtils.sha256Hex(response.getRefreshToken()), stored.getTokenHash());
+        verifyNoInteractions(userCache, passwordVerifier);
+        verify(refreshTokenRepository, never()).revokeFamily(any(), any());
+    }
+
+    @Test
+    void refreshAuthToken_WithUsedToken_ShouldRevokeTheWholeFamily() {
+        stubRotation(List.of());
+        when(refreshTokenRepository.findByTokenHash(DigestUtils.sha256Hex("stolen"))).thenReturn(Optional.of(RefreshToken.builder()
+                .familyId("family-1")
+                .userId(1L)
+                .usedAt(LocalDateTime.now().minusMinutes(5))
+                .build()));
+
+        AuthTokenNotValidException exception = assertThrows(AuthTokenNotValidException.class,
+                () -> authService.refreshAuthToken(refreshRequest("stolen")));
+
+        assertEquals("Refresh-токен недействителен", exception.getMessage());
+        verify(refreshTokenRepository).revokeFamily(eq("family-1"), any(LocalDateTime.class));
+        verify(jwtService, never()).createToken(any(), any());
+    }
+
+    @Test
+    void refreshAuthToken_WithUnknownToken_ShouldThrowWithoutRevoking() {
+        stubRotation(List.of());
+        when(refreshTokenRepository.findByTokenHash(anyString())).thenReturn(Optional.empty());
+
+        assertThrows(AuthTokenNotValidException.class, () -> authService.refreshAuthToken(refreshRequest("garbage")));
+
+        verify(refreshTokenRepository, never()).revokeFamily(any(), any());
+        verify(refreshTokenRepository, never()).save(any());
+    }
+
+    @Test
+    void logout_ShouldRevokeTheAccessTokenUntilItExpiresAndItsRefreshFamily() {
+        Instant expiresAt = Instant.now().plusSeconds(600);
+        when(jwtService.verify("access")).thenReturn(new JwtService.VerifiedToken("jti-1", "john_doe", List.of("USER"), expiresAt, "family-1"));
+
+        authService.logout("access");
+
+        verify(tokenRevocationService).revoke("jti-1", expiresAt);
+        verify(refreshTokenRepository).revokeFamily(eq("family-1"), any(LocalDateTime.class));
+    }
+
+    private void stubRotation(List<Map<String, Object>> rows) {
+        when(jdbcTemplate.query(eq(AuthServiceImpl.ROTATE_REFRESH_TOKEN_SQL), any(RowMapper.class), any(), any(), any()))
+                .thenAnswer(invocation -> {
+                    RowMapper<?> rowMapper = invocation.getArgument(1);
+                    List<Object> mapped = new ArrayList<>();
+                    for (Map<String, Object> row : rows) {
+                        ResultSet resultSet = mock(ResultSet.class);
+                        when(resultSet.getString(anyString())).thenAnswer(column -> (String) row.get(column.<String>getArgument(0)));
+                        when(resultSet.getLong("id")).thenReturn((Long) row.get("id"));
+                        mapped.add(rowMapper.mapRow(resultSet, mapped.size()));
+                    }
+                    return mapped;
+                });
+    }
+
+    private static Map<String, Object> row(String familyId, Long id, String username, String role) {
+        return Map.of("family_id", familyId, "id", id, "username", username, "role", role);
+    }
+
+    private RefreshToken savedRefreshToken() {
+        ArgumentCaptor<RefreshToken> captor = ArgumentCaptor.forClass(RefreshToken.class);
+        verify(refreshTokenRepository).save(captor.capture());
+        return captor.getValue();
+    }
+
+    private static RefreshTokenRequest refreshRequest(String refreshToken) {
+        RefreshTokenRequest refreshTokenRequest = new RefreshTokenRequest();
+        refreshTokenRequest.setRefreshToken(refreshToken);
+        return refreshTokenRequest;
+    }
+
+    private static JwtRequest request(String username, String password) {
+        JwtRequest jwtRequest = new JwtRequest();
+        jwtRequest.setUsername(username);
+        jwtRequest.setPassword(password);
+        return jwtRequest;
+    }
+
+}
@@ -0,0 +1,107 @@
+package com.example.bankcards.service.auth;
+
+import com.example.bankcards.dto.jwt.JwtRequest;
+import com.example.bankcards.dto.jwt.JwtResponse;
+import com.example.bankcards.dto.jwt.RefreshTokenRequest;
+import com.example.bankcards.dto.user.UserDtoIn;
+import com.example.bankcards.exception.AuthTokenNotValidException;
+import com.example.bankcards.service.user.UserService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Выход на настоящей базе: после logout не должен работать ни access-токен, ни refresh-токены его цепочки,
+ * включая уже ротированные.
+ */
+@SpringBootTest
+@Testcontainers(disabledWithoutDocker = true)
+class AuthServiceLogoutDatabaseTest {
+
+    private static final String USERNAME = "logout";
+    private static final String PASSWORD = "password";
+
+    @Container
+    static PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:16-alpine");
+
+    @DynamicPropertySource
+    static void datasource(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", postgres::getJdbcUrl);
+        registry.add("spring.datasource.username", postgres::getUsername);
+        registry.add("spring.datasource.password", postgres::getPassword);
+    }
+
+    @Autowired
+    private AuthService authService;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate.execute("truncate table users restart identity cascade");
+        userService.createNewUser(UserDtoIn.builder()
+                .username(USERNAME)
+                .password(PASSWORD)
+                .confirmedPassword(PASSWORD)
+                .email("logout@example.com")
+                .build());
+    }
+
+    @Test
+    void refresh_AfterLogout_ShouldFail() {
+        JwtResponse login = authService.createAuthToken(loginRequest());
+
+        authService.logout(login.getToken());
+
+        assertThrows(AuthTokenNotValidException.class,
+                () -> authService.refreshAuthToken(refreshRequest(login.getRefreshToken())));
+    }
+
+    @Test
+    void refresh_AfterLogoutWithRotatedAccessToken_ShouldFail() {
+        JwtResponse login = authService.createAuthToken(loginRequest());
+        JwtResponse rotated = authService.refreshAuthToken(refreshRequest(login.getRefreshToken()));
+
+        authService.logout(rotated.getToken());
+
+        assertThrows(AuthTokenNotValidException.class,
+                () -> authService.refreshAuthToken(refreshRequest(rotated.getRefreshToken())));
+    }
+
+    @Test
+    void refresh_AfterLogoutOfAnotherSession_ShouldStillWork() {
+        JwtResponse first = authService.createAuthToken(loginRequest());
+        JwtResponse second = authService.createAuthToken(loginRequest());
+
+        authService.logout(first.getToken());
+
+        JwtResponse refreshed = authService.refreshAuthToken(refreshRequest(second.getRefreshToken()));
+        assertNotNull(refreshed.getToken());
+    }
+
+    private JwtRequest loginRequest() {
+        JwtRequest request = new JwtRequest();
+        request.setUsername(USERNAME);
+        request.setPassword(PASSWORD);
+        return request;
+    }
+
+    private RefreshTokenRequest refreshRequest(String refreshToken) {
+        RefreshTokenRequest request = new RefreshTokenRequest();
+        request.setRefreshToken(refreshToken);
+        return request;
+    }
+}
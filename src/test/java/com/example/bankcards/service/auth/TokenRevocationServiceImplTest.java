@@ -0,0 +1,84 @@
+package com.example.bankcards.service.auth;
+
+import com.example.bankcards.entity.RevokedToken;
+import com.example.bankcards.repository.RevokedTokenRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class TokenRevocationServiceImplTest {
+
+    @Mock
+    private RevokedTokenRepository revokedTokenRepository;
+
+    private TokenRevocationServiceImpl tokenRevocationService;
+
+    @BeforeEach
+    void setUp() {
+        tokenRevocationService = new TokenRevocationServiceImpl(revokedTokenRepository, 1_000, 0.001);
+    }
+
+    @Test
+    void isRevoked_WithUnknownToken_ShouldNotTouchTheDatabase() {
+        assertFalse(tokenRevocationService.isRevoked("7a1c2b9e-0000-4000-8000-000000000001"));
+        assertFalse(tokenRevocationService.isRevoked(null));
+
+        verifyNoInteractions(revokedTokenRepository);
+    }
+
+    @Test
+    void revoke_ShouldStoreTokenAndConfirmFilterHitsInDatabase() {
+        String jti = "7a1c2b9e-0000-4000-8000-000000000002";
+        tokenRevocationService.revoke(jti, Instant.now().plus(10, ChronoUnit.MINUTES));
+        when(revokedTokenRepository.existsById(jti)).thenReturn(true);
+
+        assertTrue(tokenRevocationService.isRevoked(jti));
+
+        ArgumentCaptor<RevokedToken> captor = ArgumentCaptor.forClass(RevokedToken.class);
+        verify(revokedTokenRepository).save(captor.capture());
+        assertEquals(jti, captor.getValue().getJti());
+        assertTrue(captor.getValue().getExpiresAt().isAfter(LocalDateTime.now()));
+    }
+
+    @Test
+    void revoke_WithExpiredToken_ShouldSkipStoring() {
+        tokenRevocationService.revoke("7a1c2b9e-0000-4000-8000-000000000003", Instant.now().minusSeconds(1));
+
+        verify(revokedTokenRepository, never()).save(any());
+    }
+
+    @Test
+    void rebuild_ShouldDropExpiredAndLoadActiveTokens() {
+        String active = "7a1c2b9e-0000-4000-8000-000000000004";
+        String revokedElsewhere = "7a1c2b9e-0000-4000-8000-000000000005";
+        tokenRevocationService.revoke(active, Instant.now().plus(10, ChronoUnit.MINUTES));
+        tokenRevocationService.revoke("7a1c2b9e-0000-4000-8000-000000000006", Instant.now().plus(10, ChronoUnit.MINUTES));
+        when(revokedTokenRepository.findActiveJtis(any())).thenReturn(List.of(active, revokedElsewhere));
+        when(revokedTokenRepository.findRevokedSince(any(), any())).thenReturn(List.of());
+        when(revokedTokenRepository.existsById(any())).thenReturn(true);
+
+        tokenRevocationService.rebuild();
+
+        verify(revokedTokenRepository).deleteExpired(any(LocalDateTime.class));
+        assertTrue(tokenRevocationService.isRevoked(active));
+        assertTrue(tokenRevocationService.isRevoked(revokedElsewhere));
+        // Записи, которых нет в таблице, после пересборки отсекаются фильтром без запроса к базе
+        clearInvocations(revokedTokenRepository);
+        assertFalse(tokenRevocationService.isRevoked("7a1c2b9e-0000-4000-8000-000000000006"));
+        verify(revokedTokenRepository, never()).existsById(any());
+    }
+
+}
@@ -1,25 +1,56 @@
 package com.example.bankcards.service.card.admin;
 
+import com.example.bankcards.dto.card.AdminJobDto;
+import com.example.bankcards.dto.card.BulkBlockResponse;
 import com.example.bankcards.dto.card.CardDtoBlock;
+import com.example.bankcards.dto.card.CardDtoExport;
 import com.example.bankcards.dto.card.CardDtoIn;
 import com.example.bankcards.dto.card.CardDtoOut;
+import com.example.bankcards.dto.enums.AdminJobStatus;
+import com.example.bankcards.dto.enums.AdminJobType;
+import com.example.bankcards.dto.enums.CardRequestStatus;
+import com.example.bankcards.dto.enums.CardRequestType;
 import com.example.bankcards.dto.enums.CardStatus;
+import com.example.bankcards.entity.AdminJob;
 import com.example.bankcards.entity.Card;
+import com.example.bankcards.entity.CardRequest;
 import com.example.bankcards.entity.User;
 import com.example.bankcards.exception.CardNotFoundException;
+import com.example.bankcards.exception.UserNotFoundException;
+import com.example.bankcards.repository.AdminJobRepository;
 import com.example.bankcards.repository.CardRepository;
+import com.example.bankcards.repository.CardRequestRepository;
 import com.example.bankcards.service.user.UserServiceImpl;
+import com.example.bankcards.util.CardNumberBlindIndex;
+import com.example.bankcards.util.CardNumberGenerator;
+import com.example.bankcards.util.Money;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.PreparedStatementSetter;
+import org.springframework.jdbc.core.RowMapper;
 import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
-import java.math.BigDecimal;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
 import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.util.*;
+import java.util.stream.Stream;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.*;
@@ -31,9 +62,31 @@ class AdminCardServiceImplTest {
     @Mock
     private CardRepository cardRepository;
 
+    @Mock
+    private CardRequestRepository cardRequestRepository;
+
     @Mock
     private UserServiceImpl userService;
 
+    @Spy
+    private ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules()
+            .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+
+    @Spy
+    private CardNumberBlindIndex cardNumberBlindIndex = new CardNumberBlindIndex("q5V0cY3mJ8pT2wN6rL9eH4sA1uK7zX0bD3fG6jM9nQ2=");
+
+    @Mock
+    private CardNumberGenerator cardNumberGenerator;
+
+    @Spy
+    private TransactionTemplate transactionTemplate = new TransactionTemplate(mock(PlatformTransactionManager.class));
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @Mock
+    private AdminJobRepository adminJobRepository;
+
     @InjectMocks
     private AdminCardServiceImpl adminCardService;
 
@@ -42,9 +95,39 @@ class AdminCardServiceImplTest {
     private CardDtoIn testCardDtoIn;
     private CardDtoBlock testCardDtoBlock;
 
+    // Имитация таблицы card_requests: claimPending отдаёт ещё не обработанные заявки нужного типа
+    private final List<CardRequest> storedRequests = new ArrayList<>();
+
     @BeforeEach
     void setUp() {
         ReflectionTestUtils.setField(adminCardService, "expiryYears", 3);
+        ReflectionTestUtils.setField(adminCardService, "requestBatchSize", 100);
+        ReflectionTestUtils.setField(adminCardService, "blockChunkSize", 1000);
+        // Задание выполняется одним потоком прямо в вызывающем, чтобы результат был виден сразу после вызова
+        ReflectionTestUtils.setField(adminCardService, "adminJobRunner", new AdminJobRunner(adminJobRepository, Runnable::run, 1));
+        lenient().when(adminJobRepository.save(any(AdminJob.class))).thenAnswer(invocation -> {
+            AdminJob job = invocation.getArgument(0);
+            job.setJobId(11L);
+            return job;
+        });
+        lenient().when(cardRequestRepository.save(any(CardRequest.class))).thenAnswer(invocation -> {
+            CardRequest request = invocation.getArgument(0);
+            request.setRequestId((long) storedRequests.size() + 1);
+            storedRequests.add(request);
+            return request;
+        });
+        lenient().when(cardRequestRepository.claimPending(anyString(), anyInt())).thenAnswer(invocation -> storedRequests.stream()
+                .filter(request -> request.getRequestType().name().equals(invocation.getArgument(0)))
+                .filter(request -> request.getStatus() == CardRequestStatus.PENDING)
+                .limit(invocation.<Integer>getArgument(1))
+                .toList());
+        lenient().when(cardNumberGenerator.next(anyInt())).thenAnswer(invocation -> {
+            List<String> cardNumbers = new ArrayList<>();
+            for (int i = 0; i < invocation.<Integer>getArgument(0); i++) {
+                cardNumbers.add(String.format("400000%010d", i));
+            }
+            return cardNumbers;
+        });
 
         LocalDate expiryDate = LocalDate.now().plusYears(3);
 
@@ -61,27 +144,20 @@ class AdminCardServiceImplTest {
                 .cardHolder("John Doe")
                 .expiryDate(expiryDate)
                 .status(CardStatus.ACTIVE)
-                .balance(new BigDecimal("1000.00"))
+                .balance(Money.of("1000.00"))
                 .user(testUser)
                 .build();
 
         testCardDtoIn = CardDtoIn.builder()
                 .userId(1L)
                 .cardHolder("John Doe")
-                .initialBalance(new BigDecimal("500.00"))
+                .initialBalance(Money.of("500.00"))
                 .build();
 
         testCardDtoBlock = CardDtoBlock.builder()
                 .userId(1L)
                 .cardNumber("1234567812345678")
                 .build();
-
-        clearInternalCollections();
-    }
-
-    private void clearInternalCollections() {
-        ReflectionTestUtils.setField(adminCardService, "requestForBlockingCards", new HashMap<Long, String>());
-        ReflectionTestUtils.setField(adminCardService, "requestsForCreateCard", new HashSet<>());
     }
 
     @Test
@@ -107,39 +183,73 @@ class AdminCardServiceImplTest {
         verify(cardRepository, times(1)).findAll();
     }
 
+    @Test
+    void exportCards_ShouldWriteOneJsonObjectPerLine() throws Exception {
+        Stream<CardDtoExport> cards = Stream.of(
+                new CardDtoExport(1L, "John Doe", "**** **** **** 5678", LocalDate.of(2028, 1, 31), CardStatus.ACTIVE,
+                        Money.of("1000.00"), 1L, "john_doe", "john@example.com"),
+                new CardDtoExport(2L, "Jane Smith", "**** **** **** 4321", LocalDate.of(2027, 6, 30), CardStatus.BLOCKED,
+                        Money.of("5.50"), 2L, "jane", "jane@example.com"));
+        when(cardRepository.streamAllForExport()).thenReturn(cards);
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+        adminCardService.exportCards(output);
+
+        String[] lines = output.toString(StandardCharsets.UTF_8).split("\n");
+        assertEquals(2, lines.length);
+        assertTrue(output.toString(StandardCharsets.UTF_8).endsWith("\n"));
+        JsonNode first = objectMapper.readTree(lines[0]);
+        assertEquals(1L, first.get("cardId").asLong());
+        assertEquals("john_doe", first.get("username").asText());
+        assertEquals("2028-01-31", first.get("expiryDate").asText());
+        assertTrue(lines[0].contains("\"balance\":1000.00"));
+        assertEquals("BLOCKED", objectMapper.readTree(lines[1]).get("status").asText());
+        verify(cardRepository, never()).findAll();
+    }
+
+    @Test
+    void exportCards_WhenNoCards_ShouldWriteNothing() {
+        when(cardRepository.streamAllForExport()).thenReturn(Stream.empty());
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+        adminCardService.exportCards(output);
+
+        assertEquals(0, output.size());
+    }
+
     @Test
     void requestCreateCardForUser_ShouldAddToPendingRequests() {
         adminCardService.requestCreateCardForUser(testCardDtoIn);
 
-        when(userService.getEntityById(1L)).thenReturn(testUser);
-        when(cardRepository.save(any(Card.class))).thenReturn(testCard);
+        when(userService.getEntitiesByIds(Set.of(1L))).thenReturn(Map.of(1L, testUser));
 
         adminCardService.createCardForUser();
 
 
-        verify(userService, times(1)).getEntityById(1L);
-        verify(cardRepository, times(1)).save(any(Card.class));
+        verify(userService, times(1)).getEntitiesByIds(Set.of(1L));
+        assertEquals(1, savedCards().size());
     }
 
     @Test
     void createCardForUser_WithPendingRequest_ShouldCreateCard() {
         adminCardService.requestCreateCardForUser(testCardDtoIn);
-        when(userService.getEntityById(1L)).thenReturn(testUser);
-        when(cardRepository.save(any(Card.class))).thenReturn(testCard);
+        when(userService.getEntitiesByIds(Set.of(1L))).thenReturn(Map.of(1L, testUser));
 
         adminCardService.createCardForUser();
 
 
-        verify(userService, times(1)).getEntityById(1L);
-        verify(cardRepository, times(1)).save(any(Card.class));
+        verify(userService, times(1)).getEntitiesByIds(Set.of(1L));
+        assertEquals(1, savedCards().size());
     }
 
     @Test
     void createCardForUser_WithNoRequests_ShouldDoNothing() {
         adminCardService.createCardForUser();
 
-        verify(userService, never()).getEntityById(anyLong());
-        verify(cardRepository, never()).save(any(Card.class));
+        verify(adminJobRepository, never()).addProgress(anyLong(), anyLong(), anyLong());
+        verify(userService, never()).getEntitiesByIds(any());
+        verify(cardRepository, never()).saveAll(any());
+        verify(cardNumberGenerator, never()).next(anyInt());
     }
 
     @Test
@@ -147,7 +257,7 @@ class AdminCardServiceImplTest {
         CardDtoIn secondCardDtoIn = CardDtoIn.builder()
                 .userId(2L)
                 .cardHolder("Jane Smith")
-                .initialBalance(new BigDecimal("1000.00"))
+                .initialBalance(Money.of("1000.00"))
                 .build();
 
         User secondUser = User.builder()
@@ -159,42 +269,39 @@ class AdminCardServiceImplTest {
         adminCardService.requestCreateCardForUser(testCardDtoIn);
         adminCardService.requestCreateCardForUser(secondCardDtoIn);
 
-        when(userService.getEntityById(1L)).thenReturn(testUser);
-        when(userService.getEntityById(2L)).thenReturn(secondUser);
-        when(cardRepository.save(any(Card.class))).thenReturn(testCard);
+        when(userService.getEntitiesByIds(Set.of(1L, 2L))).thenReturn(Map.of(1L, testUser, 2L, secondUser));
 
         adminCardService.createCardForUser();
 
-        verify(userService, times(1)).getEntityById(1L);
-        verify(userService, times(1)).getEntityById(2L);
-        verify(cardRepository, times(2)).save(any(Card.class));
+        verify(userService, times(1)).getEntitiesByIds(Set.of(1L, 2L));
+        verify(cardRepository, times(1)).saveAll(anyList());
+        List<Card> cards = savedCards();
+        assertEquals(2, cards.size());
+        assertSame(testUser, cards.get(0).getUser());
+        assertSame(secondUser, cards.get(1).getUser());
+        verify(cardNumberGenerator, times(1)).next(2);
     }
 
     @Test
     void requestBlockCardForUser_WithValidCard_ShouldAllowBlocking() {
-        when(cardRepository.findByUserIdAndCardNumber(1L, "1234567812345678"))
+        when(cardRepository.findByUserIdAndCardNumberHash(1L, hash("1234567812345678")))
                 .thenReturn(Optional.of(testCard));
 
         adminCardService.requestBlockCardForUser(1L, "1234567812345678");
 
-        Card cardToSave = Card.builder()
-                .cardId(1L)
-                .cardNumber("1234567812345678")
-                .status(CardStatus.BLOCKED)
-                .build();
-        when(cardRepository.save(any(Card.class))).thenReturn(cardToSave);
+        stubCardsTable(testCard);
 
         adminCardService.blockCardForUsers();
 
-        verify(cardRepository, times(2)).findByUserIdAndCardNumber(1L, "1234567812345678");
-        verify(cardRepository, times(1)).save(argThat(card ->
-                card.getStatus() == CardStatus.BLOCKED
-        ));
+        verify(cardRepository, times(1)).findByUserIdAndCardNumberHash(1L, hash("1234567812345678"));
+        assertEquals(CardStatus.BLOCKED, testCard.getStatus());
+        verify(cardRepository, never()).findById(anyLong());
+        verify(cardRepository, never()).save(any(Card.class));
     }
 
     @Test
     void requestBlockCardForUser_WithNonExistingCard_ShouldThrowException() {
-        when(cardRepository.findByUserIdAndCardNumber(1L, "9999999999999999"))
+        when(cardRepository.findByUserIdAndCardNumberHash(1L, hash("9999999999999999")))
                 .thenReturn(Optional.empty());
 
 
@@ -210,33 +317,24 @@ class AdminCardServiceImplTest {
     void blockCardForUsers_WithNoRequests_ShouldDoNothing() {
         adminCardService.blockCardForUsers();
 
-        verify(cardRepository, never()).findByUserIdAndCardNumber(anyLong(), anyString());
-        verify(cardRepository, never()).save(any(Card.class));
+        verify(cardRepository, never()).findByUserIdAndCardNumberHash(anyLong(), anyString());
+        verifyNoInteractions(jdbcTemplate);
     }
 
     @Test
     void blockCardForUsers_AfterRequest_ShouldBlockCard() {
-        when(cardRepository.findByUserIdAndCardNumber(1L, "1234567812345678"))
+        when(cardRepository.findByUserIdAndCardNumberHash(1L, hash("1234567812345678")))
                 .thenReturn(Optional.of(testCard));
 
         adminCardService.requestBlockCardForUser(1L, "1234567812345678");
 
-        Card blockedCard = Card.builder()
-                .cardId(1L)
-                .cardNumber("1234567812345678")
-                .status(CardStatus.BLOCKED)
-                .build();
-
-        when(cardRepository.findByUserIdAndCardNumber(1L, "1234567812345678"))
-                .thenReturn(Optional.of(testCard));
-        when(cardRepository.save(any(Card.class))).thenReturn(blockedCard);
+        stubCardsTable(testCard);
 
         adminCardService.blockCardForUsers();
 
-        verify(cardRepository, times(2)).findByUserIdAndCardNumber(1L, "1234567812345678");
-        verify(cardRepository, times(1)).save(argThat(card ->
-                card.getStatus() == CardStatus.BLOCKED
-        ));
+        verify(cardRepository, times(1)).findByUserIdAndCardNumberHash(1L, hash("1234567812345678"));
+        assertEquals(CardStatus.BLOCKED, testCard.getStatus());
+        assertEquals(CardRequestStatus.COMPLETED, storedRequests.get(0).getStatus());
     }
 
     @Test
@@ -255,35 +353,92 @@ class AdminCardServiceImplTest {
                 .user(secondUser)
                 .build();
 
-        when(cardRepository.findByUserIdAndCardNumber(1L, "1234567812345678"))
-                .thenReturn(Optional.of(testCard))
+        when(cardRepository.findByUserIdAndCardNumberHash(1L, hash("1234567812345678")))
                 .thenReturn(Optional.of(testCard));
-
-        when(cardRepository.findByUserIdAndCardNumber(2L, "8765432187654321"))
-                .thenReturn(Optional.of(secondCard))
+        when(cardRepository.findByUserIdAndCardNumberHash(2L, hash("8765432187654321")))
                 .thenReturn(Optional.of(secondCard));
+        stubCardsTable(testCard, secondCard);
 
         adminCardService.requestBlockCardForUser(1L, "1234567812345678");
         adminCardService.requestBlockCardForUser(2L, "8765432187654321");
 
-        when(cardRepository.save(any(Card.class))).thenAnswer(invocation ->
-                invocation.getArgument(0)
-        );
+        adminCardService.blockCardForUsers();
 
+        verify(cardRepository, times(1)).findByUserIdAndCardNumberHash(1L, hash("1234567812345678"));
+        verify(cardRepository, times(1)).findByUserIdAndCardNumberHash(2L, hash("8765432187654321"));
+        verify(jdbcTemplate, times(1)).query(eq(AdminCardServiceImpl.BLOCK_BY_ID_SQL), any(PreparedStatementSetter.class), any(RowMapper.class));
+        assertEquals(CardStatus.BLOCKED, testCard.getStatus());
+        assertEquals(CardStatus.BLOCKED, secondCard.getStatus());
+    }
+
+    @Test
+    void blockCardForUsers_WithDeletedCard_ShouldFailOnlyThatRequest() {
+        Card deletedCard = Card.builder()
+                .cardId(2L)
+                .cardNumber("8765432187654321")
+                .status(CardStatus.ACTIVE)
+                .user(testUser)
+                .build();
+        when(cardRepository.findByUserIdAndCardNumberHash(1L, hash("1234567812345678"))).thenReturn(Optional.of(testCard));
+        when(cardRepository.findByUserIdAndCardNumberHash(1L, hash("8765432187654321"))).thenReturn(Optional.of(deletedCard));
+        stubCardsTable(testCard);
+
+        adminCardService.requestBlockCardForUser(1L, "1234567812345678");
+        adminCardService.requestBlockCardForUser(1L, "8765432187654321");
         adminCardService.blockCardForUsers();
 
-        verify(cardRepository, times(2)).findByUserIdAndCardNumber(1L, "1234567812345678");
-        verify(cardRepository, times(2)).findByUserIdAndCardNumber(2L, "8765432187654321");
-        verify(cardRepository, times(2)).save(any(Card.class));
+        assertEquals(CardRequestStatus.COMPLETED, storedRequests.get(0).getStatus());
+        assertEquals(CardRequestStatus.FAILED, storedRequests.get(1).getStatus());
+        assertEquals("Карта для пользователя с 1 не найдена", storedRequests.get(1).getError());
+        assertEquals(CardStatus.ACTIVE, deletedCard.getStatus());
+    }
+
+    @Test
+    void blockCards_ShouldBlockMatchedCardsAndReportTheRest() {
+        Card secondCard = Card.builder()
+                .cardId(2L)
+                .cardNumber("8765432187654321")
+                .status(CardStatus.ACTIVE)
+                .user(testUser)
+                .build();
+        stubCardsTable(testCard, secondCard);
+
+        BulkBlockResponse response = adminCardService.blockCards(List.of(
+                testCardDtoBlock,
+                CardDtoBlock.builder().userId(2L).cardNumber("8765432187654321").build(),
+                CardDtoBlock.builder().userId(1L).cardNumber("8765432187654321").build()));
+
+        assertEquals(3, response.getRequested());
+        assertEquals(2, response.getBlocked());
+        assertEquals(List.of(1), response.getNotMatched());
+        assertEquals(CardStatus.BLOCKED, testCard.getStatus());
+        assertEquals(CardStatus.BLOCKED, secondCard.getStatus());
+        verify(jdbcTemplate, times(1)).query(eq(AdminCardServiceImpl.BLOCK_BY_NUMBER_SQL), any(PreparedStatementSetter.class), any(RowMapper.class));
+        verifyNoInteractions(cardRequestRepository);
+    }
+
+    @Test
+    void blockCards_WithMoreCardsThanChunk_ShouldIssueOneStatementPerChunk() {
+        ReflectionTestUtils.setField(adminCardService, "blockChunkSize", 2);
+        stubCardsTable(testCard);
+
+        BulkBlockResponse response = adminCardService.blockCards(List.of(
+                CardDtoBlock.builder().userId(1L).cardNumber("4000000000000001").build(),
+                CardDtoBlock.builder().userId(1L).cardNumber("4000000000000002").build(),
+                testCardDtoBlock));
+
+        assertEquals(1, response.getBlocked());
+        assertEquals(List.of(0, 1), response.getNotMatched());
+        verify(jdbcTemplate, times(2)).query(eq(AdminCardServiceImpl.BLOCK_BY_NUMBER_SQL), any(PreparedStatementSetter.class), any(RowMapper.class));
     }
     @Test
     void removeCardForUser_WithValidCard_ShouldMarkAsExpired() {
-        when(cardRepository.findByUserIdAndCardNumber(1L, "1234567812345678"))
+        when(cardRepository.findByUserIdAndCardNumberHash(1L, hash("1234567812345678")))
                 .thenReturn(Optional.of(testCard));
 
         adminCardService.removeCardForUser(testCardDtoBlock);
 
-        verify(cardRepository, times(1)).findByUserIdAndCardNumber(1L, "1234567812345678");
+        verify(cardRepository, times(1)).findByUserIdAndCardNumberHash(1L, hash("1234567812345678"));
         verify(cardRepository, times(1)).save(argThat(card ->
                 card.getStatus() == CardStatus.EXPIRED
         ));
@@ -291,7 +446,7 @@ class AdminCardServiceImplTest {
 
     @Test
     void removeCardForUser_WithNonExistingCard_ShouldThrowException() {
-        when(cardRepository.findByUserIdAndCardNumber(1L, "9999999999999999"))
+        when(cardRepository.findByUserIdAndCardNumberHash(1L, hash("9999999999999999")))
                 .thenReturn(Optional.empty());
 
         CardDtoBlock invalidDto = CardDtoBlock.builder()
@@ -311,7 +466,7 @@ class AdminCardServiceImplTest {
     @Test
     void removeCardForUser_WithBlockedCard_ShouldChangeToExpired() {
         testCard.setStatus(CardStatus.BLOCKED);
-        when(cardRepository.findByUserIdAndCardNumber(1L, "1234567812345678"))
+        when(cardRepository.findByUserIdAndCardNumberHash(1L, hash("1234567812345678")))
                 .thenReturn(Optional.of(testCard));
 
         adminCardService.removeCardForUser(testCardDtoBlock);
@@ -325,51 +480,40 @@ class AdminCardServiceImplTest {
     void createCardForUser_ShouldSetExpiryDateCorrectly() {
         adminCardService.requestCreateCardForUser(testCardDtoIn);
 
-        when(userService.getEntityById(1L)).thenReturn(testUser);
-        when(cardRepository.save(any(Card.class))).thenAnswer(invocation -> {
-            Card savedCard = invocation.getArgument(0);
-            assertNotNull(savedCard.getExpiryDate());
-            assertEquals(LocalDate.now().plusYears(3), savedCard.getExpiryDate());
-            return savedCard;
-        });
+        when(userService.getEntitiesByIds(Set.of(1L))).thenReturn(Map.of(1L, testUser));
 
         adminCardService.createCardForUser();
 
-        verify(cardRepository, times(1)).save(any(Card.class));
+        Card savedCard = savedCards().get(0);
+        assertNotNull(savedCard.getExpiryDate());
+        assertEquals(LocalDate.now().plusYears(3), savedCard.getExpiryDate());
     }
 
     @Test
     void createCardForUser_ShouldSetActiveStatus() {
         adminCardService.requestCreateCardForUser(testCardDtoIn);
 
-        when(userService.getEntityById(1L)).thenReturn(testUser);
-        when(cardRepository.save(any(Card.class))).thenAnswer(invocation -> {
-            Card savedCard = invocation.getArgument(0);
-            assertEquals(CardStatus.ACTIVE, savedCard.getStatus());
-            return savedCard;
-        });
+        when(userService.getEntitiesByIds(Set.of(1L))).thenReturn(Map.of(1L, testUser));
 
         adminCardService.createCardForUser();
 
-        verify(cardRepository, times(1)).save(any(Card.class));
+        Card savedCard = savedCards().get(0);
+        assertEquals(CardStatus.ACTIVE, savedCard.getStatus());
     }
 
     @Test
     void createCardForUser_ShouldGenerateCardNumberAndMask() {
         adminCardService.requestCreateCardForUser(testCardDtoIn);
 
-        when(userService.getEntityById(1L)).thenReturn(testUser);
-        when(cardRepository.save(any(Card.class))).thenAnswer(invocation -> {
-            Card savedCard = invocation.getArgument(0);
-            assertNotNull(savedCard.getCardNumber());
-            assertNotNull(savedCard.getCardNumberMasked());
-            assertTrue(savedCard.getCardNumberMasked().contains("****"));
-            return savedCard;
-        });
+        when(userService.getEntitiesByIds(Set.of(1L))).thenReturn(Map.of(1L, testUser));
 
         adminCardService.createCardForUser();
 
-        verify(cardRepository, times(1)).save(any(Card.class));
+        Card savedCard = savedCards().get(0);
+        assertNotNull(savedCard.getCardNumber());
+        assertEquals(hash(savedCard.getCardNumber()), savedCard.getCardNumberHash());
+        assertNotNull(savedCard.getCardNumberMasked());
+        assertTrue(savedCard.getCardNumberMasked().contains("****"));
     }
 
     @Test
@@ -403,66 +547,146 @@ class AdminCardServiceImplTest {
         CardDtoIn zeroBalanceCard = CardDtoIn.builder()
                 .userId(1L)
                 .cardHolder("John Doe")
-                .initialBalance(BigDecimal.ZERO)
+                .initialBalance(Money.ZERO)
                 .build();
 
         adminCardService.requestCreateCardForUser(zeroBalanceCard);
 
-        when(userService.getEntityById(1L)).thenReturn(testUser);
-        when(cardRepository.save(any(Card.class))).thenAnswer(invocation -> {
-            Card savedCard = invocation.getArgument(0);
-            assertEquals(BigDecimal.ZERO, savedCard.getBalance());
-            return savedCard;
-        });
+        when(userService.getEntitiesByIds(Set.of(1L))).thenReturn(Map.of(1L, testUser));
 
         // Act
         adminCardService.createCardForUser();
 
         // Assert
-        verify(cardRepository, times(1)).save(any(Card.class));
+        Card savedCard = savedCards().get(0);
+        assertEquals(Money.ZERO, savedCard.getBalance());
     }
 
     @Test
     void createCardForUser_ShouldClearRequestsAfterProcessing() {
-        clearInternalCollections();
-
         adminCardService.requestCreateCardForUser(testCardDtoIn);
 
-        when(userService.getEntityById(1L)).thenReturn(testUser);
-        when(cardRepository.save(any(Card.class))).thenReturn(testCard);
+        when(userService.getEntitiesByIds(Set.of(1L))).thenReturn(Map.of(1L, testUser));
 
         adminCardService.createCardForUser();
 
         adminCardService.createCardForUser();
 
-        verify(userService, times(1)).getEntityById(1L);
-        verify(cardRepository, times(1)).save(any(Card.class));
+        verify(userService, times(1)).getEntitiesByIds(Set.of(1L));
+        assertEquals(1, savedCards().size());
     }
 
     @Test
     void blockCardForUsers_ShouldClearRequestsAfterProcessing() {
-        clearInternalCollections();
-
-        when(cardRepository.findByUserIdAndCardNumber(1L, "1234567812345678"))
+        when(cardRepository.findByUserIdAndCardNumberHash(1L, hash("1234567812345678")))
                 .thenReturn(Optional.of(testCard));
         adminCardService.requestBlockCardForUser(1L, "1234567812345678");
 
-        Card blockedCard = Card.builder()
-                .cardId(1L)
-                .cardNumber("1234567812345678")
-                .status(CardStatus.BLOCKED)
-                .build();
+        stubCardsTable(testCard);
 
-        when(cardRepository.findByUserIdAndCardNumber(1L, "1234567812345678"))
-                .thenReturn(Optional.of(testCard));
-        when(cardRepository.save(any(Card.class))).thenReturn(blockedCard);
+        adminCardService.blockCardForUsers();
 
         adminCardService.blockCardForUsers();
 
+        verify(cardRepository, times(1)).findByUserIdAndCardNumberHash(1L, hash("1234567812345678"));
+        verify(jdbcTemplate, times(1)).query(eq(AdminCardServiceImpl.BLOCK_BY_ID_SQL), any(PreparedStatementSetter.class), any(RowMapper.class));
+    }
+
+    @Test
+    void requestCreateCardForUser_ShouldPersistPendingRequest() {
+        adminCardService.requestCreateCardForUser(testCardDtoIn);
+
+        verify(cardRequestRepository, times(1)).save(argThat(request ->
+                request.getRequestType() == CardRequestType.CREATE
+                        && request.getStatus() == CardRequestStatus.PENDING
+                        && request.getUserId() == 1L
+                        && "John Doe".equals(request.getCardHolder())
+        ));
+        verifyNoInteractions(cardRepository, cardNumberGenerator);
+    }
+
+    @Test
+    void requestBlockCardForUser_TwoCardsOfSameUser_ShouldKeepBothRequests() {
+        Card secondCard = Card.builder()
+                .cardId(2L)
+                .cardNumber("8765432187654321")
+                .status(CardStatus.ACTIVE)
+                .user(testUser)
+                .build();
+        when(cardRepository.findByUserIdAndCardNumberHash(1L, hash("1234567812345678"))).thenReturn(Optional.of(testCard));
+        when(cardRepository.findByUserIdAndCardNumberHash(1L, hash("8765432187654321"))).thenReturn(Optional.of(secondCard));
+        stubCardsTable(testCard, secondCard);
+
+        adminCardService.requestBlockCardForUser(1L, "1234567812345678");
+        adminCardService.requestBlockCardForUser(1L, "8765432187654321");
         adminCardService.blockCardForUsers();
 
-        verify(cardRepository, times(2)).findByUserIdAndCardNumber(1L, "1234567812345678");
-        verify(cardRepository, times(1)).save(any(Card.class));
+        assertEquals(CardStatus.BLOCKED, testCard.getStatus());
+        assertEquals(CardStatus.BLOCKED, secondCard.getStatus());
+        assertTrue(storedRequests.stream().allMatch(request -> request.getStatus() == CardRequestStatus.COMPLETED));
+    }
+
+    @Test
+    void requestCreateCardForUser_WithUnknownUser_ShouldRejectWithoutQueueing() {
+        CardDtoIn unknownUserCard = CardDtoIn.builder()
+                .userId(99L)
+                .cardHolder("Nobody")
+                .build();
+        doThrow(new UserNotFoundException("Пользователя с Id 99 не существует")).when(userService).checkUserExists(99L);
+
+        assertThrows(UserNotFoundException.class, () -> adminCardService.requestCreateCardForUser(unknownUserCard));
+
+        verify(cardRequestRepository, never()).save(any(CardRequest.class));
+    }
+
+    @Test
+    void createCardForUser_WithMoreRequestsThanBatch_ShouldClaimInBatches() {
+        ReflectionTestUtils.setField(adminCardService, "requestBatchSize", 2);
+        for (int i = 0; i < 3; i++) {
+            adminCardService.requestCreateCardForUser(testCardDtoIn);
+        }
+        when(userService.getEntitiesByIds(Set.of(1L))).thenReturn(Map.of(1L, testUser));
+
+        adminCardService.createCardForUser();
+
+        verify(cardRequestRepository, times(2)).claimPending("CREATE", 2);
+        verify(cardNumberGenerator, times(1)).next(2);
+        verify(cardNumberGenerator, times(1)).next(1);
+        verify(cardRepository, times(2)).saveAll(anyList());
+        assertEquals(3, savedCards().size());
+    }
+
+    @Test
+    void createCardForUser_WhenChunkFails_ShouldRetryRequestsOneByOneAndFailOnlyTheBadOne() {
+        adminCardService.requestCreateCardForUser(testCardDtoIn);
+        adminCardService.requestCreateCardForUser(CardDtoIn.builder()
+                .userId(1L)
+                .cardHolder("Broken Row")
+                .build());
+        adminCardService.requestCreateCardForUser(testCardDtoIn);
+        when(userService.getEntitiesByIds(Set.of(1L))).thenReturn(Map.of(1L, testUser));
+        when(cardRepository.saveAll(anyList())).thenAnswer(invocation -> {
+            List<Card> cards = invocation.getArgument(0);
+            if (cards.stream().anyMatch(card -> "Broken Row".equals(card.getCardHolder()))) {
+                throw new DataIntegrityViolationException("value too long");
+            }
+            return cards;
+        });
+        // Откат порции возвращает строку в PENDING, поэтому повторный захват видит её необработанной
+        when(cardRequestRepository.claimById(anyLong())).thenAnswer(invocation -> storedRequests.stream()
+                .filter(request -> request.getRequestId().equals(invocation.getArgument(0)))
+                .peek(request -> request.setStatus(CardRequestStatus.PENDING))
+                .findFirst());
+        when(cardRequestRepository.markFailed(eq(2L), anyString(), any(LocalDateTime.class))).thenReturn(1);
+
+        adminCardService.createCardForUser();
+
+        verify(cardRequestRepository, times(3)).claimById(anyLong());
+        verify(cardRequestRepository).markFailed(eq(2L), eq("value too long"), any(LocalDateTime.class));
+        verify(adminJobRepository).addProgress(11L, 3, 1);
+        verify(adminJobRepository).finish(eq(11L), eq(AdminJobStatus.COMPLETED), isNull(), any(LocalDateTime.class));
+        assertEquals(CardRequestStatus.COMPLETED, storedRequests.get(0).getStatus());
+        assertEquals(CardRequestStatus.COMPLETED, storedRequests.get(2).getStatus());
     }
 
     @Test
@@ -471,4 +695,59 @@ class AdminCardServiceImplTest {
         Integer expiryYears = (Integer) ReflectionTestUtils.getField(adminCardService, "expiryYears");
         assertEquals(3, expiryYears);
     }
-}
\ No newline at end of file
+
+    private String hash(String cardNumber) {
+        return cardNumberBlindIndex.hash(cardNumber);
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<Card> savedCards() {
+        ArgumentCaptor<Iterable<Card>> captor = ArgumentCaptor.forClass(Iterable.class);
+        verify(cardRepository, atLeastOnce()).saveAll(captor.capture());
+        List<Card> cards = new ArrayList<>();
+        captor.getAllValues().forEach(batch -> batch.forEach(cards::add));
+        return cards;
+    }
+
+    // Имитация таблицы cards для update ... returning: массивы из PreparedStatementSetter выбирают карты,
+    // найденные карты блокируются, а строки результата проходят через RowMapper сервиса
+    @SuppressWarnings("unchecked")
+    private void stubCardsTable(Card... cards) {
+        when(jdbcTemplate.query(anyString(), any(PreparedStatementSetter.class), any(RowMapper.class))).thenAnswer(invocation -> {
+            List<Object[]> arrays = new ArrayList<>();
+            PreparedStatement ps = mock(PreparedStatement.class, RETURNS_DEEP_STUBS);
+            when(ps.getConnection().createArrayOf(anyString(), any())).thenAnswer(createArray -> {
+                arrays.add((Object[]) createArray.getRawArguments()[1]);
+                return null;
+            });
+            invocation.<PreparedStatementSetter>getArgument(1).setValues(ps);
+
+            List<Card> matched = Arrays.stream(cards)
+                    .filter(card -> AdminCardServiceImpl.BLOCK_BY_ID_SQL.equals(invocation.getArgument(0))
+                            ? Arrays.asList(arrays.get(0)).contains(card.getCardId())
+                            : containsPair(arrays, card.getUser().getId(), hash(card.getCardNumber())))
+                    .toList();
+            RowMapper<Object> rowMapper = invocation.getArgument(2);
+            List<Object> rows = new ArrayList<>();
+            for (Card card : matched) {
+                card.setStatus(CardStatus.BLOCKED);
+                String cardNumberHash = hash(card.getCardNumber());
+                ResultSet rs = mock(ResultSet.class);
+                lenient().when(rs.getLong("card_id")).thenReturn(card.getCardId());
+                lenient().when(rs.getLong("user_id")).thenReturn(card.getUser().getId());
+                lenient().when(rs.getString("card_number_hash")).thenReturn(cardNumberHash);
+                rows.add(rowMapper.mapRow(rs, rows.size()));
+            }
+            return rows;
+        });
+    }
+
+    private static boolean containsPair(List<Object[]> arrays, Long userId, String cardNumberHash) {
+        for (int i = 0; i < arrays.get(0).length; i++) {
+            if (userId.equals(arrays.get(0)[i]) && cardNumberHash.equals(arrays.get(1)[i])) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
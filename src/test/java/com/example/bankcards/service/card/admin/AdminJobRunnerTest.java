@@ -0,0 +1,113 @@
+package com.example.bankcards.service.card.admin;
+
+import com.example.bankcards.dto.card.AdminJobDto;
+import com.example.bankcards.dto.enums.AdminJobStatus;
+import com.example.bankcards.dto.enums.AdminJobType;
+import com.example.bankcards.entity.AdminJob;
+import com.example.bankcards.exception.AdminJobNotFoundException;
+import com.example.bankcards.repository.AdminJobRepository;
+import com.example.bankcards.service.card.admin.AdminJobRunner.ChunkResult;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.List;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class AdminJobRunnerTest {
+
+    @Mock
+    private AdminJobRepository adminJobRepository;
+
+    private AdminJobRunner runner;
+
+    @BeforeEach
+    void setUp() {
+        runner = new AdminJobRunner(adminJobRepository, Runnable::run, 2);
+        lenient().when(adminJobRepository.save(any(AdminJob.class))).thenAnswer(invocation -> {
+            AdminJob job = invocation.getArgument(0);
+            job.setJobId(5L);
+            return job;
+        });
+    }
+
+    @Test
+    void submit_ShouldRunEveryWorkerUntilChunksRunOut() {
+        Queue<ChunkResult> chunks = new ArrayDeque<>(List.of(
+                new ChunkResult(100, 1, true),
+                new ChunkResult(100, 0, true),
+                new ChunkResult(40, 2, false),
+                new ChunkResult(0, 0, false)));
+
+        AdminJobDto job = runner.submit(AdminJobType.BLOCK_CARDS, chunks::poll);
+
+        assertEquals(5L, job.getJobId());
+        assertEquals(AdminJobStatus.RUNNING, job.getStatus());
+        assertTrue(chunks.isEmpty());
+        verify(adminJobRepository).addProgress(5L, 100, 1);
+        verify(adminJobRepository).addProgress(5L, 100, 0);
+        verify(adminJobRepository).addProgress(5L, 40, 2);
+        verify(adminJobRepository, never()).addProgress(anyLong(), eq(0L), anyLong());
+        verify(adminJobRepository).finish(eq(5L), eq(AdminJobStatus.COMPLETED), isNull(), any(LocalDateTime.class));
+    }
+
+    @Test
+    void submit_WhenChunkThrows_ShouldMarkJobFailed() {
+        AtomicInteger calls = new AtomicInteger();
+
+        runner.submit(AdminJobType.CREATE_CARDS, () -> {
+            if (calls.incrementAndGet() == 1) {
+                return new ChunkResult(10, 0, true);
+            }
+            throw new IllegalStateException("Соединение с базой потеряно");
+        });
+
+        verify(adminJobRepository).addProgress(5L, 10, 0);
+        verify(adminJobRepository).finish(eq(5L), eq(AdminJobStatus.FAILED), eq("Соединение с базой потеряно"), any(LocalDateTime.class));
+    }
+
+    @Test
+    void getJob_ShouldReportThroughput() {
+        LocalDateTime createdAt = LocalDateTime.of(2024, 1, 1, 12, 0);
+        when(adminJobRepository.findById(5L)).thenReturn(Optional.of(AdminJob.builder()
+                .jobId(5L)
+                .jobType(AdminJobType.CREATE_CARDS)
+                .status(AdminJobStatus.COMPLETED)
+                .processedItems(1000)
+                .failedItems(3)
+                .chunks(10)
+                .createdAt(createdAt)
+                .completedAt(createdAt.plusSeconds(4))
+                .build()));
+
+        AdminJobDto job = runner.getJob(5L);
+
+        assertEquals(1000, job.getProcessedItems());
+        assertEquals(3, job.getFailedItems());
+        assertEquals(250.0, job.getItemsPerSecond());
+    }
+
+    @Test
+    void getJob_WithUnknownId_ShouldThrowAdminJobNotFoundException() {
+        when(adminJobRepository.findById(8L)).thenReturn(Optional.empty());
+
+        AdminJobNotFoundException exception = assertThrows(AdminJobNotFoundException.class, () -> runner.getJob(8L));
+
+        assertEquals("Задания с id 8 не существует", exception.getMessage());
+    }
+
+}
@@ -0,0 +1,104 @@
+package com.example.bankcards.service.card.admin;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentMatchers;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class CardExpirySweeperTest {
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @Mock
+    private Connection connection;
+
+    @Mock
+    private PreparedStatement tryLock;
+
+    @Mock
+    private PreparedStatement unlock;
+
+    @Mock
+    private PreparedStatement expireChunk;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private CardExpirySweeper sweeper;
+
+    @BeforeEach
+    void setUp() throws SQLException {
+        sweeper = new CardExpirySweeper(jdbcTemplate, meterRegistry, 2);
+        when(jdbcTemplate.execute(ArgumentMatchers.<ConnectionCallback<Void>>any())).thenAnswer(invocation ->
+                invocation.<ConnectionCallback<?>>getArgument(0).doInConnection(connection));
+        when(connection.prepareStatement(CardExpirySweeper.TRY_LOCK_SQL)).thenReturn(tryLock);
+        lenient().when(connection.prepareStatement(CardExpirySweeper.UNLOCK_SQL)).thenReturn(unlock);
+        lenient().when(connection.prepareStatement(CardExpirySweeper.EXPIRE_CHUNK_SQL)).thenReturn(expireChunk);
+        ResultSet unlocked = mock(ResultSet.class);
+        lenient().when(unlocked.next()).thenReturn(true);
+        lenient().when(unlocked.getBoolean(1)).thenReturn(true);
+        lenient().when(unlock.executeQuery()).thenReturn(unlocked);
+    }
+
+    @Test
+    void sweep_ShouldExpireInChunksUntilAShortOne() throws SQLException {
+        lockAcquired(true);
+        when(expireChunk.executeUpdate()).thenReturn(2, 2, 1);
+
+        sweeper.sweep();
+
+        verify(expireChunk, times(3)).executeUpdate();
+        verify(expireChunk, times(3)).setDate(1, Date.valueOf(LocalDate.now()));
+        verify(expireChunk, times(3)).setInt(2, 2);
+        verify(unlock).setLong(1, CardExpirySweeper.LOCK_KEY);
+        verify(unlock).executeQuery();
+        assertEquals(5, meterRegistry.counter("card.expiry.expired").count());
+        assertEquals(1, meterRegistry.timer("card.expiry.sweep").count());
+    }
+
+    @Test
+    void sweep_WhenAnotherReplicaHoldsTheLock_ShouldSkip() throws SQLException {
+        lockAcquired(false);
+
+        sweeper.sweep();
+
+        verify(connection, never()).prepareStatement(CardExpirySweeper.EXPIRE_CHUNK_SQL);
+        verify(connection, never()).prepareStatement(CardExpirySweeper.UNLOCK_SQL);
+        assertEquals(0, meterRegistry.timer("card.expiry.sweep").count());
+    }
+
+    @Test
+    void sweep_WhenUpdateFails_ShouldReleaseTheLock() throws SQLException {
+        lockAcquired(true);
+        when(expireChunk.executeUpdate()).thenThrow(new SQLException("connection reset"));
+
+        assertThrows(SQLException.class, () -> sweeper.sweep());
+
+        verify(unlock).executeQuery();
+        assertEquals(0, meterRegistry.timer("card.expiry.sweep").count());
+    }
+
+    private void lockAcquired(boolean acquired) throws SQLException {
+        ResultSet resultSet = mock(ResultSet.class);
+        when(resultSet.next()).thenReturn(true);
+        when(resultSet.getBoolean(1)).thenReturn(acquired);
+        when(tryLock.executeQuery()).thenReturn(resultSet);
+    }
+
+}
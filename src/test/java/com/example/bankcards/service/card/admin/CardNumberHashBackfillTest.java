@@ -0,0 +1,99 @@
+package com.example.bankcards.service.card.admin;
+
+import com.example.bankcards.dto.card.CardIdentity;
+import com.example.bankcards.entity.Card;
+import com.example.bankcards.exception.CardNumberIndexNotReadyException;
+import com.example.bankcards.repository.CardRepository;
+import com.example.bankcards.util.CardNumberBlindIndex;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Pageable;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class CardNumberHashBackfillTest {
+
+    @Mock
+    private CardRepository cardRepository;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private final CardNumberBlindIndex cardNumberBlindIndex = new CardNumberBlindIndex("q5V0cY3mJ8pT2wN6rL9eH4sA1uK7zX0bD3fG6jM9nQ2=");
+
+    private CardNumberHashBackfill backfill;
+
+    @BeforeEach
+    void setUp() {
+        backfill = new CardNumberHashBackfill(cardRepository, cardNumberBlindIndex, new TransactionTemplate(transactionManager));
+    }
+
+    @Test
+    void run_ShouldHoldLookupsUntilEveryCardIsHashed() {
+        Card legacyCard = Card.builder().cardId(1L).cardNumber("1234567812345678").build();
+        when(cardRepository.existsByCardNumberHashIsNull()).thenReturn(true);
+        when(cardRepository.findByCardNumberHashIsNullOrderByCardId(any(Pageable.class))).thenReturn(List.of(legacyCard));
+
+        backfill.holdLookups();
+        assertThrows(CardNumberIndexNotReadyException.class, () -> cardNumberBlindIndex.lookupHash("1234567812345678"));
+
+        backfill.run(null);
+
+        assertEquals(cardNumberBlindIndex.hash("1234567812345678"), legacyCard.getCardNumberHash());
+        assertEquals(legacyCard.getCardNumberHash(), cardNumberBlindIndex.lookupHash("1234567812345678"));
+    }
+
+    @Test
+    void run_WithDuplicateCardNumbers_ShouldReportThemAndStillOpenLookups() {
+        String duplicateHash = cardNumberBlindIndex.hash("1234567812345678");
+        when(cardRepository.existsByCardNumberHashIsNull()).thenReturn(true);
+        when(cardRepository.findByCardNumberHashIsNullOrderByCardId(any(Pageable.class))).thenReturn(List.of());
+        when(cardRepository.findDuplicateCardNumberHashes()).thenReturn(List.of(duplicateHash));
+        when(cardRepository.findAllByCardNumberHashIn(List.of(duplicateHash)))
+                .thenReturn(List.of(identity(1L, duplicateHash), identity(2L, duplicateHash)));
+
+        backfill.holdLookups();
+        backfill.run(null);
+
+        verify(cardRepository).findAllByCardNumberHashIn(List.of(duplicateHash));
+        assertEquals(duplicateHash, cardNumberBlindIndex.lookupHash("1234567812345678"));
+    }
+
+    @Test
+    void holdLookups_WhenEveryCardIsHashed_ShouldKeepLookupsOpen() {
+        when(cardRepository.existsByCardNumberHashIsNull()).thenReturn(false);
+
+        backfill.holdLookups();
+
+        assertDoesNotThrow(() -> cardNumberBlindIndex.lookupHash("1234567812345678"));
+    }
+
+    private static CardIdentity identity(Long cardId, String cardNumberHash) {
+        return new CardIdentity() {
+            @Override
+            public Long getCardId() {
+                return cardId;
+            }
+
+            @Override
+            public String getCardNumberHash() {
+                return cardNumberHash;
+            }
+
+            @Override
+            public String getCardHolder() {
+                return "John Doe";
+            }
+        };
+    }
+}
@@ -0,0 +1,163 @@
+package com.example.bankcards.service.card.encryption;
+
+import com.example.bankcards.config.CardEncryptionProperties;
+import com.example.bankcards.dto.card.CardReencryptionStatus;
+import com.example.bankcards.dto.enums.ReencryptionState;
+import com.example.bankcards.entity.CardReencryptionCheckpoint;
+import com.example.bankcards.repository.CardReencryptionCheckpointRepository;
+import com.example.bankcards.util.CardEncryptionService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.ResultSet;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class CardReencryptionServiceImplTest {
+
+    private static final String KEY_V1 = "7kQ2mX9pL4vN8cR1tY6wZ3bH5jF0sD2gK8nM4qP7rT0=";
+    private static final String KEY_V2 = "Zm9yLXRlc3RzLW9ubHktMzItYnl0ZXMtbG9uZy1rZXk=";
+
+    @Mock
+    private CardReencryptionCheckpointRepository checkpointRepository;
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private final CardEncryptionService oldKeyService =
+            new CardEncryptionService(new CardEncryptionProperties("v1", Map.of("v1", KEY_V1)));
+
+    private final CardEncryptionService encryptionService =
+            new CardEncryptionService(new CardEncryptionProperties("v2", Map.of("v1", KEY_V1, "v2", KEY_V2)));
+
+    private CardReencryptionServiceImpl reencryptionService;
+    private CardReencryptionCheckpoint checkpoint;
+
+    @BeforeEach
+    void setUp() {
+        reencryptionService = new CardReencryptionServiceImpl(encryptionService, checkpointRepository,
+                jdbcTemplate, new TransactionTemplate(transactionManager), 2, 1_000_000);
+        checkpoint = CardReencryptionCheckpoint.builder()
+                .keyVersion("v2")
+                .lastCardId(0L)
+                .processedRows(0L)
+                .totalCards(100L)
+                .startedAt(LocalDateTime.now())
+                .updatedAt(LocalDateTime.now())
+                .build();
+    }
+
+    @Test
+    void reencryptChunk_ShouldReencryptLegacyAndOldKeyRowsAndAdvanceCheckpoint() throws Exception {
+        String oldKeyValue = oldKeyService.encrypt("8765432187654321");
+        stubRows(List.of(row(1L, "1234567812345678"), row(2L, oldKeyValue)));
+        when(checkpointRepository.findForUpdate("v2")).thenReturn(Optional.of(checkpoint));
+
+        boolean completed = reencryptionService.reencryptChunk("v2");
+
+        List<Object[]> updates = capturedUpdates();
+        assertFalse(completed);
+        assertEquals(2, updates.size());
+        assertEquals("1234567812345678", encryptionService.decrypt((String) updates.get(0)[0]));
+        assertTrue(((String) updates.get(0)[0]).startsWith("v2:"));
+        assertEquals(1L, updates.get(0)[1]);
+        assertEquals("1234567812345678", updates.get(0)[2]);
+        assertEquals("8765432187654321", encryptionService.decrypt((String) updates.get(1)[0]));
+        assertEquals(oldKeyValue, updates.get(1)[2]);
+        assertEquals(2L, checkpoint.getLastCardId());
+        assertEquals(2L, checkpoint.getProcessedRows());
+        assertNull(checkpoint.getCompletedAt());
+    }
+
+    @Test
+    void reencryptChunk_ShouldSkipRowsAlreadyUnderActiveKeyAndCompleteOnShortChunk() throws Exception {
+        checkpoint.setLastCardId(5L);
+        stubRows(List.of(row(6L, encryptionService.encrypt("1234567812345678"))));
+        when(checkpointRepository.findForUpdate("v2")).thenReturn(Optional.of(checkpoint));
+
+        boolean completed = reencryptionService.reencryptChunk("v2");
+
+        assertTrue(completed);
+        assertNotNull(checkpoint.getCompletedAt());
+        assertEquals(6L, checkpoint.getLastCardId());
+        verify(jdbcTemplate).query(anyString(), any(RowMapper.class), eq(5L), eq(2));
+        verify(jdbcTemplate, never()).batchUpdate(anyString(), anyList());
+    }
+
+    @Test
+    void reencryptChunk_WhenCheckpointCompleted_ShouldNotReadCards() {
+        checkpoint.setCompletedAt(LocalDateTime.now());
+        when(checkpointRepository.findForUpdate("v2")).thenReturn(Optional.of(checkpoint));
+
+        assertTrue(reencryptionService.reencryptChunk("v2"));
+
+        verifyNoInteractions(jdbcTemplate);
+    }
+
+    @Test
+    void getReencryptionStatus_ShouldReportCheckpointProgress() {
+        checkpoint.setLastCardId(40L);
+        checkpoint.setProcessedRows(40L);
+        when(checkpointRepository.findById("v2")).thenReturn(Optional.of(checkpoint));
+
+        CardReencryptionStatus status = reencryptionService.getReencryptionStatus();
+
+        assertEquals("v2", status.getKeyVersion());
+        assertEquals(ReencryptionState.PAUSED, status.getState());
+        assertEquals(40L, status.getProcessedRows());
+        assertEquals(100L, status.getTotalCards());
+    }
+
+    @Test
+    void getReencryptionStatus_WithoutCheckpoint_ShouldReportNotStarted() {
+        when(checkpointRepository.findById("v2")).thenReturn(Optional.empty());
+
+        assertEquals(ReencryptionState.NOT_STARTED, reencryptionService.getReencryptionStatus().getState());
+    }
+
+    @SuppressWarnings("unchecked")
+    private void stubRows(List<ResultSet> rows) {
+        when(jdbcTemplate.query(anyString(), any(RowMapper.class), anyLong(), anyInt())).thenAnswer(invocation -> {
+            RowMapper<Object> mapper = invocation.getArgument(1);
+            List<Object> mapped = new ArrayList<>();
+            for (int i = 0; i < rows.size(); i++) {
+                mapped.add(mapper.mapRow(rows.get(i), i));
+            }
+            return mapped;
+        });
+    }
+
+    private ResultSet row(long cardId, String cardNumber) throws Exception {
+        ResultSet resultSet = mock(ResultSet.class);
+        when(resultSet.getLong("card_id")).thenReturn(cardId);
+        when(resultSet.getString("card_number")).thenReturn(cardNumber);
+        return resultSet;
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<Object[]> capturedUpdates() {
+        ArgumentCaptor<List<Object[]>> captor = ArgumentCaptor.forClass(List.class);
+        verify(jdbcTemplate).batchUpdate(anyString(), captor.capture());
+        return captor.getValue();
+    }
+
+}
@@ -0,0 +1,399 @@
+package com.example.bankcards.service.card.engine;
+
+import com.example.bankcards.dto.card.BatchTransferResponse;
+import com.example.bankcards.dto.card.CardDtoOutUser;
+import com.example.bankcards.dto.card.RequestUpdateBalance;
+import com.example.bankcards.dto.card.TransferRequest;
+import com.example.bankcards.dto.enums.CardStatus;
+import com.example.bankcards.dto.enums.TransferStatus;
+import com.example.bankcards.entity.Card;
+import com.example.bankcards.exception.BalanceOutcomeUnknownException;
+import com.example.bankcards.exception.CardDoesNotWorkException;
+import com.example.bankcards.exception.CardNotFoundException;
+import com.example.bankcards.exception.NotEnoughMoneyException;
+import com.example.bankcards.repository.CardRepository;
+import com.example.bankcards.util.CardNumberBlindIndex;
+import com.example.bankcards.util.Money;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class InMemoryBalanceEngineTest {
+
+    @Mock
+    private CardRepository cardRepository;
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private final CardNumberBlindIndex cardNumberBlindIndex = new CardNumberBlindIndex("q5V0cY3mJ8pT2wN6rL9eH4sA1uK7zX0bD3fG6jM9nQ2=");
+
+    private InMemoryBalanceEngine balanceEngine;
+
+    private Card testCard;
+    private Card anotherCard;
+
+    @BeforeEach
+    void setUp() {
+        balanceEngine = engine(1000, Duration.ofSeconds(5));
+        lenient().when(jdbcTemplate.batchUpdate(eq(InMemoryBalanceEngine.UPDATE_BALANCE), anyList()))
+                .thenAnswer(invocation -> updatedRows(invocation.<List<Object[]>>getArgument(1), 1));
+
+        testCard = Card.builder()
+                .cardId(1L)
+                .cardNumber("1234567812345678")
+                .cardNumberMasked("**** **** **** 5678")
+                .cardHolder("John Doe")
+                .expiryDate(LocalDate.now().plusYears(3))
+                .status(CardStatus.ACTIVE)
+                .balance(Money.of("1000.00"))
+                .version(0L)
+                .build();
+
+        anotherCard = Card.builder()
+                .cardId(2L)
+                .cardNumber("8765432187654321")
+                .cardNumberMasked("**** **** **** 4321")
+                .cardHolder("Jane Smith")
+                .expiryDate(LocalDate.now().plusYears(2))
+                .status(CardStatus.ACTIVE)
+                .balance(Money.of("500.00"))
+                .version(0L)
+                .build();
+    }
+
+    @AfterEach
+    void tearDown() {
+        balanceEngine.stop();
+    }
+
+    private InMemoryBalanceEngine engine(int maxCardsPerShard, Duration acknowledgeTimeout) {
+        InMemoryBalanceEngine engine = new InMemoryBalanceEngine(cardRepository, cardNumberBlindIndex, jdbcTemplate,
+                new TransactionTemplate(transactionManager), 2, 64, 16, maxCardsPerShard, acknowledgeTimeout);
+        engine.start();
+        return engine;
+    }
+
+    private static int[] updatedRows(List<Object[]> rows, int count) {
+        int[] updated = new int[rows.size()];
+        Arrays.fill(updated, count);
+        return updated;
+    }
+
+    private void stubCards(Card... cards) {
+        for (Card card : cards) {
+            lenient().when(cardRepository.findCardIdByCardNumberHashAndCardHolder(hash(card.getCardNumber()), card.getCardHolder()))
+                    .thenReturn(Optional.of(card.getCardId()));
+            lenient().when(cardRepository.findById(card.getCardId())).thenReturn(Optional.of(card));
+        }
+    }
+
+    private RequestUpdateBalance topUpRequest(Card card, String amount) {
+        return RequestUpdateBalance.builder()
+                .cardNumber(card.getCardNumber())
+                .cardHolder(card.getCardHolder())
+                .addedAmount(Money.of(amount))
+                .build();
+    }
+
+    private TransferRequest transferRequest(Card from, Card to, String amount) {
+        return TransferRequest.builder()
+                .cardNumberFrom(from.getCardNumber())
+                .cardHolderFrom(from.getCardHolder())
+                .cardNumberTo(to.getCardNumber())
+                .cardHolderTo(to.getCardHolder())
+                .addedAmount(Money.of(amount))
+                .build();
+    }
+
+    private BigDecimal balanceOf(Card card) {
+        return balanceEngine.topUp(topUpRequest(card, "0")).getBalance();
+    }
+
+    @Test
+    void topUp_ShouldApplyInMemoryAndCommitBeforeAcknowledging() {
+        stubCards(testCard);
+
+        CardDtoOutUser result = balanceEngine.topUp(topUpRequest(testCard, "250.00"));
+
+        assertEquals(0, result.getBalance().compareTo(new BigDecimal("1250.00")));
+        assertEquals("**** **** **** 5678", result.getCardNumberMasked());
+        verify(jdbcTemplate, times(1)).batchUpdate(eq(InMemoryBalanceEngine.UPDATE_BALANCE),
+                argThat((List<Object[]> rows) -> rows.size() == 1
+                        && new BigDecimal("250.00").compareTo((BigDecimal) rows.get(0)[0]) == 0
+                        && rows.get(0)[1].equals(1L)
+                        && rows.get(0)[2].equals(0L)));
+        verify(jdbcTemplate, times(1)).batchUpdate(eq(InMemoryBalanceEngine.INSERT_LEDGER_ENTRY),
+                argThat((List<Object[]> rows) -> rows.size() == 2));
+    }
+
+    @Test
+    void topUp_ShouldLoadCardOnlyOnce() {
+        stubCards(testCard);
+
+        balanceEngine.topUp(topUpRequest(testCard, "100.00"));
+        balanceEngine.topUp(topUpRequest(testCard, "100.00"));
+
+        assertEquals(0, balanceOf(testCard).compareTo(new BigDecimal("1200.00")));
+        verify(cardRepository, times(1)).findById(1L);
+        verify(cardRepository, times(1)).findCardIdByCardNumberHashAndCardHolder(hash(testCard.getCardNumber()), testCard.getCardHolder());
+    }
+
+    @Test
+    void topUp_WithBlockedCard_ShouldThrowCardDoesNotWorkException() {
+        testCard.setStatus(CardStatus.BLOCKED);
+        stubCards(testCard);
+
+        assertThrows(CardDoesNotWorkException.class, () -> balanceEngine.topUp(topUpRequest(testCard, "100.00")));
+
+        verifyNoInteractions(jdbcTemplate);
+    }
+
+    @Test
+    void topUp_WithNonExistingCard_ShouldThrowCardNotFoundException() {
+        when(cardRepository.findCardIdByCardNumberHashAndCardHolder(hash(testCard.getCardNumber()), testCard.getCardHolder()))
+                .thenReturn(Optional.empty());
+
+        assertThrows(CardNotFoundException.class, () -> balanceEngine.topUp(topUpRequest(testCard, "100.00")));
+    }
+
+    @Test
+    void transfer_AcrossShards_ShouldMoveMoney() {
+        stubCards(testCard, anotherCard);
+
+        balanceEngine.transfer(transferRequest(testCard, anotherCard, "300.00"));
+
+        assertEquals(0, balanceOf(testCard).compareTo(new BigDecimal("700.00")));
+        assertEquals(0, balanceOf(anotherCard).compareTo(new BigDecimal("800.00")));
+    }
+
+    @Test
+    void transfer_WithNotEnoughMoney_ShouldNotCreditTarget() {
+        stubCards(testCard, anotherCard);
+
+        assertThrows(NotEnoughMoneyException.class,
+                () -> balanceEngine.transfer(transferRequest(anotherCard, testCard, "500.01")));
+
+        assertEquals(0, balanceOf(testCard).compareTo(new BigDecimal("1000.00")));
+        assertEquals(0, balanceOf(anotherCard).compareTo(new BigDecimal("500.00")));
+    }
+
+    @Test
+    void transferBatch_ShouldRejectOnlyFailingItems() {
+        anotherCard.setStatus(CardStatus.BLOCKED);
+        Card thirdCard = Card.builder()
+                .cardId(3L)
+                .cardNumber("1111222233334444")
+                .cardNumberMasked("**** **** **** 4444")
+                .cardHolder("Bob Brown")
+                .expiryDate(LocalDate.now().plusYears(1))
+                .status(CardStatus.ACTIVE)
+                .balance(Money.ZERO)
+                .version(0L)
+                .build();
+        stubCards(testCard, anotherCard, thirdCard);
+
+        BatchTransferResponse response = balanceEngine.transferBatch(List.of(
+                transferRequest(testCard, thirdCard, "100.00"),
+                transferRequest(testCard, anotherCard, "100.00"),
+                transferRequest(thirdCard, testCard, "150.00")
+        ));
+
+        assertEquals(1, response.getCompleted());
+        assertEquals(2, response.getRejected());
+        assertEquals(TransferStatus.COMPLETED, response.getResults().get(0).getStatus());
+        assertEquals(TransferStatus.REJECTED, response.getResults().get(1).getStatus());
+        assertEquals(TransferStatus.REJECTED, response.getResults().get(2).getStatus());
+        assertEquals(0, balanceOf(testCard).compareTo(new BigDecimal("900.00")));
+        assertEquals(0, balanceOf(thirdCard).compareTo(new BigDecimal("100.00")));
+    }
+
+    @Test
+    void topUp_WhenCommitFails_ShouldFailAndReloadCard() {
+        stubCards(testCard);
+        when(jdbcTemplate.batchUpdate(eq(InMemoryBalanceEngine.UPDATE_BALANCE), anyList()))
+                .thenThrow(new DataAccessResourceFailureException("connection lost"))
+                .thenReturn(new int[]{1});
+
+        assertThrows(DataAccessResourceFailureException.class,
+                () -> balanceEngine.topUp(topUpRequest(testCard, "100.00")));
+
+        assertEquals(0, balanceOf(testCard).compareTo(new BigDecimal("1000.00")));
+        verify(cardRepository, times(2)).findById(1L);
+    }
+
+    @Test
+    void transfer_AcrossShards_ShouldCommitBothLegsInOneTransaction() {
+        stubCards(testCard, anotherCard);
+
+        balanceEngine.transfer(transferRequest(testCard, anotherCard, "300.00"));
+
+        verify(transactionManager, times(1)).commit(any());
+        verify(jdbcTemplate, times(1)).batchUpdate(eq(InMemoryBalanceEngine.UPDATE_BALANCE),
+                argThat((List<Object[]> rows) -> rows.size() == 2
+                        && new BigDecimal("-300.00").compareTo((BigDecimal) rows.get(0)[0]) == 0
+                        && new BigDecimal("300.00").compareTo((BigDecimal) rows.get(1)[0]) == 0));
+    }
+
+    @Test
+    void transfer_AcrossShards_WhenSecondLegFails_ShouldReleaseHeldCard() {
+        testCard.setStatus(CardStatus.BLOCKED);
+        stubCards(testCard, anotherCard);
+
+        assertThrows(CardDoesNotWorkException.class,
+                () -> balanceEngine.transfer(transferRequest(anotherCard, testCard, "100.00")));
+
+        assertEquals(0, balanceOf(anotherCard).compareTo(new BigDecimal("500.00")));
+        verify(jdbcTemplate, never()).batchUpdate(eq(InMemoryBalanceEngine.UPDATE_BALANCE),
+                argThat((List<Object[]> rows) -> rows.stream().anyMatch(row -> row[1].equals(1L))));
+    }
+
+    @Test
+    void transfer_AcrossShards_WhenHeldCardChangedInDatabase_ShouldFailAndReloadIt() {
+        Card changedCard = Card.builder()
+                .cardId(2L)
+                .cardHolder("Jane Smith")
+                .status(CardStatus.ACTIVE)
+                .balance(Money.of("500.00"))
+                .version(1L)
+                .build();
+        stubCards(testCard, anotherCard);
+        when(cardRepository.findById(2L)).thenReturn(Optional.of(anotherCard), Optional.of(changedCard));
+        when(jdbcTemplate.batchUpdate(eq(InMemoryBalanceEngine.UPDATE_BALANCE), anyList())).thenAnswer(invocation -> {
+            List<Object[]> rows = invocation.getArgument(1);
+            return rows.stream().mapToInt(row -> row[1].equals(2L) && row[2].equals(0L) ? 0 : 1).toArray();
+        });
+
+        assertThrows(OptimisticLockingFailureException.class,
+                () -> balanceEngine.transfer(transferRequest(anotherCard, testCard, "100.00")));
+
+        assertEquals(0, balanceOf(testCard).compareTo(new BigDecimal("1000.00")));
+        assertEquals(0, balanceOf(anotherCard).compareTo(new BigDecimal("500.00")));
+        verify(cardRepository, times(2)).findById(2L);
+    }
+
+    @Test
+    void transferBatch_WhenOneCardIsStale_ShouldReloadItWithoutFailingOthers() {
+        Card staleCard = Card.builder()
+                .cardId(3L)
+                .cardNumber("1111222233334444")
+                .cardHolder("Bob Brown")
+                .status(CardStatus.ACTIVE)
+                .balance(Money.ZERO)
+                .version(0L)
+                .build();
+        Card freshCard = Card.builder()
+                .cardId(3L)
+                .cardNumber("1111222233334444")
+                .cardHolder("Bob Brown")
+                .status(CardStatus.ACTIVE)
+                .balance(Money.ZERO)
+                .version(1L)
+                .build();
+        Card sameShardCard = Card.builder()
+                .cardId(5L)
+                .cardNumber("5555666677778888")
+                .cardHolder("Alice White")
+                .status(CardStatus.ACTIVE)
+                .balance(Money.ZERO)
+                .version(0L)
+                .build();
+        stubCards(testCard, staleCard, sameShardCard);
+        when(cardRepository.findById(3L)).thenReturn(Optional.of(staleCard), Optional.of(freshCard));
+        when(jdbcTemplate.batchUpdate(eq(InMemoryBalanceEngine.UPDATE_BALANCE), anyList())).thenAnswer(invocation -> {
+            List<Object[]> rows = invocation.getArgument(1);
+            return rows.stream().mapToInt(row -> row[1].equals(3L) && row[2].equals(0L) ? 0 : 1).toArray();
+        });
+
+        BatchTransferResponse response = balanceEngine.transferBatch(List.of(
+                transferRequest(testCard, staleCard, "100.00"),
+                transferRequest(testCard, sameShardCard, "50.00")
+        ));
+
+        assertEquals(2, response.getCompleted());
+        assertEquals(0, balanceOf(testCard).compareTo(new BigDecimal("850.00")));
+        assertEquals(0, balanceOf(staleCard).compareTo(new BigDecimal("100.00")));
+        assertEquals(0, balanceOf(sameShardCard).compareTo(new BigDecimal("50.00")));
+        verify(cardRepository, times(2)).findById(3L);
+    }
+
+    @Test
+    void topUp_WhenCardChangedInDatabase_ShouldReloadAndPickUpNewStatus() {
+        stubCards(testCard);
+        balanceEngine.topUp(topUpRequest(testCard, "100.00"));
+
+        Card blocked = Card.builder()
+                .cardId(1L)
+                .cardHolder("John Doe")
+                .status(CardStatus.BLOCKED)
+                .balance(Money.of("1100.00"))
+                .version(2L)
+                .build();
+        when(cardRepository.findById(1L)).thenReturn(Optional.of(blocked));
+        when(jdbcTemplate.batchUpdate(eq(InMemoryBalanceEngine.UPDATE_BALANCE), anyList())).thenReturn(new int[]{0});
+
+        assertThrows(CardDoesNotWorkException.class, () -> balanceEngine.topUp(topUpRequest(testCard, "100.00")));
+        verify(cardRepository, times(2)).findById(1L);
+    }
+
+    @Test
+    void topUp_WhenShardHoldsTooManyCards_ShouldEvictLeastRecentlyUsed() {
+        balanceEngine.stop();
+        balanceEngine = engine(1, Duration.ofSeconds(5));
+        Card sameShardCard = Card.builder()
+                .cardId(3L)
+                .cardNumber("1111222233334444")
+                .cardHolder("Bob Brown")
+                .status(CardStatus.ACTIVE)
+                .balance(Money.ZERO)
+                .version(0L)
+                .build();
+        stubCards(testCard, sameShardCard);
+
+        balanceEngine.topUp(topUpRequest(testCard, "100.00"));
+        balanceEngine.topUp(topUpRequest(sameShardCard, "100.00"));
+        balanceEngine.topUp(topUpRequest(testCard, "100.00"));
+
+        verify(cardRepository, times(2)).findById(1L);
+    }
+
+    @Test
+    void topUp_WhenCommitIsNotAcknowledgedInTime_ShouldReportUnknownOutcome() {
+        balanceEngine.stop();
+        balanceEngine = engine(1000, Duration.ofMillis(100));
+        stubCards(testCard);
+        when(jdbcTemplate.batchUpdate(eq(InMemoryBalanceEngine.UPDATE_BALANCE), anyList())).thenAnswer(invocation -> {
+            Thread.sleep(300);
+            return new int[]{1};
+        });
+
+        assertThrows(BalanceOutcomeUnknownException.class, () -> balanceEngine.topUp(topUpRequest(testCard, "100.00")));
+    }
+
+    private String hash(String cardNumber) {
+        return cardNumberBlindIndex.hash(cardNumber);
+    }
+}
@@ -0,0 +1,153 @@
+package com.example.bankcards.service.card.engine;
+
+import com.example.bankcards.dto.card.TransferRequest;
+import com.example.bankcards.dto.enums.CardStatus;
+import com.example.bankcards.entity.Card;
+import com.example.bankcards.exception.NotEnoughMoneyException;
+import com.example.bankcards.repository.CardLedgerEntryRepository;
+import com.example.bankcards.repository.CardRepository;
+import com.example.bankcards.service.card.ledger.CardLedger;
+import com.example.bankcards.util.CardLockStripes;
+import com.example.bankcards.util.CardNumberBlindIndex;
+import com.example.bankcards.util.Money;
+import com.example.bankcards.util.OptimisticRetryExecutor;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class JpaBalanceEngineConcurrencyTest {
+
+    private static final int CARDS = 8;
+    private static final int THREADS = 16;
+    private static final int TRANSFERS = 20_000;
+    private static final Money INITIAL_BALANCE = Money.of("1000.00");
+
+    // Имитация таблицы cards: каждая выборка отдаёт копию строки, saveAll записывает её обратно
+    private final Map<Long, Money> balances = new ConcurrentHashMap<>();
+
+    private JpaBalanceEngine balanceEngine;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        for (long cardId = 1; cardId <= CARDS; cardId++) {
+            balances.put(cardId, INITIAL_BALANCE);
+        }
+
+        CardNumberBlindIndex cardNumberBlindIndex = new CardNumberBlindIndex("q5V0cY3mJ8pT2wN6rL9eH4sA1uK7zX0bD3fG6jM9nQ2=");
+        Map<String, Long> cardIdsByHash = new HashMap<>();
+        for (long cardId = 1; cardId <= CARDS; cardId++) {
+            cardIdsByHash.put(cardNumberBlindIndex.hash(String.valueOf(cardId)), cardId);
+        }
+
+        CardRepository cardRepository = mock(CardRepository.class, withSettings().stubOnly());
+        when(cardRepository.findCardIdByCardNumberHashAndCardHolder(anyString(), anyString()))
+                .thenAnswer(invocation -> Optional.ofNullable(cardIdsByHash.get(invocation.<String>getArgument(0))));
+        when(cardRepository.findAllByCardIdInForUpdate(anyCollection()))
+                .thenAnswer(invocation -> ((Collection<Long>) invocation.getArgument(0)).stream()
+                        .map(this::loadCard)
+                        .toList());
+        when(cardRepository.saveAll(anyIterable()))
+                .thenAnswer(invocation -> {
+                    Iterable<Card> cards = invocation.getArgument(0);
+                    cards.forEach(card -> balances.put(card.getCardId(), card.getBalance()));
+                    return cards;
+                });
+
+        CardLedgerEntryRepository ledgerEntryRepository = mock(CardLedgerEntryRepository.class, withSettings().stubOnly());
+        PlatformTransactionManager transactionManager = mock(PlatformTransactionManager.class, withSettings().stubOnly());
+        OptimisticRetryExecutor retryExecutor = new OptimisticRetryExecutor(
+                new TransactionTemplate(transactionManager), new SimpleMeterRegistry(), 3, Duration.ZERO, Duration.ZERO);
+        balanceEngine = new JpaBalanceEngine(cardRepository, new CardLockStripes(4), retryExecutor,
+                new CardLedger(ledgerEntryRepository), cardNumberBlindIndex);
+    }
+
+    private Card loadCard(Long cardId) {
+        return Card.builder()
+                .cardId(cardId)
+                .cardNumber(String.valueOf(cardId))
+                .cardHolder("holder-" + cardId)
+                .expiryDate(LocalDate.now().plusYears(3))
+                .status(CardStatus.ACTIVE)
+                .balance(balances.get(cardId))
+                .build();
+    }
+
+    @Test
+    void randomTransfersBetweenHotCards_ShouldConserveTotalBalance() throws InterruptedException {
+        AtomicInteger completed = new AtomicInteger();
+        AtomicInteger rejected = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+
+        for (int i = 0; i < TRANSFERS; i++) {
+            executor.execute(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                long from = random.nextLong(1, CARDS + 1);
+                long to = random.nextLong(1, CARDS + 1);
+                TransferRequest request = TransferRequest.builder()
+                        .cardNumberFrom(String.valueOf(from))
+                        .cardHolderFrom("holder-" + from)
+                        .cardNumberTo(String.valueOf(to))
+                        .cardHolderTo("holder-" + to)
+                        .addedAmount(Money.ofMinorUnits(random.nextInt(1, 30_000)))
+                        .build();
+                try {
+                    balanceEngine.transfer(request);
+                    completed.incrementAndGet();
+                } catch (NotEnoughMoneyException e) {
+                    rejected.incrementAndGet();
+                }
+            });
+        }
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(60, TimeUnit.SECONDS), "Переводы не завершились: возможна взаимная блокировка");
+
+        Money total = balances.values().stream().reduce(Money.ZERO, Money::plus);
+        assertEquals(TRANSFERS, completed.get() + rejected.get());
+        assertEquals(INITIAL_BALANCE.getMinorUnits() * CARDS, total.getMinorUnits());
+        assertTrue(balances.values().stream().allMatch(balance -> balance.signum() >= 0));
+    }
+
+    @Test
+    void stripesForOppositeDirections_ShouldBeAcquiredInSameOrder() throws InterruptedException {
+        CardLockStripes stripes = new CardLockStripes(CARDS);
+        List<Long> forward = List.of(1L, 2L);
+        List<Long> backward = List.of(2L, 1L);
+        CountDownLatch done = new CountDownLatch(2 * THREADS);
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+
+        for (int i = 0; i < THREADS; i++) {
+            executor.execute(() -> {
+                for (int j = 0; j < 1_000; j++) {
+                    stripes.executeLocked(forward, () -> null);
+                }
+                done.countDown();
+            });
+            executor.execute(() -> {
+                for (int j = 0; j < 1_000; j++) {
+                    stripes.executeLocked(backward, () -> null);
+                }
+                done.countDown();
+            });
+        }
+        executor.shutdown();
+
+        assertTrue(done.await(30, TimeUnit.SECONDS), "Встречные блокировки не завершились");
+    }
+}
@@ -0,0 +1,152 @@
+package com.example.bankcards.service.card.engine;
+
+import com.example.bankcards.dto.card.TransferRequest;
+import com.example.bankcards.dto.enums.CardStatus;
+import com.example.bankcards.dto.enums.Role;
+import com.example.bankcards.entity.Card;
+import com.example.bankcards.entity.User;
+import com.example.bankcards.repository.CardRepository;
+import com.example.bankcards.repository.UserRepository;
+import com.example.bankcards.service.card.ledger.CardLedger;
+import com.example.bankcards.util.CardLockStripes;
+import com.example.bankcards.util.CardNumberBlindIndex;
+import com.example.bankcards.util.Money;
+import com.example.bankcards.util.OptimisticRetryExecutor;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Встречные переводы A→B и B→A на настоящей базе. Второй экземпляр движка со своей таблицей страйпов
+ * изображает другой узел: между узлами переводы упорядочивает только SELECT ... FOR UPDATE по cardId.
+ */
+@SpringBootTest
+@Testcontainers(disabledWithoutDocker = true)
+class JpaBalanceEngineDatabaseConcurrencyTest {
+
+    private static final int THREADS = 16;
+    private static final int TRANSFERS_PER_DIRECTION = 500;
+    private static final Money INITIAL_BALANCE = Money.of("100000.00");
+    private static final Money AMOUNT = Money.of("1.00");
+
+    @Container
+    static PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:16-alpine");
+
+    @DynamicPropertySource
+    static void datasource(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", postgres::getJdbcUrl);
+        registry.add("spring.datasource.username", postgres::getUsername);
+        registry.add("spring.datasource.password", postgres::getPassword);
+        registry.add("spring.datasource.hikari.maximum-pool-size", () -> 2 * THREADS);
+    }
+
+    @Autowired
+    private CardRepository cardRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private JpaBalanceEngine firstNode;
+
+    @Autowired
+    private OptimisticRetryExecutor retryExecutor;
+
+    @Autowired
+    private CardLedger cardLedger;
+
+    @Autowired
+    private CardNumberBlindIndex cardNumberBlindIndex;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private JpaBalanceEngine secondNode;
+    private Card cardA;
+    private Card cardB;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate.execute("truncate table cards, users restart identity cascade");
+        secondNode = new JpaBalanceEngine(cardRepository, new CardLockStripes(256), retryExecutor, cardLedger, cardNumberBlindIndex);
+
+        User user = userRepository.save(User.builder()
+                .username("stress")
+                .email("stress@example.com")
+                .password("stress")
+                .role(Role.USER)
+                .build());
+        cardA = saveCard(user, "4000000000000001", "Holder A");
+        cardB = saveCard(user, "4000000000000002", "Holder B");
+    }
+
+    @Test
+    void crossedTransfersFromTwoNodes_ShouldNotDeadlockAndShouldConserveBalances() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        List<Callable<Void>> tasks = new ArrayList<>(4 * TRANSFERS_PER_DIRECTION);
+        for (int i = 0; i < TRANSFERS_PER_DIRECTION; i++) {
+            tasks.add(transfer(firstNode, cardA, cardB));
+            tasks.add(transfer(secondNode, cardB, cardA));
+            tasks.add(transfer(secondNode, cardA, cardB));
+            tasks.add(transfer(firstNode, cardB, cardA));
+        }
+
+        List<Future<Void>> futures = executor.invokeAll(tasks, 120, TimeUnit.SECONDS);
+        executor.shutdown();
+
+        // Взаимная блокировка в базе обрывается ошибкой deadlock detected, поэтому падает get()
+        for (Future<Void> future : futures) {
+            assertFalse(future.isCancelled(), "Переводы не завершились за отведённое время");
+            future.get();
+        }
+        assertEquals(0, INITIAL_BALANCE.toBigDecimal().compareTo(balance(cardA)));
+        assertEquals(0, INITIAL_BALANCE.toBigDecimal().compareTo(balance(cardB)));
+    }
+
+    private Callable<Void> transfer(JpaBalanceEngine engine, Card from, Card to) {
+        TransferRequest request = TransferRequest.builder()
+                .cardNumberFrom(from.getCardNumber())
+                .cardHolderFrom(from.getCardHolder())
+                .cardNumberTo(to.getCardNumber())
+                .cardHolderTo(to.getCardHolder())
+                .addedAmount(AMOUNT)
+                .build();
+        return () -> {
+            engine.transfer(request);
+            return null;
+        };
+    }
+
+    private Card saveCard(User user, String cardNumber, String cardHolder) {
+        return cardRepository.save(Card.builder()
+                .cardNumber(cardNumber)
+                .cardNumberHash(cardNumberBlindIndex.hash(cardNumber))
+                .cardNumberMasked("**** **** **** " + cardNumber.substring(12))
+                .cardHolder(cardHolder)
+                .expiryDate(LocalDate.now().plusYears(3))
+                .status(CardStatus.ACTIVE)
+                .balance(INITIAL_BALANCE)
+                .user(user)
+                .build());
+    }
+
+    private BigDecimal balance(Card card) {
+        return jdbcTemplate.queryForObject("select balance from cards where card_id = ?", BigDecimal.class, card.getCardId());
+    }
+
+}
@@ -0,0 +1,493 @@
+package com.example.bankcards.service.card.engine;
+
+import com.example.bankcards.dto.card.BatchTransferResponse;
+import com.example.bankcards.dto.card.CardDtoOutUser;
+import com.example.bankcards.dto.card.CardIdentity;
+import com.example.bankcards.dto.card.RequestUpdateBalance;
+import com.example.bankcards.dto.card.TransferRequest;
+import com.example.bankcards.dto.card.TransferResult;
+import com.example.bankcards.dto.enums.CardStatus;
+import com.example.bankcards.dto.enums.LedgerEntryType;
+import com.example.bankcards.dto.enums.TransferStatus;
+import com.example.bankcards.entity.Card;
+import com.example.bankcards.entity.CardLedgerEntry;
+import com.example.bankcards.entity.User;
+import com.example.bankcards.exception.CardDoesNotWorkException;
+import com.example.bankcards.exception.CardNotFoundException;
+import com.example.bankcards.exception.NotEnoughMoneyException;
+import com.example.bankcards.repository.CardLedgerEntryRepository;
+import com.example.bankcards.repository.CardRepository;
+import com.example.bankcards.service.card.ledger.CardLedger;
+import com.example.bankcards.util.CardLockStripes;
+import com.example.bankcards.util.CardNumberBlindIndex;
+import com.example.bankcards.util.Money;
+import com.example.bankcards.util.OptimisticRetryExecutor;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class JpaBalanceEngineTest {
+
+    @Mock
+    private CardRepository cardRepository;
+
+    @Mock
+    private CardLedgerEntryRepository ledgerEntryRepository;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private final CardNumberBlindIndex cardNumberBlindIndex = new CardNumberBlindIndex("q5V0cY3mJ8pT2wN6rL9eH4sA1uK7zX0bD3fG6jM9nQ2=");
+
+    private JpaBalanceEngine balanceEngine;
+
+    private Card testCard;
+    private Card anotherCard;
+
+    @BeforeEach
+    void setUp() {
+        OptimisticRetryExecutor retryExecutor = new OptimisticRetryExecutor(
+                new TransactionTemplate(transactionManager), new SimpleMeterRegistry(), 3, Duration.ZERO, Duration.ZERO);
+        balanceEngine = new JpaBalanceEngine(cardRepository, new CardLockStripes(16), retryExecutor,
+                new CardLedger(ledgerEntryRepository), cardNumberBlindIndex);
+        ReflectionTestUtils.setField(balanceEngine, "maxBatchStripes", 16);
+
+        User testUser = User.builder()
+                .id(1L)
+                .username("john_doe")
+                .email("john@example.com")
+                .build();
+
+        testCard = Card.builder()
+                .cardId(1L)
+                .cardNumber("1234567812345678")
+                .cardNumberMasked("**** **** **** 5678")
+                .cardHolder("John Doe")
+                .expiryDate(LocalDate.now().plusYears(3))
+                .status(CardStatus.ACTIVE)
+                .balance(Money.of("1000.00"))
+                .user(testUser)
+                .build();
+
+        anotherCard = Card.builder()
+                .cardId(2L)
+                .cardNumber("8765432187654321")
+                .cardNumberMasked("**** **** **** 4321")
+                .cardHolder("Jane Smith")
+                .expiryDate(LocalDate.now().plusYears(2))
+                .status(CardStatus.ACTIVE)
+                .balance(Money.of("500.00"))
+                .user(testUser)
+                .build();
+    }
+
+    private TransferRequest transferRequest(Card from, Card to, String amount) {
+        return TransferRequest.builder()
+                .cardNumberFrom(from.getCardNumber())
+                .cardHolderFrom(from.getCardHolder())
+                .cardNumberTo(to.getCardNumber())
+                .cardHolderTo(to.getCardHolder())
+                .addedAmount(Money.of(amount))
+                .build();
+    }
+
+    private RequestUpdateBalance topUpRequest(Card card, String amount) {
+        return RequestUpdateBalance.builder()
+                .cardNumber(card.getCardNumber())
+                .cardHolder(card.getCardHolder())
+                .addedAmount(Money.of(amount))
+                .build();
+    }
+
+    private void stubCards(Card... cards) {
+        for (Card card : cards) {
+            when(cardRepository.findCardIdByCardNumberHashAndCardHolder(hash(card.getCardNumber()), card.getCardHolder()))
+                    .thenReturn(Optional.of(card.getCardId()));
+        }
+        when(cardRepository.findAllByCardIdInForUpdate(anyCollection())).thenReturn(List.of(cards));
+    }
+
+    @Test
+    void transfer_WithValidCards_ShouldLockBothCardsAndTransferMoney() {
+        stubCards(testCard, anotherCard);
+
+        balanceEngine.transfer(transferRequest(testCard, anotherCard, "300.00"));
+
+        verify(cardRepository, times(1)).findAllByCardIdInForUpdate(List.of(1L, 2L));
+        verify(cardRepository, times(1)).saveAll(List.of(testCard, anotherCard));
+        assertEquals(0, testCard.getBalance().compareTo(Money.of("700.00")));
+        assertEquals(0, anotherCard.getBalance().compareTo(Money.of("800.00")));
+    }
+
+    @Test
+    void transfer_WithValidCards_ShouldWriteDebitAndCreditInOneBatch() {
+        stubCards(testCard, anotherCard);
+
+        balanceEngine.transfer(transferRequest(testCard, anotherCard, "300.00"));
+
+        ArgumentCaptor<List<CardLedgerEntry>> captor = ArgumentCaptor.forClass(List.class);
+        verify(ledgerEntryRepository, times(1)).saveAll(captor.capture());
+        List<CardLedgerEntry> entries = captor.getValue();
+
+        assertEquals(2, entries.size());
+        assertEquals(entries.get(0).getOperationId(), entries.get(1).getOperationId());
+        assertEquals(LedgerEntryType.DEBIT, entries.get(0).getEntryType());
+        assertEquals(1L, entries.get(0).getCardId());
+        assertEquals(0, entries.get(0).getBalanceAfter().compareTo(Money.of("700.00")));
+        assertEquals(LedgerEntryType.CREDIT, entries.get(1).getEntryType());
+        assertEquals(2L, entries.get(1).getCardId());
+        assertEquals(0, entries.get(1).getBalanceAfter().compareTo(Money.of("800.00")));
+    }
+
+    @Test
+    void transfer_WithInsufficientFunds_ShouldThrowNotEnoughMoneyException() {
+        stubCards(testCard, anotherCard);
+
+        NotEnoughMoneyException exception = assertThrows(
+                NotEnoughMoneyException.class,
+                () -> balanceEngine.transfer(transferRequest(testCard, anotherCard, "1500.00"))
+        );
+
+        assertTrue(exception.getMessage().contains("В карте пользователя John Doe недостаточно средств для перевода"));
+        verify(cardRepository, never()).saveAll(anyList());
+        verifyNoInteractions(ledgerEntryRepository);
+        assertEquals(0, testCard.getBalance().compareTo(Money.of("1000.00")));
+    }
+
+    @Test
+    void transfer_WithBlockedSourceCard_ShouldThrowCardDoesNotWorkException() {
+        testCard.setStatus(CardStatus.BLOCKED);
+        stubCards(testCard, anotherCard);
+
+        CardDoesNotWorkException exception = assertThrows(
+                CardDoesNotWorkException.class,
+                () -> balanceEngine.transfer(transferRequest(testCard, anotherCard, "300.00"))
+        );
+
+        assertTrue(exception.getMessage().contains("Карта пользователя John Doe не рабочая"));
+        verify(cardRepository, never()).saveAll(anyList());
+    }
+
+    @Test
+    void transfer_WithExpiredTargetCard_ShouldNotChangeSourceBalance() {
+        anotherCard.setStatus(CardStatus.EXPIRED);
+        stubCards(testCard, anotherCard);
+
+        CardDoesNotWorkException exception = assertThrows(
+                CardDoesNotWorkException.class,
+                () -> balanceEngine.transfer(transferRequest(testCard, anotherCard, "300.00"))
+        );
+
+        assertTrue(exception.getMessage().contains("Карта пользователя Jane Smith не рабочая"));
+        assertEquals(0, testCard.getBalance().compareTo(Money.of("1000.00")));
+        verify(cardRepository, never()).saveAll(anyList());
+    }
+
+    @Test
+    void transfer_WithNonExistingSourceCard_ShouldThrowCardNotFoundException() {
+        TransferRequest request = TransferRequest.builder()
+                .cardNumberFrom("9999999999999999")
+                .cardHolderFrom("Non Existing")
+                .cardNumberTo("8765432187654321")
+                .cardHolderTo("Jane Smith")
+                .addedAmount(Money.of("300.00"))
+                .build();
+
+        when(cardRepository.findCardIdByCardNumberHashAndCardHolder(hash("9999999999999999"), "Non Existing"))
+                .thenReturn(Optional.empty());
+
+        CardNotFoundException exception = assertThrows(
+                CardNotFoundException.class,
+                () -> balanceEngine.transfer(request)
+        );
+
+        assertTrue(exception.getMessage().contains("Карты с пользователем Non Existing не существует"));
+        verify(cardRepository, never()).findAllByCardIdInForUpdate(anyCollection());
+        verifyNoInteractions(transactionManager);
+    }
+
+    @Test
+    void transfer_WithCardDeletedBeforeLock_ShouldThrowCardNotFoundException() {
+        when(cardRepository.findCardIdByCardNumberHashAndCardHolder(hash("1234567812345678"), "John Doe"))
+                .thenReturn(Optional.of(1L));
+        when(cardRepository.findCardIdByCardNumberHashAndCardHolder(hash("8765432187654321"), "Jane Smith"))
+                .thenReturn(Optional.of(2L));
+        when(cardRepository.findAllByCardIdInForUpdate(anyCollection())).thenReturn(List.of(testCard));
+
+        CardNotFoundException exception = assertThrows(
+                CardNotFoundException.class,
+                () -> balanceEngine.transfer(transferRequest(testCard, anotherCard, "300.00"))
+        );
+
+        assertTrue(exception.getMessage().contains("Карты с пользователем Jane Smith не существует"));
+        verify(cardRepository, never()).saveAll(anyList());
+    }
+
+    @Test
+    void transfer_ShouldLockCardsInAscendingIdOrderRegardlessOfDirection() {
+        stubCards(anotherCard, testCard);
+
+        balanceEngine.transfer(transferRequest(anotherCard, testCard, "100.00"));
+
+        ArgumentCaptor<Collection<Long>> captor = ArgumentCaptor.forClass(Collection.class);
+        verify(cardRepository).findAllByCardIdInForUpdate(captor.capture());
+        assertEquals(List.of(1L, 2L), new ArrayList<>(captor.getValue()));
+        assertEquals(0, anotherCard.getBalance().compareTo(Money.of("400.00")));
+        assertEquals(0, testCard.getBalance().compareTo(Money.of("1100.00")));
+    }
+
+    @Test
+    void transfer_WithExactAmount_ShouldLeaveZeroBalance() {
+        stubCards(testCard, anotherCard);
+
+        balanceEngine.transfer(transferRequest(testCard, anotherCard, "1000.00"));
+
+        assertEquals(0, testCard.getBalance().compareTo(Money.ZERO));
+        assertEquals(0, anotherCard.getBalance().compareTo(Money.of("1500.00")));
+    }
+
+    @Test
+    void transfer_WithZeroAmount_ShouldKeepBothBalances() {
+        stubCards(testCard, anotherCard);
+
+        balanceEngine.transfer(transferRequest(testCard, anotherCard, "0.00"));
+
+        verify(cardRepository, times(1)).saveAll(List.of(testCard, anotherCard));
+        assertEquals(0, testCard.getBalance().compareTo(Money.of("1000.00")));
+        assertEquals(0, anotherCard.getBalance().compareTo(Money.of("500.00")));
+    }
+
+    @Test
+    void transfer_WithSameCard_ShouldKeepBalance() {
+        when(cardRepository.findCardIdByCardNumberHashAndCardHolder(hash("1234567812345678"), "John Doe"))
+                .thenReturn(Optional.of(1L));
+        when(cardRepository.findAllByCardIdInForUpdate(anyCollection())).thenReturn(List.of(testCard));
+
+        balanceEngine.transfer(transferRequest(testCard, testCard, "300.00"));
+
+        verify(cardRepository, times(2)).findCardIdByCardNumberHashAndCardHolder(hash("1234567812345678"), "John Doe");
+        verify(cardRepository, times(1)).findAllByCardIdInForUpdate(List.of(1L));
+        assertEquals(0, testCard.getBalance().compareTo(Money.of("1000.00")));
+    }
+
+    private CardIdentity identity(Card card) {
+        return new CardIdentity() {
+            @Override
+            public Long getCardId() {
+                return card.getCardId();
+            }
+
+            @Override
+            public String getCardNumberHash() {
+                return hash(card.getCardNumber());
+            }
+
+            @Override
+            public String getCardHolder() {
+                return card.getCardHolder();
+            }
+        };
+    }
+
+    @Test
+    void transferBatch_ShouldResolveAndLockAllCardsOnceAndApplyInOrder() {
+        when(cardRepository.findAllByCardNumberHashIn(anyCollection()))
+                .thenReturn(List.of(identity(anotherCard), identity(testCard)));
+        when(cardRepository.findAllByCardIdInForUpdate(anyCollection())).thenReturn(List.of(testCard, anotherCard));
+
+        BatchTransferResponse response = balanceEngine.transferBatch(List.of(
+                transferRequest(testCard, anotherCard, "300.00"),
+                transferRequest(anotherCard, testCard, "50.00"),
+                transferRequest(testCard, anotherCard, "100.00")));
+
+        verify(cardRepository, times(1)).findAllByCardNumberHashIn(anyCollection());
+        verify(cardRepository, times(1)).findAllByCardIdInForUpdate(List.of(1L, 2L));
+        verify(cardRepository, never()).findCardIdByCardNumberHashAndCardHolder(anyString(), anyString());
+        assertEquals(3, response.getCompleted());
+        assertEquals(0, response.getRejected());
+        assertEquals(0, testCard.getBalance().compareTo(Money.of("650.00")));
+        assertEquals(0, anotherCard.getBalance().compareTo(Money.of("850.00")));
+    }
+
+    @Test
+    void transferBatch_WithFailingLeg_ShouldRejectOnlyThatItem() {
+        when(cardRepository.findAllByCardNumberHashIn(anyCollection()))
+                .thenReturn(List.of(identity(testCard), identity(anotherCard)));
+        when(cardRepository.findAllByCardIdInForUpdate(anyCollection())).thenReturn(List.of(testCard, anotherCard));
+
+        TransferRequest unknownCard = TransferRequest.builder()
+                .cardNumberFrom("1234567812345678")
+                .cardHolderFrom("John Doe")
+                .cardNumberTo("9999999999999999")
+                .cardHolderTo("Non Existing")
+                .addedAmount(Money.of("10.00"))
+                .build();
+
+        BatchTransferResponse response = balanceEngine.transferBatch(List.of(
+                transferRequest(testCard, anotherCard, "900.00"),
+                transferRequest(testCard, anotherCard, "200.00"),
+                unknownCard,
+                transferRequest(anotherCard, testCard, "100.00")));
+
+        assertEquals(2, response.getCompleted());
+        assertEquals(2, response.getRejected());
+        List<TransferResult> results = response.getResults();
+        assertEquals(TransferStatus.COMPLETED, results.get(0).getStatus());
+        assertEquals(TransferStatus.REJECTED, results.get(1).getStatus());
+        assertTrue(results.get(1).getMessage().contains("недостаточно средств"));
+        assertEquals(TransferStatus.REJECTED, results.get(2).getStatus());
+        assertTrue(results.get(2).getMessage().contains("Карты с пользователем Non Existing не существует"));
+        assertEquals(2, results.get(2).getIndex());
+        assertEquals(TransferStatus.COMPLETED, results.get(3).getStatus());
+        assertEquals(0, testCard.getBalance().compareTo(Money.of("200.00")));
+        assertEquals(0, anotherCard.getBalance().compareTo(Money.of("1300.00")));
+    }
+
+    @Test
+    void transferBatch_WithMoreStripesThanAllowed_ShouldLockSubBatchesInOrder() {
+        ReflectionTestUtils.setField(balanceEngine, "maxBatchStripes", 2);
+        Card thirdCard = Card.builder()
+                .cardId(3L)
+                .cardNumber("1111222233334444")
+                .cardHolder("Jack Black")
+                .expiryDate(LocalDate.now().plusYears(2))
+                .status(CardStatus.ACTIVE)
+                .balance(Money.of("0.00"))
+                .build();
+        Map<Long, Card> cards = Map.of(1L, testCard, 2L, anotherCard, 3L, thirdCard);
+        when(cardRepository.findAllByCardNumberHashIn(anyCollection()))
+                .thenReturn(List.of(identity(testCard), identity(anotherCard), identity(thirdCard)));
+        when(cardRepository.findAllByCardIdInForUpdate(anyCollection()))
+                .thenAnswer(invocation -> invocation.<Collection<Long>>getArgument(0).stream().map(cards::get).toList());
+
+        BatchTransferResponse response = balanceEngine.transferBatch(List.of(
+                transferRequest(testCard, anotherCard, "300.00"),
+                transferRequest(anotherCard, testCard, "100.00"),
+                transferRequest(anotherCard, thirdCard, "700.00")));
+
+        InOrder inOrder = inOrder(cardRepository);
+        inOrder.verify(cardRepository).findAllByCardIdInForUpdate(List.of(1L, 2L));
+        inOrder.verify(cardRepository).findAllByCardIdInForUpdate(List.of(2L, 3L));
+        assertEquals(3, response.getCompleted());
+        assertEquals(2, response.getResults().get(2).getIndex());
+        assertEquals(0, anotherCard.getBalance().compareTo(Money.of("0.00")));
+        assertEquals(0, thirdCard.getBalance().compareTo(Money.of("700.00")));
+    }
+
+    @Test
+    void transferBatch_WithOnlyUnknownCards_ShouldNotLockAnything() {
+        when(cardRepository.findAllByCardNumberHashIn(anyCollection())).thenReturn(List.of());
+
+        BatchTransferResponse response = balanceEngine.transferBatch(List.of(transferRequest(testCard, anotherCard, "10.00")));
+
+        assertEquals(0, response.getCompleted());
+        assertEquals(1, response.getRejected());
+        verify(cardRepository, never()).findAllByCardIdInForUpdate(anyCollection());
+    }
+
+    @Test
+    void topUp_WithValidCard_ShouldUpdateBalanceAndRecordLedger() {
+        when(cardRepository.findByCardNumberHashAndCardHolder(hash("1234567812345678"), "John Doe"))
+                .thenReturn(Optional.of(testCard));
+
+        CardDtoOutUser result = balanceEngine.topUp(topUpRequest(testCard, "500.00"));
+
+        assertEquals(0, result.getBalance().compareTo(new BigDecimal("1500.00")));
+        verify(cardRepository, times(1)).save(argThat(card ->
+                card.getBalance().compareTo(Money.of("1500.00")) == 0
+        ));
+        verify(ledgerEntryRepository, times(1)).saveAll(anyList());
+    }
+
+    @Test
+    void topUp_WithBlockedCard_ShouldThrowCardDoesNotWorkException() {
+        testCard.setStatus(CardStatus.BLOCKED);
+        when(cardRepository.findByCardNumberHashAndCardHolder(hash("1234567812345678"), "John Doe"))
+                .thenReturn(Optional.of(testCard));
+
+        CardDoesNotWorkException exception = assertThrows(
+                CardDoesNotWorkException.class,
+                () -> balanceEngine.topUp(topUpRequest(testCard, "500.00"))
+        );
+
+        assertTrue(exception.getMessage().contains("Карта пользователя John Doe не рабочая"));
+        verify(cardRepository, never()).save(any(Card.class));
+        verifyNoInteractions(ledgerEntryRepository);
+    }
+
+    @Test
+    void topUp_WithExpiredCard_ShouldThrowCardDoesNotWorkException() {
+        testCard.setStatus(CardStatus.EXPIRED);
+        when(cardRepository.findByCardNumberHashAndCardHolder(hash("1234567812345678"), "John Doe"))
+                .thenReturn(Optional.of(testCard));
+
+        assertThrows(CardDoesNotWorkException.class, () -> balanceEngine.topUp(topUpRequest(testCard, "500.00")));
+
+        verify(cardRepository, never()).save(any(Card.class));
+    }
+
+    @Test
+    void topUp_WithNonExistingCard_ShouldThrowCardNotFoundException() {
+        when(cardRepository.findByCardNumberHashAndCardHolder(hash("1234567812345678"), "John Doe"))
+                .thenReturn(Optional.empty());
+
+        CardNotFoundException exception = assertThrows(
+                CardNotFoundException.class,
+                () -> balanceEngine.topUp(topUpRequest(testCard, "500.00"))
+        );
+
+        assertTrue(exception.getMessage().contains("Карты с пользователем John Doe не существует"));
+        verify(cardRepository, never()).save(any(Card.class));
+    }
+
+    @Test
+    void topUp_WithZeroAmount_ShouldKeepBalance() {
+        when(cardRepository.findByCardNumberHashAndCardHolder(hash("1234567812345678"), "John Doe"))
+                .thenReturn(Optional.of(testCard));
+
+        CardDtoOutUser result = balanceEngine.topUp(topUpRequest(testCard, "0.00"));
+
+        assertNotNull(result);
+        verify(cardRepository, times(1)).save(argThat(card ->
+                card.getBalance().compareTo(Money.of("1000.00")) == 0
+        ));
+    }
+
+    @Test
+    void topUp_WithNegativeAmount_ShouldDecreaseBalance() {
+        when(cardRepository.findByCardNumberHashAndCardHolder(hash("1234567812345678"), "John Doe"))
+                .thenReturn(Optional.of(testCard));
+
+        balanceEngine.topUp(topUpRequest(testCard, "-200.00"));
+
+        verify(cardRepository, times(1)).save(argThat(card ->
+                card.getBalance().compareTo(Money.of("800.00")) == 0
+        ));
+    }
+
+    private String hash(String cardNumber) {
+        return cardNumberBlindIndex.hash(cardNumber);
+    }
+}
@@ -0,0 +1,263 @@
+package com.example.bankcards.service.card.importing;
+
+import com.example.bankcards.dto.card.CardDtoIn;
+import com.example.bankcards.dto.card.CardImportJobDto;
+import com.example.bankcards.dto.enums.CardImportStatus;
+import com.example.bankcards.entity.Card;
+import com.example.bankcards.entity.CardImportError;
+import com.example.bankcards.entity.CardImportJob;
+import com.example.bankcards.entity.User;
+import com.example.bankcards.exception.CardImportJobNotFoundException;
+import com.example.bankcards.repository.CardImportErrorRepository;
+import com.example.bankcards.repository.CardImportJobRepository;
+import com.example.bankcards.repository.CardRepository;
+import com.example.bankcards.service.user.UserServiceImpl;
+import com.example.bankcards.util.CardNumberBlindIndex;
+import com.example.bankcards.util.CardNumberGenerator;
+import com.example.bankcards.util.Money;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class CardImportServiceImplTest {
+
+    @Mock
+    private CardImportJobRepository cardImportJobRepository;
+
+    @Mock
+    private CardImportErrorRepository cardImportErrorRepository;
+
+    @Mock
+    private CardRepository cardRepository;
+
+    @Mock
+    private UserServiceImpl userService;
+
+    @Spy
+    private CardNumberBlindIndex cardNumberBlindIndex = new CardNumberBlindIndex("q5V0cY3mJ8pT2wN6rL9eH4sA1uK7zX0bD3fG6jM9nQ2=");
+
+    @Mock
+    private CardNumberGenerator cardNumberGenerator;
+
+    @Spy
+    private TransactionTemplate transactionTemplate = new TransactionTemplate(mock(PlatformTransactionManager.class));
+
+    private CardImportServiceImpl cardImportService;
+
+    private CardImportJob savedJob;
+
+    private final User testUser = User.builder()
+            .id(1L)
+            .username("john_doe")
+            .email("john@example.com")
+            .build();
+
+    @BeforeEach
+    void setUp() {
+        // Фоновая обработка выполняется прямо в вызывающем потоке
+        cardImportService = new CardImportServiceImpl(cardImportJobRepository, cardImportErrorRepository, cardRepository,
+                userService, cardNumberBlindIndex, cardNumberGenerator, transactionTemplate, Runnable::run);
+        ReflectionTestUtils.setField(cardImportService, "expiryYears", 3);
+        ReflectionTestUtils.setField(cardImportService, "chunkSize", 2);
+        lenient().when(cardImportJobRepository.save(any(CardImportJob.class))).thenAnswer(invocation -> {
+            CardImportJob job = invocation.getArgument(0);
+            job.setJobId(7L);
+            savedJob = job;
+            return job;
+        });
+        lenient().when(cardNumberGenerator.next(anyInt())).thenAnswer(invocation -> {
+            List<String> cardNumbers = new ArrayList<>();
+            for (int i = 0; i < invocation.<Integer>getArgument(0); i++) {
+                cardNumbers.add(String.format("400000%010d", i));
+            }
+            return cardNumbers;
+        });
+    }
+
+    @Test
+    void importCards_ShouldInsertValidRowsInChunksAndReportTheRest() {
+        when(userService.getEntitiesByIds(anyCollection())).thenReturn(Map.of(1L, testUser));
+
+        CardImportJobDto result = cardImportService.importCards(csv("""
+                userId,cardHolder,initialBalance
+                1,John Doe,100.50
+                abc,John Doe,10
+                1,"Doe, John",
+                99,Nobody,1.00
+
+                1,John Doe,-5
+                """));
+
+        assertEquals(7L, result.getJobId());
+        assertEquals(CardImportStatus.RUNNING, result.getStatus());
+        assertEquals(CardImportStatus.COMPLETED, savedJob.getStatus());
+        assertEquals(5, savedJob.getProcessedRows());
+        assertEquals(2, savedJob.getImportedRows());
+        assertEquals(3, savedJob.getFailedRows());
+        assertNotNull(savedJob.getCompletedAt());
+
+        List<Card> cards = savedCards();
+        assertEquals(2, cards.size());
+        assertEquals(Money.of("100.50"), cards.get(0).getBalance());
+        assertEquals("Doe, John", cards.get(1).getCardHolder());
+        assertEquals(Money.ZERO, cards.get(1).getBalance());
+        assertEquals(cardNumberBlindIndex.hash(cards.get(0).getCardNumber()), cards.get(0).getCardNumberHash());
+        assertNotNull(cards.get(0).getExpiryDate());
+
+        Map<Long, String> errors = new TreeMap<>();
+        for (CardImportError error : savedErrors()) {
+            assertEquals(7L, error.getJobId());
+            errors.put(error.getLineNumber(), error.getMessage());
+        }
+        assertEquals(Map.of(
+                3L, "Некорректный userId: abc",
+                5L, "Пользователя с Id 99 не существует",
+                7L, "Начальный баланс не может быть отрицательным"), errors);
+
+        verify(cardImportJobRepository, times(2)).addProgress(7L, 2, 1, 1);
+        verify(cardImportJobRepository).addProgress(7L, 1, 0, 1);
+    }
+
+    @Test
+    void importCards_WhenStreamBreaks_ShouldMarkJobFailed() {
+        InputStream broken = new InputStream() {
+            @Override
+            public int read() throws IOException {
+                throw new IOException("Соединение закрыто");
+            }
+        };
+
+        CardImportJobDto result = cardImportService.importCards(broken);
+
+        assertEquals(CardImportStatus.FAILED, result.getStatus());
+        assertEquals("Соединение закрыто", result.getError());
+        verifyNoInteractions(cardRepository);
+    }
+
+    @Test
+    void importCards_WhenOneRowFailsToInsert_ShouldRecordItAndKeepTheRest() {
+        when(userService.getEntitiesByIds(anyCollection())).thenReturn(Map.of(1L, testUser));
+        List<String> inserted = new ArrayList<>();
+        when(cardRepository.saveAll(anyList())).thenAnswer(invocation -> {
+            List<Card> cards = invocation.getArgument(0);
+            if (cards.stream().anyMatch(card -> card.getCardHolder().equals("Broken Row"))) {
+                throw new IllegalStateException("Сбой вставки");
+            }
+            cards.forEach(card -> inserted.add(card.getCardHolder()));
+            return cards;
+        });
+
+        cardImportService.importCards(csv("""
+                1,John Doe,100.50
+                1,Broken Row,1.00
+                1,Jane Doe,2.00
+                abc,John Doe,10
+                """));
+
+        assertEquals(CardImportStatus.COMPLETED, savedJob.getStatus());
+        assertEquals(4, savedJob.getProcessedRows());
+        assertEquals(2, savedJob.getImportedRows());
+        assertEquals(2, savedJob.getFailedRows());
+
+        assertEquals(List.of("John Doe", "Jane Doe"), inserted);
+
+        Map<Long, String> errors = new TreeMap<>();
+        for (CardImportError error : savedErrors()) {
+            errors.put(error.getLineNumber(), error.getMessage());
+        }
+        assertEquals(Map.of(
+                2L, "Сбой вставки",
+                4L, "Некорректный userId: abc"), errors);
+
+        verify(cardImportJobRepository).addProgress(7L, 1, 1, 0);
+        verify(cardImportJobRepository).addProgress(7L, 1, 0, 1);
+        verify(cardImportJobRepository).addProgress(7L, 2, 1, 1);
+    }
+
+    @Test
+    void importCards_WhenFailedRowCannotBeRecorded_ShouldMarkJobFailed() {
+        when(userService.getEntitiesByIds(anyCollection())).thenReturn(Map.of(1L, testUser));
+        when(cardRepository.saveAll(anyList())).thenThrow(new IllegalStateException("Сбой вставки"));
+        when(cardImportErrorRepository.saveAll(anyList())).thenThrow(new IllegalStateException("База недоступна"));
+
+        CardImportJobDto result = cardImportService.importCards(csv("1,John Doe,100.50\n"));
+
+        assertEquals(CardImportStatus.RUNNING, result.getStatus());
+        assertEquals(CardImportStatus.FAILED, savedJob.getStatus());
+        assertEquals("База недоступна", savedJob.getError());
+        assertNotNull(savedJob.getCompletedAt());
+    }
+
+    @Test
+    void parse_ShouldRejectMalformedRows() {
+        assertEquals("Ожидалось 3 поля (userId, cardHolder, initialBalance), получено 2",
+                assertThrows(IllegalArgumentException.class, () -> CardImportServiceImpl.parse("1,John Doe")).getMessage());
+        assertEquals("Не указан владелец карты",
+                assertThrows(IllegalArgumentException.class, () -> CardImportServiceImpl.parse("1, ,10")).getMessage());
+        assertEquals("Некорректный начальный баланс: ten",
+                assertThrows(IllegalArgumentException.class, () -> CardImportServiceImpl.parse("1,John Doe,ten")).getMessage());
+        assertThrows(IllegalArgumentException.class, () -> CardImportServiceImpl.parse("1,John Doe,1.005"));
+        assertEquals("Незакрытая кавычка",
+                assertThrows(IllegalArgumentException.class, () -> CardImportServiceImpl.parse("1,\"John Doe,10")).getMessage());
+    }
+
+    @Test
+    void parse_ShouldUnescapeQuotedFields() {
+        CardDtoIn cardDtoIn = CardImportServiceImpl.parse("42,\"John \"\"JD\"\" Doe\",0.01");
+
+        assertEquals(42L, cardDtoIn.getUserId());
+        assertEquals("John \"JD\" Doe", cardDtoIn.getCardHolder());
+        assertEquals(Money.of("0.01"), cardDtoIn.getInitialBalance());
+    }
+
+    @Test
+    void getImportJob_WithUnknownId_ShouldThrowCardImportJobNotFoundException() {
+        when(cardImportJobRepository.findById(5L)).thenReturn(Optional.empty());
+
+        CardImportJobNotFoundException exception = assertThrows(CardImportJobNotFoundException.class,
+                () -> cardImportService.getImportJob(5L));
+
+        assertEquals("Импорта с id 5 не существует", exception.getMessage());
+    }
+
+    private static InputStream csv(String content) {
+        return new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<Card> savedCards() {
+        ArgumentCaptor<Iterable<Card>> captor = ArgumentCaptor.forClass(Iterable.class);
+        verify(cardRepository, atLeastOnce()).saveAll(captor.capture());
+        List<Card> cards = new ArrayList<>();
+        captor.getAllValues().forEach(chunk -> chunk.forEach(cards::add));
+        return cards;
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<CardImportError> savedErrors() {
+        ArgumentCaptor<Iterable<CardImportError>> captor = ArgumentCaptor.forClass(Iterable.class);
+        verify(cardImportErrorRepository, atLeastOnce()).saveAll(captor.capture());
+        List<CardImportError> errors = new ArrayList<>();
+        captor.getAllValues().forEach(chunk -> chunk.forEach(errors::add));
+        return errors;
+    }
+
+}
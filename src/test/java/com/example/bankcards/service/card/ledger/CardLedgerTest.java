@@ -0,0 +1,113 @@
+package com.example.bankcards.service.card.ledger;
+
+import com.example.bankcards.dto.enums.CardStatus;
+import com.example.bankcards.dto.enums.LedgerEntryType;
+import com.example.bankcards.dto.enums.LedgerOperationType;
+import com.example.bankcards.entity.Card;
+import com.example.bankcards.entity.CardLedgerEntry;
+import com.example.bankcards.repository.CardLedgerEntryRepository;
+import com.example.bankcards.util.Money;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class CardLedgerTest {
+
+    @Mock
+    private CardLedgerEntryRepository ledgerEntryRepository;
+
+    @InjectMocks
+    private CardLedger cardLedger;
+
+    private Card card;
+
+    @BeforeEach
+    void setUp() {
+        card = Card.builder()
+                .cardId(1L)
+                .cardHolder("John Doe")
+                .status(CardStatus.ACTIVE)
+                .balance(Money.of("1000.00"))
+                .build();
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<CardLedgerEntry> capturedEntries() {
+        ArgumentCaptor<List<CardLedgerEntry>> captor = ArgumentCaptor.forClass(List.class);
+        verify(ledgerEntryRepository, times(1)).saveAll(captor.capture());
+        return captor.getValue();
+    }
+
+    private Money signedSum(List<CardLedgerEntry> entries) {
+        return entries.stream()
+                .map(entry -> entry.getEntryType() == LedgerEntryType.DEBIT ? entry.getAmount().negate() : entry.getAmount())
+                .reduce(Money.ZERO, Money::plus);
+    }
+
+    @Test
+    void topUp_ShouldCreditCardAndBalanceAgainstExternalLeg() {
+        cardLedger.topUp(card, Money.of("250.00"));
+
+        List<CardLedgerEntry> entries = capturedEntries();
+
+        assertEquals(0, card.getBalance().compareTo(Money.of("1250.00")));
+        assertEquals(2, entries.size());
+        assertEquals(0, signedSum(entries).signum());
+        assertTrue(entries.stream().allMatch(entry -> entry.getOperationType() == LedgerOperationType.TOP_UP));
+
+        CardLedgerEntry credit = entries.get(1);
+        assertEquals(LedgerEntryType.CREDIT, credit.getEntryType());
+        assertEquals(1L, credit.getCardId());
+        assertEquals(0, credit.getBalanceAfter().compareTo(Money.of("1250.00")));
+        assertNull(entries.get(0).getCardId());
+    }
+
+    @Test
+    void topUp_WithNegativeAmount_ShouldDebitCard() {
+        cardLedger.topUp(card, Money.of("-200.00"));
+
+        List<CardLedgerEntry> entries = capturedEntries();
+
+        assertEquals(0, card.getBalance().compareTo(Money.of("800.00")));
+        assertEquals(LedgerEntryType.DEBIT, entries.get(1).getEntryType());
+        assertEquals(0, entries.get(1).getAmount().compareTo(Money.of("200.00")));
+        assertEquals(0, signedSum(entries).signum());
+    }
+
+    @Test
+    void transfer_ToSameCard_ShouldRecordIntermediateBalances() {
+        cardLedger.transfer(card, card, Money.of("300.00"));
+
+        List<CardLedgerEntry> entries = capturedEntries();
+
+        assertEquals(0, card.getBalance().compareTo(Money.of("1000.00")));
+        assertEquals(0, entries.get(0).getBalanceAfter().compareTo(Money.of("700.00")));
+        assertEquals(0, entries.get(1).getBalanceAfter().compareTo(Money.of("1000.00")));
+        assertEquals(0, signedSum(entries).signum());
+    }
+
+    @Test
+    void getLedgerBalance_ShouldUseLatestEntryOfCard() {
+        CardLedgerEntry latest = CardLedgerEntry.builder()
+                .cardId(1L)
+                .balanceAfter(Money.of("1250.00"))
+                .build();
+        when(ledgerEntryRepository.findFirstByCardIdOrderByEntryIdDesc(1L)).thenReturn(Optional.of(latest));
+
+        Optional<Money> balance = cardLedger.getLedgerBalance(1L);
+
+        assertTrue(balance.isPresent());
+        assertEquals(0, balance.get().compareTo(Money.of("1250.00")));
+    }
+}
@@ -0,0 +1,257 @@
+package com.example.bankcards.service.idempotency;
+
+import com.example.bankcards.dto.card.CardDtoOutUser;
+import com.example.bankcards.dto.card.RequestUpdateBalance;
+import com.example.bankcards.dto.enums.CardStatus;
+import com.example.bankcards.dto.enums.IdempotencyStatus;
+import com.example.bankcards.entity.IdempotencyRecord;
+import com.example.bankcards.exception.BalanceOutcomeUnknownException;
+import com.example.bankcards.exception.IdempotencyKeyConflictException;
+import com.example.bankcards.exception.InvalidIdempotencyKeyException;
+import com.example.bankcards.exception.NotEnoughMoneyException;
+import com.example.bankcards.repository.IdempotencyRecordRepository;
+import com.example.bankcards.util.Money;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class IdempotencyServiceImplTest {
+
+    @Mock
+    private IdempotencyRecordRepository idempotencyRecordRepository;
+
+    private IdempotencyServiceImpl idempotencyService;
+
+    private RequestUpdateBalance request;
+    private CardDtoOutUser response;
+    private AtomicInteger executions;
+
+    @BeforeEach
+    void setUp() {
+        ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+        idempotencyService = new IdempotencyServiceImpl(idempotencyRecordRepository, objectMapper,
+                Duration.ofHours(24), 100, Duration.ofMinutes(10));
+        lenient().when(idempotencyRecordRepository.complete(anyString(), any(), anyString(), any())).thenReturn(1);
+
+        request = RequestUpdateBalance.builder()
+                .cardNumber("1234567812345678")
+                .cardHolder("John Doe")
+                .addedAmount(Money.of("500.00"))
+                .build();
+
+        response = CardDtoOutUser.builder()
+                .cardHolder("John Doe")
+                .expiryDate(LocalDate.of(2030, 1, 1))
+                .status(CardStatus.ACTIVE)
+                .balance(new BigDecimal("1500.00"))
+                .cardNumberMasked("**** **** **** 5678")
+                .build();
+
+        executions = new AtomicInteger();
+    }
+
+    @AfterEach
+    void clearSecurityContext() {
+        SecurityContextHolder.clearContext();
+    }
+
+    private static void authenticateAs(String username) {
+        SecurityContextHolder.getContext().setAuthentication(
+                new UsernamePasswordAuthenticationToken(username, null, List.of()));
+    }
+
+    private String claimedKey() {
+        ArgumentCaptor<String> key = ArgumentCaptor.forClass(String.class);
+        verify(idempotencyRecordRepository, atLeastOnce()).claim(key.capture(), anyString(), anyString(), any(), any());
+        return key.getValue();
+    }
+
+    private CardDtoOutUser execute(String key, RequestUpdateBalance body) {
+        return idempotencyService.execute(key, "updateBalance", body, CardDtoOutUser.class, () -> {
+            executions.incrementAndGet();
+            return response;
+        });
+    }
+
+    @Test
+    void execute_WithoutKey_ShouldRunActionWithoutStore() {
+        execute(null, request);
+
+        assertEquals(1, executions.get());
+        verifyNoInteractions(idempotencyRecordRepository);
+    }
+
+    @Test
+    void execute_WithRepeatedKey_ShouldReplayFromCacheWithoutDatabase() {
+        when(idempotencyRecordRepository.claim(anyString(), eq("updateBalance"), anyString(), any(), any())).thenReturn(1);
+
+        CardDtoOutUser first = execute("key-1", request);
+        CardDtoOutUser replayed = execute("key-1", request);
+
+        assertEquals(1, executions.get());
+        assertSame(response, first);
+        assertEquals(0, replayed.getBalance().compareTo(new BigDecimal("1500.00")));
+        assertEquals("**** **** **** 5678", replayed.getCardNumberMasked());
+        verify(idempotencyRecordRepository, times(1)).claim(anyString(), anyString(), anyString(), any(), any());
+        String storedKey = claimedKey();
+        verify(idempotencyRecordRepository, times(1)).complete(eq(storedKey), any(), anyString(), any());
+        verify(idempotencyRecordRepository, never()).findById(anyString());
+    }
+
+    @Test
+    void execute_WithSameKeyAndDifferentPayload_ShouldThrowConflict() {
+        when(idempotencyRecordRepository.claim(anyString(), eq("updateBalance"), anyString(), any(), any())).thenReturn(1);
+        execute("key-1", request);
+
+        RequestUpdateBalance other = RequestUpdateBalance.builder()
+                .cardNumber("1234567812345678")
+                .cardHolder("John Doe")
+                .addedAmount(Money.of("900.00"))
+                .build();
+
+        assertThrows(IdempotencyKeyConflictException.class, () -> execute("key-1", other));
+        assertEquals(1, executions.get());
+    }
+
+    @Test
+    void execute_WhenKeyCompletedOnAnotherNode_ShouldReplayStoredResponse() throws Exception {
+        when(idempotencyRecordRepository.claim(anyString(), eq("updateBalance"), anyString(), any(), any())).thenReturn(1);
+        execute("key-2", request);
+        ArgumentCaptor<String> hash = ArgumentCaptor.forClass(String.class);
+        ArgumentCaptor<String> body = ArgumentCaptor.forClass(String.class);
+        verify(idempotencyRecordRepository).claim(anyString(), anyString(), hash.capture(), any(), any());
+        verify(idempotencyRecordRepository).complete(anyString(), any(), body.capture(), any());
+        String storedKey = claimedKey();
+
+        IdempotencyServiceImpl otherNode = new IdempotencyServiceImpl(idempotencyRecordRepository,
+                new ObjectMapper().findAndRegisterModules(), Duration.ofHours(24), 100, Duration.ofMinutes(10));
+        when(idempotencyRecordRepository.claim(anyString(), eq("updateBalance"), anyString(), any(), any())).thenReturn(0);
+        when(idempotencyRecordRepository.findById(storedKey)).thenReturn(Optional.of(IdempotencyRecord.builder()
+                .idempotencyKey(storedKey)
+                .requestHash(hash.getValue())
+                .status(IdempotencyStatus.COMPLETED)
+                .responseBody(body.getValue())
+                .build()));
+
+        CardDtoOutUser replayed = otherNode.execute("key-2", "updateBalance", request, CardDtoOutUser.class, () -> {
+            executions.incrementAndGet();
+            return response;
+        });
+
+        assertEquals(1, executions.get());
+        assertEquals("John Doe", replayed.getCardHolder());
+    }
+
+    @Test
+    void execute_WhenKeyIsStillInProgress_ShouldThrowConflict() {
+        when(idempotencyRecordRepository.claim(anyString(), eq("updateBalance"), anyString(), any(), any())).thenReturn(0);
+        when(idempotencyRecordRepository.findById(anyString())).thenReturn(Optional.of(IdempotencyRecord.builder()
+                .status(IdempotencyStatus.IN_PROGRESS)
+                .build()));
+
+        IdempotencyKeyConflictException exception = assertThrows(IdempotencyKeyConflictException.class,
+                () -> execute("key-3", request));
+
+        assertTrue(exception.getMessage().contains("ещё выполняется"));
+        assertEquals(0, executions.get());
+    }
+
+    @Test
+    void execute_WhenActionFails_ShouldReleaseKey() {
+        when(idempotencyRecordRepository.claim(anyString(), eq("updateBalance"), anyString(), any(), any())).thenReturn(1);
+
+        assertThrows(NotEnoughMoneyException.class, () -> idempotencyService.execute("key-4", "updateBalance", request,
+                CardDtoOutUser.class, () -> {
+                    throw new NotEnoughMoneyException("Недостаточно средств");
+                }));
+
+        String storedKey = claimedKey();
+        verify(idempotencyRecordRepository, times(1)).release(eq(storedKey), any());
+        verify(idempotencyRecordRepository, never()).complete(anyString(), any(), anyString(), any());
+    }
+
+    @Test
+    void execute_WhenOutcomeIsUnknown_ShouldKeepKeyClaimed() {
+        when(idempotencyRecordRepository.claim(anyString(), eq("updateBalance"), anyString(), any(), any())).thenReturn(1);
+
+        assertThrows(BalanceOutcomeUnknownException.class, () -> idempotencyService.execute("key-7", "updateBalance", request,
+                CardDtoOutUser.class, () -> {
+                    throw new BalanceOutcomeUnknownException("Результат неизвестен", null);
+                }));
+
+        verify(idempotencyRecordRepository, never()).release(anyString(), any());
+        verify(idempotencyRecordRepository, never()).complete(anyString(), any(), anyString(), any());
+    }
+
+    @Test
+    void execute_WithSameKeyFromDifferentUsers_ShouldNotShareStoredResponse() {
+        when(idempotencyRecordRepository.claim(anyString(), eq("updateBalance"), anyString(), any(), any())).thenReturn(1);
+
+        authenticateAs("alice");
+        execute("key-5", request);
+        authenticateAs("bob");
+        execute("key-5", request);
+
+        ArgumentCaptor<String> keys = ArgumentCaptor.forClass(String.class);
+        verify(idempotencyRecordRepository, times(2)).claim(keys.capture(), anyString(), anyString(), any(), any());
+        assertEquals(2, executions.get());
+        assertNotEquals(keys.getAllValues().get(0), keys.getAllValues().get(1));
+    }
+
+    @Test
+    void execute_ShouldHoldUnfinishedKeyAndCompletedResponseForTtl() {
+        when(idempotencyRecordRepository.claim(anyString(), eq("updateBalance"), anyString(), any(), any())).thenReturn(1);
+
+        execute("key-6", request);
+
+        ArgumentCaptor<LocalDateTime> claimedAt = ArgumentCaptor.forClass(LocalDateTime.class);
+        ArgumentCaptor<LocalDateTime> claimExpiresAt = ArgumentCaptor.forClass(LocalDateTime.class);
+        ArgumentCaptor<LocalDateTime> expiresAt = ArgumentCaptor.forClass(LocalDateTime.class);
+        verify(idempotencyRecordRepository).claim(anyString(), anyString(), anyString(), claimedAt.capture(), claimExpiresAt.capture());
+        verify(idempotencyRecordRepository).complete(anyString(), eq(claimedAt.getValue()), anyString(), expiresAt.capture());
+        assertEquals(Duration.ofHours(24), Duration.between(claimedAt.getValue(), claimExpiresAt.getValue()));
+        assertTrue(expiresAt.getValue().isAfter(claimedAt.getValue().plusHours(23)));
+    }
+
+    @Test
+    void execute_WhenKeyIsLostBeforeComplete_ShouldFailInsteadOfCachingResponse() {
+        when(idempotencyRecordRepository.claim(anyString(), eq("updateBalance"), anyString(), any(), any())).thenReturn(1);
+        when(idempotencyRecordRepository.complete(anyString(), any(), anyString(), any())).thenReturn(0);
+
+        assertThrows(IllegalStateException.class, () -> execute("key-8", request));
+
+        // Ответ не закэширован: повтор снова идёт в базу и не получает чужой результат
+        when(idempotencyRecordRepository.claim(anyString(), eq("updateBalance"), anyString(), any(), any())).thenReturn(0);
+        when(idempotencyRecordRepository.findById(anyString())).thenReturn(Optional.empty());
+        assertThrows(IdempotencyKeyConflictException.class, () -> execute("key-8", request));
+        assertEquals(1, executions.get());
+    }
+
+    @Test
+    void execute_WithTooLongKey_ShouldRejectWithoutStore() {
+        assertThrows(InvalidIdempotencyKeyException.class, () -> execute("k".repeat(101), request));
+
+        assertEquals(0, executions.get());
+        verifyNoInteractions(idempotencyRecordRepository);
+    }
+}
@@ -0,0 +1,124 @@
+package com.example.bankcards.service.user;
+
+import com.example.bankcards.dto.enums.Role;
+import com.example.bankcards.entity.Card;
+import com.example.bankcards.entity.User;
+import com.example.bankcards.repository.UserRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class UserCacheTest {
+
+    @Mock
+    private UserRepository userRepository;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private UserCache userCache;
+
+    private final User user = User.builder()
+            .id(1L)
+            .username("john_doe")
+            .email("john@example.com")
+            .password("encodedPassword123")
+            .role(Role.USER)
+            .build();
+
+    @BeforeEach
+    void setUp() {
+        userCache = new UserCache(userRepository, meterRegistry, 100, Duration.ofMinutes(5));
+    }
+
+    @Test
+    void findByUsername_ShouldHitRepositoryOnceAndServeBothKeysFromCache() {
+        when(userRepository.findByUsername("john_doe")).thenReturn(Optional.of(user));
+
+        assertSameFields(user, userCache.findByUsername("john_doe").orElseThrow());
+        assertSameFields(user, userCache.findByUsername("john_doe").orElseThrow());
+        assertSameFields(user, userCache.findById(1L).orElseThrow());
+
+        verify(userRepository, times(1)).findByUsername("john_doe");
+        verify(userRepository, never()).findById(any());
+        assertEquals(1, meterRegistry.get("cache.gets").tag("cache", "users.by-username").tag("result", "hit").functionCounter().count());
+        assertEquals(1, meterRegistry.get("cache.gets").tag("cache", "users.by-username").tag("result", "miss").functionCounter().count());
+        assertEquals(1, meterRegistry.get("cache.gets").tag("cache", "users.by-id").tag("result", "hit").functionCounter().count());
+    }
+
+    @Test
+    void findById_ShouldReturnDetachedCopyWithoutCards() {
+        User managed = User.builder()
+                .id(1L)
+                .username("john_doe")
+                .email("john@example.com")
+                .password("encodedPassword123")
+                .role(Role.USER)
+                .cards(List.of(new Card()))
+                .build();
+        when(userRepository.findById(1L)).thenReturn(Optional.of(managed));
+
+        User first = userCache.findById(1L).orElseThrow();
+        first.setPassword("changed");
+        User second = userCache.findById(1L).orElseThrow();
+
+        assertNotSame(managed, first);
+        assertNotSame(first, second);
+        assertEquals("encodedPassword123", second.getPassword());
+        assertTrue(second.getCards().isEmpty());
+    }
+
+    @Test
+    void findById_WithUnknownUser_ShouldNotCacheTheMiss() {
+        when(userRepository.findById(2L)).thenReturn(Optional.empty());
+
+        assertTrue(userCache.findById(2L).isEmpty());
+        assertTrue(userCache.findById(2L).isEmpty());
+
+        verify(userRepository, times(2)).findById(2L);
+    }
+
+    @Test
+    void findByUsername_WithUnknownUser_ShouldNotCacheTheMiss() {
+        when(userRepository.findByUsername("ghost")).thenReturn(Optional.empty());
+
+        assertTrue(userCache.findByUsername("ghost").isEmpty());
+        assertTrue(userCache.findByUsername("ghost").isEmpty());
+
+        verify(userRepository, times(2)).findByUsername("ghost");
+    }
+
+    @Test
+    void invalidate_ShouldForceReloadByUsernameAndId() {
+        when(userRepository.findById(1L)).thenReturn(Optional.of(user));
+        userCache.findById(1L);
+
+        userCache.invalidate(user);
+        when(userRepository.findByUsername("john_doe")).thenReturn(Optional.of(user));
+        userCache.findByUsername("john_doe");
+        userCache.findById(1L);
+
+        verify(userRepository, times(1)).findByUsername("john_doe");
+        verify(userRepository, times(1)).findById(1L);
+    }
+
+    private static void assertSameFields(User expected, User actual) {
+        assertEquals(expected.getId(), actual.getId());
+        assertEquals(expected.getUsername(), actual.getUsername());
+        assertEquals(expected.getEmail(), actual.getEmail());
+        assertEquals(expected.getPassword(), actual.getPassword());
+        assertEquals(expected.getRole(), actual.getRole());
+    }
+
+}
@@ -8,6 +8,7 @@ import com.example.bankcards.exception.UserNotFoundException;
 import com.example.bankcards.exception.UsernameAlreadyExistsException;
 import com.example.bankcards.mapper.UserMapper;
 import com.example.bankcards.repository.UserRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -15,9 +16,14 @@ import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
+import java.time.Duration;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -42,6 +48,9 @@ class UserServiceImplTest {
 
     @BeforeEach
     void setUp() {
+        ReflectionTestUtils.setField(userService, "userCache",
+                new UserCache(userRepository, new SimpleMeterRegistry(), 100, Duration.ofMinutes(5)));
+
         validUserDtoIn = UserDtoIn.builder()
                 .username("john_doe")
                 .password("password123")
@@ -209,6 +218,36 @@ class UserServiceImplTest {
         verify(userRepository, times(1)).findById(userId);
     }
 
+    @Test
+    void checkUserExists_WithExistingUserId_ShouldPass() {
+        when(userRepository.existsById(1L)).thenReturn(true);
+
+        assertDoesNotThrow(() -> userService.checkUserExists(1L));
+    }
+
+    @Test
+    void checkUserExists_WithNonExistingUserId_ShouldThrowUserNotFoundException() {
+        when(userRepository.existsById(999L)).thenReturn(false);
+
+        UserNotFoundException exception = assertThrows(
+                UserNotFoundException.class,
+                () -> userService.checkUserExists(999L)
+        );
+
+        assertEquals("Пользователя с Id 999 не существует", exception.getMessage());
+    }
+
+    @Test
+    void getEntitiesByIds_ShouldReturnFoundUsersKeyedById() {
+        List<Long> userIds = List.of(1L, 999L);
+        when(userRepository.findAllById(userIds)).thenReturn(List.of(savedUser));
+
+        Map<Long, User> result = userService.getEntitiesByIds(userIds);
+
+        assertEquals(Map.of(1L, savedUser), result);
+        verify(userRepository, times(1)).findAllById(userIds);
+    }
+
     @Test
     void createNewUser_WithDifferentEmail_ShouldWorkCorrectly() {
 
@@ -334,4 +373,39 @@ class UserServiceImplTest {
                 .toList();
         assertEquals(List.of("email", "name"), fieldNames);
     }
-}
\ No newline at end of file
+
+    @Test
+    void createNewUser_InTransaction_ShouldInvalidateCacheOnlyAfterCommit() {
+        User stale = User.builder()
+                .id(1L)
+                .username("john_doe")
+                .email("old@example.com")
+                .password("oldPassword")
+                .role(Role.USER)
+                .build();
+        when(userRepository.findById(1L)).thenReturn(Optional.of(stale), Optional.of(savedUser));
+        when(userRepository.findByUsername("john_doe")).thenReturn(Optional.empty());
+        when(passwordEncoder.encode(anyString())).thenReturn("encodedPassword123");
+        when(userRepository.save(any(User.class))).thenAnswer(invocation -> {
+            User user = invocation.getArgument(0);
+            user.setId(1L);
+            return user;
+        });
+        userService.getEntityById(1L);
+
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            userService.createNewUser(validUserDtoIn);
+
+            assertEquals("old@example.com", userService.getEntityById(1L).getEmail());
+
+            TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+
+        assertEquals("john@example.com", userService.getEntityById(1L).getEmail());
+        verify(userRepository, times(2)).findById(1L);
+    }
+
+}
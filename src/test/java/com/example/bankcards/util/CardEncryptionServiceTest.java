@@ -0,0 +1,63 @@
+package com.example.bankcards.util;
+
+import com.example.bankcards.config.CardEncryptionProperties;
+import org.junit.jupiter.api.Test;
+
+import java.util.Base64;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CardEncryptionServiceTest {
+
+    private static final String KEY_V1 = "7kQ2mX9pL4vN8cR1tY6wZ3bH5jF0sD2gK8nM4qP7rT0=";
+    private static final String KEY_V2 = "Zm9yLXRlc3RzLW9ubHktMzItYnl0ZXMtbG9uZy1rZXk=";
+
+    private final CardEncryptionService encryptionService =
+            new CardEncryptionService(new CardEncryptionProperties("v1", Map.of("v1", KEY_V1)));
+
+    @Test
+    void encrypt_ShouldRoundTripWithVersionPrefix() {
+        String encrypted = encryptionService.encrypt("1234567812345678");
+
+        assertTrue(encrypted.startsWith("v1:"));
+        assertFalse(encrypted.contains("1234567812345678"));
+        assertEquals("1234567812345678", encryptionService.decrypt(encrypted));
+    }
+
+    @Test
+    void encrypt_ShouldUseFreshIvForEveryValue() {
+        assertNotEquals(encryptionService.encrypt("1234567812345678"), encryptionService.encrypt("1234567812345678"));
+    }
+
+    @Test
+    void decrypt_WithLegacyPlaintext_ShouldReturnItAsIs() {
+        assertEquals("1234567812345678", encryptionService.decrypt("1234567812345678"));
+    }
+
+    @Test
+    void decrypt_AfterKeyRotation_ShouldReadValuesOfPreviousKey() {
+        String encryptedWithV1 = encryptionService.encrypt("1234567812345678");
+        CardEncryptionService rotated = new CardEncryptionService(
+                new CardEncryptionProperties("v2", Map.of("v1", KEY_V1, "v2", KEY_V2)));
+
+        assertEquals("1234567812345678", rotated.decrypt(encryptedWithV1));
+        assertTrue(rotated.encrypt("1234567812345678").startsWith("v2:"));
+    }
+
+    @Test
+    void decrypt_WithTamperedValue_ShouldThrowIllegalStateException() {
+        byte[] encrypted = Base64.getDecoder().decode(encryptionService.encrypt("1234567812345678").substring(3));
+        encrypted[encrypted.length - 1] ^= 1;
+
+        assertThrows(IllegalStateException.class,
+                () -> encryptionService.decrypt("v1:" + Base64.getEncoder().encodeToString(encrypted)));
+    }
+
+    @Test
+    void constructor_WithoutActiveKey_ShouldThrowIllegalArgumentException() {
+        assertThrows(IllegalArgumentException.class,
+                () -> new CardEncryptionService(new CardEncryptionProperties("v2", Map.of("v1", KEY_V1))));
+    }
+
+}
@@ -0,0 +1,47 @@
+package com.example.bankcards.util;
+
+import com.example.bankcards.exception.CardNumberIndexNotReadyException;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CardNumberBlindIndexTest {
+
+    private static final String KEY = "q5V0cY3mJ8pT2wN6rL9eH4sA1uK7zX0bD3fG6jM9nQ2=";
+    private static final String OTHER_KEY = "Zm9yLXRlc3RzLW9ubHktMzItYnl0ZXMtbG9uZy1rZXk=";
+
+    @Test
+    void hash_ShouldBeDeterministicHexOfFixedLength() {
+        CardNumberBlindIndex blindIndex = new CardNumberBlindIndex(KEY);
+
+        String hash = blindIndex.hash("1234567812345678");
+
+        assertEquals(64, hash.length());
+        assertTrue(hash.matches("[0-9a-f]+"));
+        assertEquals(hash, new CardNumberBlindIndex(KEY).hash("1234567812345678"));
+        assertNotEquals(hash, blindIndex.hash("8765432187654321"));
+    }
+
+    @Test
+    void hash_ShouldDependOnKey() {
+        assertNotEquals(new CardNumberBlindIndex(KEY).hash("1234567812345678"),
+                new CardNumberBlindIndex(OTHER_KEY).hash("1234567812345678"));
+    }
+
+    @Test
+    void lookupHash_WhileBackfillIsRunning_ShouldThrowCardNumberIndexNotReadyException() {
+        CardNumberBlindIndex blindIndex = new CardNumberBlindIndex(KEY);
+
+        blindIndex.markBackfillStarted();
+        assertThrows(CardNumberIndexNotReadyException.class, () -> blindIndex.lookupHash("1234567812345678"));
+
+        blindIndex.markBackfillFinished();
+        assertEquals(blindIndex.hash("1234567812345678"), blindIndex.lookupHash("1234567812345678"));
+    }
+
+    @Test
+    void constructor_WithShortKey_ShouldThrowIllegalArgumentException() {
+        assertThrows(IllegalArgumentException.class, () -> new CardNumberBlindIndex("c2hvcnQ="));
+    }
+
+}
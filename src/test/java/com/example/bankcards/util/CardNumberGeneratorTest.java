@@ -0,0 +1,102 @@
+package com.example.bankcards.util;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class CardNumberGeneratorTest {
+
+    private static final String KEY = "Xr2d8KpQ5vLm1TzN7wYc3HbF9sJg6AeU0oRi4MnV2lE=";
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    private CardNumberGenerator generator;
+
+    @BeforeEach
+    void setUp() {
+        generator = new CardNumberGenerator(jdbcTemplate, "400000", KEY);
+    }
+
+    @Test
+    void next_ShouldReturnLuhnValidSixteenDigitNumbersUnderBin() {
+        when(jdbcTemplate.queryForList(anyString(), eq(Long.class), eq(3))).thenReturn(List.of(1L, 2L, 3L));
+
+        List<String> cardNumbers = generator.next(3);
+
+        assertEquals(3, cardNumbers.size());
+        for (String cardNumber : cardNumbers) {
+            assertTrue(cardNumber.matches("400000\\d{10}"), cardNumber);
+            assertTrue(isLuhnValid(cardNumber), cardNumber);
+        }
+        verify(jdbcTemplate, times(1)).queryForList(anyString(), eq(Long.class), eq(3));
+    }
+
+    @Test
+    void toCardNumber_ShouldBeUniqueAndNotSequential() {
+        Set<String> cardNumbers = new HashSet<>();
+        for (long sequenceValue = 1; sequenceValue <= 20_000; sequenceValue++) {
+            assertTrue(cardNumbers.add(generator.toCardNumber(sequenceValue)));
+        }
+
+        long first = Long.parseLong(generator.toCardNumber(1).substring(6, 15));
+        long second = Long.parseLong(generator.toCardNumber(2).substring(6, 15));
+        assertNotEquals(1, Math.abs(second - first));
+    }
+
+    @Test
+    void toCardNumber_ShouldDependOnKey() {
+        CardNumberGenerator otherKey = new CardNumberGenerator(jdbcTemplate, "400000",
+                "Zm9yLXRlc3RzLW9ubHktMzItYnl0ZXMtbG9uZy1rZXk=");
+
+        assertEquals(generator.toCardNumber(42), generator.toCardNumber(42));
+        assertNotEquals(generator.toCardNumber(42), otherKey.toCardNumber(42));
+    }
+
+    @Test
+    void permute_OnSmallDomain_ShouldBeBijection() {
+        // 8-значный BIN оставляет 7 цифр счёта: образы выборки из домена 10^7 не должны совпадать
+        CardNumberGenerator smallDomain = new CardNumberGenerator(jdbcTemplate, "40000000", KEY);
+        boolean[] seen = new boolean[10_000_000];
+
+        for (long value = 0; value < seen.length; value += 101) {
+            int permuted = (int) smallDomain.permute(value);
+            assertFalse(seen[permuted]);
+            seen[permuted] = true;
+        }
+    }
+
+    @Test
+    void toCardNumber_WhenSequenceExhausted_ShouldThrowIllegalStateException() {
+        assertThrows(IllegalStateException.class, () -> generator.toCardNumber(1_000_000_000L));
+    }
+
+    @Test
+    void constructor_WithInvalidBin_ShouldThrowIllegalArgumentException() {
+        assertThrows(IllegalArgumentException.class, () -> new CardNumberGenerator(jdbcTemplate, "40A000", KEY));
+    }
+
+    @Test
+    void luhnCheckDigit_ShouldMatchKnownNumber() {
+        assertEquals(3, CardNumberGenerator.luhnCheckDigit("7992739871"));
+    }
+
+    private boolean isLuhnValid(String cardNumber) {
+        int check = cardNumber.charAt(cardNumber.length() - 1) - '0';
+        return CardNumberGenerator.luhnCheckDigit(cardNumber.substring(0, cardNumber.length() - 1)) == check;
+    }
+
+}
@@ -0,0 +1,87 @@
+package com.example.bankcards.util;
+
+import com.example.bankcards.dto.card.TransferRequest;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.validation.Validation;
+import jakarta.validation.Validator;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MoneyTest {
+
+    @Test
+    void of_ShouldStoreMinorUnits() {
+        assertEquals(150_075L, Money.of("1500.75").getMinorUnits());
+        assertEquals(500L, Money.of(new BigDecimal("5")).getMinorUnits());
+        assertEquals(Money.of("10.10"), Money.of("10.1"));
+    }
+
+    @Test
+    void of_WithFractionOfKopeck_ShouldThrowIllegalArgumentException() {
+        assertThrows(IllegalArgumentException.class, () -> Money.of("0.001"));
+    }
+
+    @Test
+    void arithmetic_ShouldWorkOnMinorUnits() {
+        Money balance = Money.of("1000.00");
+
+        assertEquals(Money.of("700.01"), balance.minus(Money.of("299.99")));
+        assertEquals(Money.of("1299.99"), balance.plus(Money.of("299.99")));
+        assertEquals(Money.of("-1000.00"), balance.negate());
+        assertEquals(balance, balance.negate().abs());
+        assertTrue(Money.of("1000.01").isGreaterThan(balance));
+        assertFalse(balance.isGreaterThan(balance));
+        assertEquals(-1, Money.of("-0.01").signum());
+    }
+
+    @Test
+    void arithmetic_OnOverflow_ShouldThrowArithmeticException() {
+        Money max = Money.ofMinorUnits(Long.MAX_VALUE);
+
+        assertThrows(ArithmeticException.class, () -> max.plus(Money.ofMinorUnits(1)));
+        assertThrows(ArithmeticException.class, () -> Money.ofMinorUnits(Long.MIN_VALUE).negate());
+    }
+
+    @Test
+    void json_ShouldBeWrittenAndReadAsDecimalNumber() throws Exception {
+        ObjectMapper objectMapper = new ObjectMapper();
+
+        assertEquals("1500.50", objectMapper.writeValueAsString(Money.of("1500.5")));
+        assertEquals(Money.of("99.90"), objectMapper.readValue("99.9", Money.class));
+        assertEquals(Money.of("99.90"), objectMapper.readValue("\"99.90\"", Money.class));
+    }
+
+    @Test
+    void converter_ShouldRoundTripThroughDecimalColumn() {
+        MoneyConverter converter = new MoneyConverter();
+
+        BigDecimal column = converter.convertToDatabaseColumn(Money.of("42.50"));
+
+        assertEquals(new BigDecimal("42.50"), column);
+        assertEquals(Money.of("42.50"), converter.convertToEntityAttribute(column));
+        assertNull(converter.convertToDatabaseColumn(null));
+        assertNull(converter.convertToEntityAttribute(null));
+    }
+
+    @Test
+    void positiveOrZero_ShouldRejectNegativeMoney() {
+        Validator validator = Validation.buildDefaultValidatorFactory().getValidator();
+        TransferRequest request = TransferRequest.builder()
+                .cardNumberFrom("1234567812345678")
+                .cardHolderFrom("John Doe")
+                .cardNumberTo("8765432187654321")
+                .cardHolderTo("Jane Smith")
+                .addedAmount(Money.of("-0.01"))
+                .build();
+
+        assertEquals(1, validator.validate(request).size());
+
+        request.setAddedAmount(Money.ZERO);
+
+        assertTrue(validator.validate(request).isEmpty());
+    }
+
+}
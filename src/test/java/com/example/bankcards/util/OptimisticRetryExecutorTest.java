@@ -0,0 +1,81 @@
+package com.example.bankcards.util;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class OptimisticRetryExecutorTest {
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private SimpleMeterRegistry meterRegistry;
+    private OptimisticRetryExecutor retryExecutor;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        retryExecutor = new OptimisticRetryExecutor(new TransactionTemplate(transactionManager), meterRegistry,
+                3, Duration.ofMillis(1), Duration.ofMillis(2));
+    }
+
+    @Test
+    void execute_WithTransientConflict_ShouldRetryInNewTransactionAndCountRetries() {
+        AtomicInteger calls = new AtomicInteger();
+
+        String result = retryExecutor.execute("updateBalance", () -> {
+            if (calls.incrementAndGet() < 3) {
+                throw new ObjectOptimisticLockingFailureException("Card", 1L);
+            }
+            return "ok";
+        });
+
+        assertEquals("ok", result);
+        assertEquals(3, calls.get());
+        verify(transactionManager, times(3)).getTransaction(any());
+        assertEquals(2.0, meterRegistry.counter("card.optimistic.retries", "operation", "updateBalance").count());
+        assertEquals(0.0, meterRegistry.counter("card.optimistic.exhausted", "operation", "updateBalance").count());
+    }
+
+    @Test
+    void execute_WhenAttemptsExhausted_ShouldRethrowConflict() {
+        AtomicInteger calls = new AtomicInteger();
+
+        assertThrows(ObjectOptimisticLockingFailureException.class, () -> retryExecutor.execute("transfer", () -> {
+            calls.incrementAndGet();
+            throw new ObjectOptimisticLockingFailureException("Card", 1L);
+        }));
+
+        assertEquals(3, calls.get());
+        assertEquals(2.0, meterRegistry.counter("card.optimistic.retries", "operation", "transfer").count());
+        assertEquals(1.0, meterRegistry.counter("card.optimistic.exhausted", "operation", "transfer").count());
+    }
+
+    @Test
+    void execute_WithOtherException_ShouldNotRetry() {
+        AtomicInteger calls = new AtomicInteger();
+
+        assertThrows(DataIntegrityViolationException.class, () -> retryExecutor.execute("transfer", () -> {
+            calls.incrementAndGet();
+            throw new DataIntegrityViolationException("constraint");
+        }));
+
+        assertEquals(1, calls.get());
+        assertEquals(0.0, meterRegistry.counter("card.optimistic.retries", "operation", "transfer").count());
+    }
+}
@@ -0,0 +1,41 @@
+package com.example.bankcards.util;
+
+import org.junit.jupiter.api.Test;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ThreadLocalMacTest {
+
+    private static final byte[] KEY = Base64.getDecoder().decode("q5V0cY3mJ8pT2wN6rL9eH4sA1uK7zX0bD3fG6jM9nQ2=");
+
+    @Test
+    void doFinal_ShouldMatchPlainMac() throws Exception {
+        Mac plain = Mac.getInstance("HmacSHA256");
+        plain.init(new SecretKeySpec(KEY, "HmacSHA256"));
+        byte[] input = "1234567812345678".getBytes(StandardCharsets.UTF_8);
+
+        assertArrayEquals(plain.doFinal(input), new ThreadLocalMac("HmacSHA256", KEY).doFinal(input));
+    }
+
+    @Test
+    void get_ShouldGiveEachThreadItsOwnInstance() {
+        ThreadLocalMac mac = new ThreadLocalMac("HmacSHA256", KEY);
+
+        Mac otherThreadMac = CompletableFuture.supplyAsync(mac::get).join();
+
+        assertSame(mac.get(), mac.get());
+        assertNotSame(mac.get(), otherThreadMac);
+    }
+
+    @Test
+    void constructor_WithUnknownAlgorithm_ShouldThrowIllegalStateException() {
+        assertThrows(IllegalStateException.class, () -> new ThreadLocalMac("HmacUnknown", KEY));
+    }
+
+}